@@ -0,0 +1,216 @@
+package src;
+
+import src.data.ClassCodes;
+import src.data.ColumnStore;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * The CompiledTree class is a trained decision tree flattened into parallel arrays, one entry per node, so
+ * a prediction is a loop over array indexes that compares doubles instead of a walk over TreeNode objects.
+ * Node 0 is the root; a node with feature index -1 is a leaf.
+ *
+ * Values are indexed by column, in the layout of the store the tree was trained on. As in the tree, a
+ * value at or below the threshold goes to the right child, and a blank value goes to the left child.
+ */
+public final class CompiledTree {
+
+    private static final int ROWS_PER_TASK = 1 << 16;
+
+    private final int[] featureIndices; // Column each node tests, -1 for a leaf
+    private final double[] thresholds;
+    private final int[] leftChildren;
+    private final int[] rightChildren;
+    private final int[] leafCodes; // Class code predicted by each leaf, -1 for a split
+    private final List<String> classLabels;
+
+    /**
+     * The predictions of a whole store, with the confusion matrix of its class column: rows are actual
+     * class codes and columns are predicted class codes. Rows whose class the tree has never seen are
+     * predicted but left out of the matrix.
+     */
+    public static final class Predictions {
+        private final int[] codes;
+        private final int[][] confusionMatrix;
+
+        private Predictions(int[] codes, int[][] confusionMatrix) {
+            this.codes = codes;
+            this.confusionMatrix = confusionMatrix;
+        }
+
+        /**
+         * Returns the predicted class code of every row.
+         */
+        public int[] getCodes() {
+            return codes;
+        }
+
+        public int[][] getConfusionMatrix() {
+            return confusionMatrix;
+        }
+
+        /**
+         * Returns the share of the rows in the confusion matrix that were predicted correctly.
+         */
+        public double getAccuracy() {
+            long correct = 0;
+            long total = 0;
+            for (int actual = 0; actual < confusionMatrix.length; actual++) {
+                for (int predicted = 0; predicted < confusionMatrix[actual].length; predicted++) {
+                    total += confusionMatrix[actual][predicted];
+                    if (actual == predicted) {
+                        correct += confusionMatrix[actual][predicted];
+                    }
+                }
+            }
+            return total == 0 ? 0.0 : (double) correct / total;
+        }
+    }
+
+    private CompiledTree(int nodeCount, List<String> classLabels) {
+        featureIndices = new int[nodeCount];
+        thresholds = new double[nodeCount];
+        leftChildren = new int[nodeCount];
+        rightChildren = new int[nodeCount];
+        leafCodes = new int[nodeCount];
+        this.classLabels = classLabels;
+    }
+
+    /**
+     * Flattens a tree in depth-first order, numbering the leaves' predictions by the given class codes.
+     */
+    static CompiledTree compile(DecisionTree.TreeNode root, ClassCodes labels) {
+        List<String> classLabels = new ArrayList<>(labels.getClassCount());
+        for (int code = 0; code < labels.getClassCount(); code++) {
+            classLabels.add(labels.getLabel(code));
+        }
+
+        List<DecisionTree.TreeNode> nodes = new ArrayList<>();
+        Deque<DecisionTree.TreeNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            DecisionTree.TreeNode node = pending.pop();
+            nodes.add(node);
+            if (!node.isLeaf) {
+                pending.push(node.left);
+                pending.push(node.right);
+            }
+        }
+
+        CompiledTree tree = new CompiledTree(nodes.size(), Collections.unmodifiableList(classLabels));
+        Map<DecisionTree.TreeNode, Integer> indexes = new IdentityHashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            indexes.put(nodes.get(i), i);
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            DecisionTree.TreeNode node = nodes.get(i);
+            if (node.isLeaf) {
+                tree.featureIndices[i] = -1;
+                tree.leftChildren[i] = -1;
+                tree.rightChildren[i] = -1;
+                tree.leafCodes[i] = labels.codeOf(node.prediction);
+            } else {
+                tree.featureIndices[i] = node.featureIndex;
+                tree.thresholds[i] = node.threshold;
+                tree.leftChildren[i] = indexes.get(node.left);
+                tree.rightChildren[i] = indexes.get(node.right);
+                tree.leafCodes[i] = -1;
+            }
+        }
+        return tree;
+    }
+
+    public int getNodeCount() {
+        return featureIndices.length;
+    }
+
+    /**
+     * Returns the class labels, indexed by the codes the tree predicts.
+     */
+    public List<String> getClassLabels() {
+        return classLabels;
+    }
+
+    /**
+     * Returns the class code predicted for one case, given its values indexed by column.
+     */
+    public int predict(double[] values) {
+        int node = 0;
+        while (featureIndices[node] >= 0) {
+            node = values[featureIndices[node]] <= thresholds[node] ? rightChildren[node] : leftChildren[node];
+        }
+        return leafCodes[node];
+    }
+
+    /**
+     * Returns the class code predicted for one row, given the values of the tested columns indexed by
+     * column and then by row.
+     */
+    int predict(double[][] columns, int row) {
+        int node = 0;
+        while (featureIndices[node] >= 0) {
+            node = columns[featureIndices[node]][row] <= thresholds[node] ? rightChildren[node] : leftChildren[node];
+        }
+        return leafCodes[node];
+    }
+
+    /**
+     * Predicts every row of the store, in slices on the pool, and counts the predictions against the class
+     * column. The store must have the columns of the one the tree was trained on.
+     */
+    public Predictions predictAll(ColumnStore columnStore, int classColumnIndex, ForkJoinPool pool) {
+        int rowCount = columnStore.getRowCount();
+        double[][] columns = new double[columnStore.getColumnCount()][];
+        for (int feature : featureIndices) {
+            if (feature >= 0 && columns[feature] == null) {
+                columns[feature] = columnStore.getColumnValues(feature);
+            }
+        }
+
+        // Actual classes are looked up by label, since the store may number them differently
+        ClassCodes actualLabels = ClassCodes.of(columnStore, classColumnIndex);
+        int[] actualCodes = new int[actualLabels.getClassCount()];
+        for (int code = 0; code < actualCodes.length; code++) {
+            actualCodes[code] = classLabels.indexOf(actualLabels.getLabel(code));
+        }
+
+        int[] codes = new int[rowCount];
+        List<ForkJoinTask<int[][]>> tasks = new ArrayList<>();
+        for (int from = 0; from < rowCount; from += ROWS_PER_TASK) {
+            int sliceFrom = from;
+            int sliceTo = Math.min(rowCount, from + ROWS_PER_TASK);
+            tasks.add(pool.submit(() -> predictSlice(columns, sliceFrom, sliceTo, codes, actualLabels, actualCodes)));
+        }
+        int[][] confusionMatrix = new int[classLabels.size()][classLabels.size()];
+        for (ForkJoinTask<int[][]> task : tasks) {
+            int[][] sliceMatrix = task.join();
+            for (int actual = 0; actual < confusionMatrix.length; actual++) {
+                for (int predicted = 0; predicted < confusionMatrix.length; predicted++) {
+                    confusionMatrix[actual][predicted] += sliceMatrix[actual][predicted];
+                }
+            }
+        }
+        return new Predictions(codes, confusionMatrix);
+    }
+
+    private int[][] predictSlice(double[][] columns, int from, int to, int[] codes, ClassCodes actualLabels, int[] actualCodes) {
+        int[][] confusionMatrix = new int[classLabels.size()][classLabels.size()];
+        for (int row = from; row < to; row++) {
+            int predicted = predict(columns, row);
+            codes[row] = predicted;
+            int actual = actualCodes[actualLabels.getCode(row)];
+            if (actual >= 0) {
+                confusionMatrix[actual][predicted]++;
+            }
+        }
+        return confusionMatrix;
+    }
+}
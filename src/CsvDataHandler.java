@@ -1,57 +1,189 @@
 package src;
 
+import src.data.ClassCodes;
+import src.data.ColumnStatistics;
+import src.data.ColumnStore;
+import src.data.CsvLoader;
+import src.data.JtvSnapshot;
+import src.data.NormalizationEngine;
+import src.table.ReorderableTableModel;
+
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.text.DecimalFormat;
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class CsvDataHandler {
-    private List<String[]> originalData = new ArrayList<>();
-    private List<String[]> normalizedData = new ArrayList<>();
+    private ColumnStore originalData = new ColumnStore();
+    private NormalizationEngine.Normalization normalization;
     private boolean isNormalized = false;
-    private String normalizationType = "minmax";
+    private String normalizationType = NormalizationEngine.MIN_MAX;
     private int classColumnIndex = -1; // Index of the detected class column
+    private static final long SNAPSHOT_MIN_SOURCE_SIZE = 16L << 20; // Smaller files parse about as fast as a snapshot opens
+    private CsvLoader activeLoader;
+    private SwingWorker<Void, ColumnStore> loadWorker;
+
+    /**
+     * Loads a CSV file in the background. Rows are added to the table in batches as the file is parsed and
+     * the stats are updated with every batch; onLoaded runs on the EDT once the load has finished or has
+     * been cancelled. The returned worker reports the share of the file read so far as its progress.
+     *
+     * A .jtv snapshot is opened directly, and so is an up-to-date .jtv sidecar of the CSV file. After a large
+     * CSV file has been parsed in full, a sidecar snapshot is written next to it for the next time.
+     */
+    public SwingWorker<Void, ColumnStore> loadCsvData(String filePath, ReorderableTableModel tableModel, JTextArea statsTextArea, Runnable onLoaded) {
+        cancelLoading();
+        Path source = Paths.get(filePath);
+        CsvLoader loader = new CsvLoader(source);
+        activeLoader = loader;
+
+        SwingWorker<Void, ColumnStore> worker = new SwingWorker<>() {
+            private final AtomicInteger publishedBatches = new AtomicInteger();
+            private int processedBatches = 0;
+            private boolean backgroundDone = false;
+            private boolean finished = false;
+            private boolean parsedFromCsv = false;
+            private boolean loadSucceeded = false;
+            private long sourceSize;
+            private long sourceModified;
 
-    public void loadCsvData(String filePath, DefaultTableModel tableModel, JTextArea statsTextArea) {
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            boolean isFirstLine = true;
-
-            // Clear existing data
-            originalData.clear();
-            tableModel.setRowCount(0);
-            tableModel.setColumnCount(0);
-
-            while ((line = br.readLine()) != null) {
-                String[] values = line.split(",");
-                if (isFirstLine) {
-                    tableModel.setColumnIdentifiers(values);
-                    for (int i = 0; i < values.length; i++) {
-                        if (values[i].equalsIgnoreCase("class")) {
-                            classColumnIndex = i;
-                            break;
-                        }
-                    }
-                    isFirstLine = false;
-                } else {
-                    originalData.add(values);
-                    tableModel.addRow(values);
+            @Override
+            protected Void doInBackground() throws IOException {
+                ColumnStore snapshot = readSnapshot(source);
+                if (snapshot != null) {
+                    publishedBatches.incrementAndGet();
+                    publish(snapshot);
+                    setProgress(100);
+                    return null;
+                }
+
+                sourceSize = Files.size(source);
+                sourceModified = Files.getLastModifiedTime(source).toMillis();
+                parsedFromCsv = true;
+                loader.load((batch, bytesLoaded, totalBytes) -> {
+                    publishedBatches.incrementAndGet();
+                    publish(batch);
+                    setProgress((int) (bytesLoaded * 100 / totalBytes));
+                });
+                return null;
+            }
+
+            @Override
+            protected void process(List<ColumnStore> batches) {
+                if (finished || activeLoader != loader) {
+                    return;
+                }
+                for (ColumnStore batch : batches) {
+                    tableModel.appendRows(batch);
+                }
+                processedBatches += batches.size();
+                // The store keeps its statistics up to date as rows are appended, so no rows are read here
+                updateStats(tableModel, statsTextArea);
+
+                // Batches published just before the load ended can arrive after done()
+                if (backgroundDone && processedBatches == publishedBatches.get()) {
+                    finish();
+                }
+            }
+
+            @Override
+            protected void done() {
+                backgroundDone = true;
+                if (isCancelled()) {
+                    loader.cancel();
+                    finish();
+                    return;
+                }
+                try {
+                    get();
+                    loadSucceeded = true;
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(null, "Error loading CSV file: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+                if (processedBatches == publishedBatches.get()) {
+                    finish();
+                }
+            }
+
+            private void finish() {
+                if (finished || activeLoader != loader) {
+                    return; // Already finished, or replaced by a newer load
+                }
+                finished = true;
+                activeLoader = null;
+                loadWorker = null;
+                originalData = tableModel.getColumnStore();
+                classColumnIndex = originalData.getClassColumnIndex();
+                updateStats(tableModel, statsTextArea);
+                if (loadSucceeded && parsedFromCsv && !loader.isCancelled() && sourceSize >= SNAPSHOT_MIN_SOURCE_SIZE) {
+                    // The copy shares the columns of the table, so the snapshot is written without a second
+                    // copy of the data unless the table is edited while it is being written
+                    writeSidecarSnapshot(originalData.copy(), source, sourceSize, sourceModified);
                 }
+                onLoaded.run();
             }
-            updateStats(tableModel, statsTextArea);
+        };
+
+        loadWorker = worker;
+        worker.execute();
+        return worker;
+    }
+
+    /**
+     * Returns the snapshot to open for the given file, or null if the CSV file has to be parsed.
+     */
+    private ColumnStore readSnapshot(Path source) throws IOException {
+        if (JtvSnapshot.isSnapshot(source)) {
+            return JtvSnapshot.read(source);
+        }
+        Path sidecar = JtvSnapshot.sidecarFor(source);
+        if (!JtvSnapshot.isFresh(sidecar, source)) {
+            return null;
+        }
+        try {
+            return JtvSnapshot.read(sidecar);
         } catch (IOException e) {
-            JOptionPane.showMessageDialog(null, "Error loading CSV file: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            return null; // An unreadable sidecar is only a missed shortcut, the CSV file is still there
         }
     }
 
+    private void writeSidecarSnapshot(ColumnStore columnStore, Path source, long sourceSize, long sourceModified) {
+        SwingWorker<Void, Void> worker = new SwingWorker<>() {
+            @Override
+            protected Void doInBackground() {
+                try {
+                    JtvSnapshot.write(columnStore, JtvSnapshot.sidecarFor(source), sourceSize, sourceModified);
+                } catch (IOException e) {
+                    // The sidecar is only a cache, e.g. the dataset folder may be read-only
+                }
+                return null;
+            }
+        };
+        worker.execute();
+    }
+
+    /**
+     * Stops a running background load. The rows loaded so far are kept.
+     */
+    public void cancelLoading() {
+        if (activeLoader != null) {
+            activeLoader.cancel();
+        }
+        if (loadWorker != null) {
+            loadWorker.cancel(false);
+        }
+    }
+
+    public boolean isLoading() {
+        return loadWorker != null;
+    }
+
     public void normalizeOrDenormalizeData(JTable table, JTextArea statsTextArea) {
         if (!isNormalized) {
             normalizeData(table, statsTextArea);
@@ -65,124 +197,33 @@ public class CsvDataHandler {
     }
 
     private void normalizeData(JTable table, JTextArea statsTextArea) {
-        if (originalData.isEmpty()) {
+        if (originalData.getRowCount() == 0) {
             JOptionPane.showMessageDialog(null, "No data to normalize", "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
-        SwingWorker<List<String[]>, Void> worker = new SwingWorker<>() {
-            @Override
-            protected List<String[]> doInBackground() {
-                int numColumns = originalData.get(0).length;
-                double[] minValues = new double[numColumns];
-                double[] maxValues = new double[numColumns];
-                double[] means = new double[numColumns];
-                double[] stdDevs = new double[numColumns];
-                boolean[] isNumerical = new boolean[numColumns];
-                int[] counts = new int[numColumns];
-
-                // Initialize arrays
-                for (int i = 0; i < numColumns; i++) {
-                    minValues[i] = Double.MAX_VALUE;
-                    maxValues[i] = Double.MIN_VALUE;
-                    means[i] = 0.0;
-                    stdDevs[i] = 0.0;
-                    isNumerical[i] = true;
-                    counts[i] = 0;
-                }
-
-                // First pass - calculate min, max, and means
-                for (String[] row : originalData) {
-                    for (int j = 0; j < numColumns; j++) {
-                        if (j == classColumnIndex) continue; // Skip class column
-
-                        try {
-                            if (row[j] != null && !row[j].trim().isEmpty()) {
-                                double value = Double.parseDouble(row[j]);
-                                minValues[j] = Math.min(minValues[j], value);
-                                maxValues[j] = Math.max(maxValues[j], value);
-                                means[j] += value;
-                                counts[j]++;
-                            }
-                        } catch (NumberFormatException e) {
-                            isNumerical[j] = false;
-                        }
-                    }
-                }
-
-                // Calculate means
-                for (int j = 0; j < numColumns; j++) {
-                    if (isNumerical[j] && counts[j] > 0) {
-                        means[j] /= counts[j];
-                    }
-                }
-
-                // Second pass - calculate standard deviations for z-score
-                if (normalizationType.equals("zscore")) {
-                    for (String[] row : originalData) {
-                        for (int j = 0; j < numColumns; j++) {
-                            if (j == classColumnIndex || !isNumerical[j]) continue; // Skip class column
-
-                            try {
-                                if (row[j] != null && !row[j].trim().isEmpty()) {
-                                    double value = Double.parseDouble(row[j]);
-                                    stdDevs[j] += Math.pow(value - means[j], 2);
-                                }
-                            } catch (NumberFormatException ignored) {}
-                        }
-                    }
-
-                    // Finalize standard deviations
-                    for (int j = 0; j < numColumns; j++) {
-                        if (isNumerical[j] && counts[j] > 1) {
-                            stdDevs[j] = Math.sqrt(stdDevs[j] / (counts[j] - 1));
-                        }
-                    }
-                }
+        // Toggling back to a normalization of unchanged data only reapplies the per-column offsets
+        if (normalization != null && normalization.isCurrent(originalData, normalizationType)) {
+            applyNormalization(table, statsTextArea);
+            return;
+        }
 
-                // Create normalized data
-                List<String[]> normalizedData = new ArrayList<>();
-                DecimalFormat df = new DecimalFormat("#.####");
-
-                for (String[] row : originalData) {
-                    String[] normalizedRow = new String[numColumns];
-                    for (int j = 0; j < numColumns; j++) {
-                        if (j == classColumnIndex) {
-                            normalizedRow[j] = row[j]; // Retain original class column
-                        } else if (isNumerical[j]) {
-                            try {
-                                if (row[j] != null && !row[j].trim().isEmpty()) {
-                                    double value = Double.parseDouble(row[j]);
-                                    double normalizedValue;
-                                    if (normalizationType.equals("minmax")) {
-                                        double range = maxValues[j] - minValues[j];
-                                        normalizedValue = range != 0 ? (value - minValues[j]) / range : 0;
-                                    } else { // zscore
-                                        normalizedValue = stdDevs[j] != 0 ? (value - means[j]) / stdDevs[j] : 0;
-                                    }
-                                    normalizedRow[j] = df.format(normalizedValue);
-                                } else {
-                                    normalizedRow[j] = row[j];
-                                }
-                            } catch (NumberFormatException e) {
-                                normalizedRow[j] = row[j];
-                            }
-                        } else {
-                            normalizedRow[j] = row[j]; // Retain non-numeric data
-                        }
-                    }
-                    normalizedData.add(normalizedRow);
-                }
-                return normalizedData;
+        ColumnStore columnStore = originalData;
+        String type = normalizationType;
+        SwingWorker<NormalizationEngine.Normalization, Void> worker = new SwingWorker<>() {
+            @Override
+            protected NormalizationEngine.Normalization doInBackground() {
+                return NormalizationEngine.fit(columnStore, type, classColumnIndex);
             }
 
             @Override
             protected void done() {
                 try {
-                    normalizedData = get();
-                    isNormalized = true;
-                    updateTableWithNormalizedData(table);
-                    updateStats((DefaultTableModel) table.getModel(), statsTextArea);
+                    if (columnStore != originalData) {
+                        return; // Another file was loaded in the meantime
+                    }
+                    normalization = get();
+                    applyNormalization(table, statsTextArea);
                 } catch (Exception e) {
                     JOptionPane.showMessageDialog(null, "Error during normalization: " + e.getMessage(),
                             "Error", JOptionPane.ERROR_MESSAGE);
@@ -193,49 +234,30 @@ public class CsvDataHandler {
         worker.execute();
     }
 
-    private void denormalizeData(JTable table, JTextArea statsTextArea) {
-        SwingWorker<Void, Void> worker = new SwingWorker<>() {
-            @Override
-            protected Void doInBackground() {
-                return null; // Nothing to compute in the background
-            }
-
-            @Override
-            protected void done() {
-                isNormalized = false;
-                updateTableWithOriginalData(table);
-                updateStats((DefaultTableModel) table.getModel(), statsTextArea);
-            }
-        };
-
-        worker.execute();
+    private void applyNormalization(JTable table, JTextArea statsTextArea) {
+        originalData.setNormalizedDisplayPattern("#.####");
+        normalization.applyTo(originalData);
+        isNormalized = true;
+        refreshTable(table, statsTextArea);
     }
 
-    private void updateTableWithNormalizedData(JTable table) {
-        DefaultTableModel tableModel = (DefaultTableModel) table.getModel();
-        tableModel.setRowCount(0); // Clear existing data in the table
-
-        // Populate the table with normalized data
-        for (String[] row : normalizedData) {
-            tableModel.addRow(row);
-        }
-
-        table.repaint(); // Refresh the table display
+    private void denormalizeData(JTable table, JTextArea statsTextArea) {
+        originalData.clearNormalization();
+        isNormalized = false;
+        refreshTable(table, statsTextArea);
     }
 
-    private void updateTableWithOriginalData(JTable table) {
-        DefaultTableModel tableModel = (DefaultTableModel) table.getModel();
-        tableModel.setRowCount(0); // Clear existing data in the table
-
-        // Restore the original data
-        for (String[] row : originalData) {
-            tableModel.addRow(row);
-        }
-
-        table.repaint(); // Refresh the table display
+    /**
+     * Repaints the table after the normalization view changed. The rows and columns are the same, only the
+     * values read from them differ.
+     */
+    private void refreshTable(JTable table, JTextArea statsTextArea) {
+        ReorderableTableModel tableModel = (ReorderableTableModel) table.getModel();
+        tableModel.fireTableDataChanged();
+        updateStats(tableModel, statsTextArea);
     }
 
-    public void saveCsvData(String filePath, DefaultTableModel tableModel) {
+    public void saveCsvData(String filePath, ReorderableTableModel tableModel) {
         try (BufferedWriter bw = new BufferedWriter(new FileWriter(filePath))) {
             // Write column headers
             for (int col = 0; col < tableModel.getColumnCount(); col++) {
@@ -263,19 +285,16 @@ public class CsvDataHandler {
     }
 
     public boolean isDataEmpty() {
-        return originalData.isEmpty();
+        return originalData.getRowCount() == 0;
     }
 
-    public List<String[]> getOriginalData() {
+    public ColumnStore getOriginalData() {
         return originalData;
     }
 
-    public List<String[]> getNormalizedData() {
-        return normalizedData;
-    }
-
-    public void updateStats(DefaultTableModel tableModel, JTextArea statsTextArea) {
+    public void updateStats(ReorderableTableModel tableModel, JTextArea statsTextArea) {
         int caseCount = tableModel.getRowCount();
+        ColumnStore columnStore = tableModel.getColumnStore();
 
         StringBuilder stats = new StringBuilder();
         stats.append("Case Count: ").append(caseCount).append("\n");
@@ -294,15 +313,18 @@ public class CsvDataHandler {
             }
         }
 
-        Set<String> classSet = new HashSet<>();
         if (classColumnIndex != -1) {
-            for (int row = 0; row < caseCount; row++) {
-                Object classValue = tableModel.getValueAt(row, classColumnIndex);
-                if (classValue != null) {
-                    classSet.add(classValue.toString());
+            // The store keeps per-class counts of a categorical class column, so no rows are read here
+            ClassCodes classCodes = columnStore.isNumeric(classColumnIndex) ? ClassCodes.of(columnStore, classColumnIndex) : null;
+            int[] classCounts = classCodes != null ? classCodes.countAll() : columnStore.getCategoryCounts(classColumnIndex);
+            int classCount = 0;
+            for (int code = 0; code < classCounts.length; code++) {
+                // Rows with a blank class cell have no class
+                String label = classCodes != null ? classCodes.getLabel(code) : columnStore.getCategory(classColumnIndex, code);
+                if (classCounts[code] > 0 && !label.isEmpty()) {
+                    classCount++;
                 }
             }
-            int classCount = classSet.size();
             stats.append("Class Count: ").append(classCount).append("\n");
         } else {
             stats.append("Class column not found.\n");
@@ -314,32 +336,20 @@ public class CsvDataHandler {
                 continue;
             }
 
-            double minValue = Double.MAX_VALUE;
-            double maxValue = Double.MIN_VALUE;
-            boolean isNumerical = true;
-
-            for (int row = 0; row < caseCount; row++) {
-                try {
-                    double value = Double.parseDouble(tableModel.getValueAt(row, col).toString());
-                    if (value < minValue) minValue = value;
-                    if (value > maxValue) maxValue = value;
-                } catch (NumberFormatException e) {
-                    isNumerical = false;
-                    break;
-                }
+            if (!columnStore.getSchema(col).isFullyNumeric()) {
+                continue;
             }
 
-            if (isNumerical) {
-                stats.append(tableModel.getColumnName(col)).append(": Min=").append(minValue).append(", Max=").append(maxValue).append("\n");
-            }
+            ColumnStatistics columnStatistics = columnStore.getStatistics(col);
+            stats.append(tableModel.getColumnName(col)).append(": Min=").append(columnStatistics.getMin()).append(", Max=").append(columnStatistics.getMax()).append("\n");
         }
 
         statsTextArea.setText(stats.toString());
     }
 
     public void clearData() {
-        originalData.clear();
-        normalizedData.clear();
+        originalData = new ColumnStore();
+        normalization = null;
         isNormalized = false;
     }
 
@@ -15,13 +15,14 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.Collections;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableColumnModel;
 
+import src.data.ColumnStore;
+import src.data.RowMask;
 import src.managers.*;
 import src.table.ReorderableTableModel;
 import src.table.TableSetup;
@@ -47,6 +48,10 @@ public class CsvViewer extends JFrame {
     public JSplitPane splitPane;
     public JSlider thresholdSlider;
     public JLabel thresholdLabel;
+    public JCheckBox hyperblocksCheckBox;
+    public JProgressBar loadProgressBar;
+    public JButton cancelLoadButton;
+    public JPanel loadProgressPanel;
     public JPopupMenu normalizationMenu;
 
     private TrigonometricColumnManager trigColumnManager;
@@ -111,9 +116,14 @@ public class CsvViewer extends JFrame {
     
         thresholdLabel = new JLabel("5%");
         thresholdSlider.addChangeListener(e -> {
-            int thresholdValue = thresholdSlider.getValue();
-            thresholdLabel.setText(thresholdValue + "%");
-            pureRegionManager.calculateAndDisplayPureRegions(thresholdValue);
+            pureRegionManager.calculateAndDisplayPureRegions(thresholdSlider.getValue());
+            updateThresholdLabel();
+        });
+        hyperblocksCheckBox = new JCheckBox("Hyperblocks");
+        hyperblocksCheckBox.setToolTipText("Find multi-attribute hyperblocks instead of single-attribute pure regions");
+        hyperblocksCheckBox.addActionListener(e -> {
+            pureRegionManager.setUseHyperblocks(hyperblocksCheckBox.isSelected());
+            updateThresholdLabel();
         });
     
         addWindowListener(new WindowAdapter() {
@@ -125,7 +135,12 @@ public class CsvViewer extends JFrame {
             }
         });
     
-        bottomPanel = CsvViewerUIHelper.createBottomPanel(selectedRowsLabel, thresholdSlider, thresholdLabel);
+        bottomPanel = CsvViewerUIHelper.createBottomPanel(selectedRowsLabel, thresholdSlider, thresholdLabel, hyperblocksCheckBox);
+        loadProgressBar = new JProgressBar(0, 100);
+        cancelLoadButton = new JButton("Cancel");
+        cancelLoadButton.addActionListener(e -> dataHandler.cancelLoading());
+        loadProgressPanel = CsvViewerUIHelper.createLoadProgressPanel(loadProgressBar, cancelLoadButton);
+        bottomPanel.add(loadProgressPanel, BorderLayout.WEST);
         statsPanel = new JPanel(new BorderLayout());
         statsPanel.add(statsScrollPane, BorderLayout.CENTER);
     
@@ -150,15 +165,19 @@ public class CsvViewer extends JFrame {
         return !stateManager.getHiddenRows().isEmpty();
     }
 
-    public java.util.List<Integer> getHiddenRows() {
+    public RowMask getHiddenRows() {
         return stateManager.getHiddenRows();
     }
 
+    public RowMask getSelectedRows() {
+        return stateManager.getSelectedRows();
+    }
+
     public void toggleTrigonometricColumns() {
         trigColumnManager.toggleTrigonometricColumns(
             stateManager.isNormalized(),
             () -> dataHandler.normalizeOrDenormalizeData(table, statsTextArea),
-            () -> tableManager.updateTableData(dataHandler.getNormalizedData())
+            () -> tableManager.updateTableData(dataHandler.getOriginalData())
         );
     }
 
@@ -328,17 +347,14 @@ public class CsvViewer extends JFrame {
             tableModel.addColumn(newColumnName);
 
             String trigFunction = (String) trigFunctionSelector.getSelectedItem();
+            ColumnStore columnStore = tableModel.getColumnStore();
             for (int row = 0; row < tableModel.getRowCount(); row++) {
+                // Blank and categorical cells read as NaN, so the sum of their row is NaN
                 double sum = 0.0;
-                try {
-                    for (int j = 0; j < columnIndices.size(); j++) {
-                        Object value = tableModel.getValueAt(row, columnIndices.get(j));
-                        sum += coefficients.get(j) * Double.parseDouble(value.toString());
-                    }
-                    sum = applyTrigFunction(sum, trigFunction);
-                } catch (NumberFormatException | NullPointerException e) {
-                    sum = Double.NaN;
+                for (int j = 0; j < columnIndices.size(); j++) {
+                    sum += coefficients.get(j) * columnStore.getDouble(row, columnIndices.get(j));
                 }
+                sum = applyTrigFunction(sum, trigFunction);
                 tableModel.setValueAt(decimalFormat.format(sum), row, tableModel.getColumnCount() - 1);
             }
 
@@ -436,62 +452,44 @@ public class CsvViewer extends JFrame {
 
             clearTableAndState();
 
-            dataHandler.loadCsvData(filePath, tableModel, statsTextArea);
-
-            // Format decimal values
-            for (int row = 0; row < tableModel.getRowCount(); row++) {
-                for (int col = 0; col < tableModel.getColumnCount(); col++) {
-                    Object value = tableModel.getValueAt(row, col);
-                    if (value != null && isNumeric(value.toString())) {
-                        tableModel.setValueAt(formatAsDecimal(value.toString()), row, col);
-                    }
+            // Rows appear in batches while the file is read; the rest of the setup runs once it is loaded
+            loadProgressBar.setValue(0);
+            loadProgressPanel.setVisible(true);
+            SwingWorker<Void, ColumnStore> loadWorker = dataHandler.loadCsvData(filePath, tableModel, statsTextArea, this::datasetLoaded);
+            loadWorker.addPropertyChangeListener(e -> {
+                if ("progress".equals(e.getPropertyName())) {
+                    loadProgressBar.setValue((Integer) e.getNewValue());
                 }
-            }
-
-            java.util.List<String> originalColumnNames = new ArrayList<>();
-            for (int i = 0; i < tableModel.getColumnCount(); i++) {
-                originalColumnNames.add(tableModel.getColumnName(i));
-            }
-            stateManager.setOriginalColumnNames(originalColumnNames);
-
-            stateManager.setNormalized(false);
-            stateManager.setHeatmapEnabled(false);
-            stateManager.setClassColorEnabled(false);
-            generateClassColors();
-            generateClassShapes();
-            updateSelectedRowsLabel();
-
-            // Update the toggle button through ButtonPanelManager
-            buttonPanelManager.getToggleButton().setIcon(UIHelper.loadIcon("/icons/normalize.png", 40, 40));
-            buttonPanelManager.getToggleButton().setToolTipText("Normalize");
-
-            statsTextArea.setCaretPosition(0);
+            });
         }
     }
 
-    private boolean isNumeric(String str) {
-        try {
-            Double.parseDouble(str.trim());
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
+    private void datasetLoaded() {
+        loadProgressPanel.setVisible(false);
+        java.util.List<String> originalColumnNames = new ArrayList<>();
+        for (int i = 0; i < tableModel.getColumnCount(); i++) {
+            originalColumnNames.add(tableModel.getColumnName(i));
         }
-    }
+        stateManager.setOriginalColumnNames(originalColumnNames);
 
-    private String formatDecimalWithoutScientificNotation(double value) {
-        DecimalFormat decimalFormat = new DecimalFormat("#.##########################");
-        decimalFormat.setDecimalSeparatorAlwaysShown(false);
-        return decimalFormat.format(value);
-    }
+        stateManager.setNormalized(false);
+        stateManager.setHeatmapEnabled(false);
+        stateManager.setClassColorEnabled(false);
+        generateClassColors();
+        generateClassShapes();
+        updateSelectedRowsLabel();
+
+        // Update the toggle button through ButtonPanelManager
+        buttonPanelManager.getToggleButton().setIcon(UIHelper.loadIcon("/icons/normalize.png", 40, 40));
+        buttonPanelManager.getToggleButton().setToolTipText("Normalize");
 
-    private String formatAsDecimal(String str) {
-        double value = Double.parseDouble(str.trim());
-        return formatDecimalWithoutScientificNotation(value);
+        statsTextArea.setCaretPosition(0);
     }
 
     private void clearTableAndState() {
-        tableModel.setRowCount(0);
-        tableModel.setColumnCount(0);
+        dataHandler.cancelLoading();
+        pureRegionManager.clearPureRegions();
+        tableModel.setColumnStore(new ColumnStore());
         stateManager.clearState();
         dataHandler.clearData();
     }
@@ -563,14 +561,11 @@ public class CsvViewer extends JFrame {
         double[] values1 = new double[rowCount];
         double[] values2 = new double[rowCount];
 
+        // Blank cells and categorical columns read as NaN
+        ColumnStore columnStore = tableModel.getColumnStore();
         for (int i = 0; i < rowCount; i++) {
-            try {
-                values1[i] = Double.parseDouble(tableModel.getValueAt(i, col1).toString());
-                values2[i] = Double.parseDouble(tableModel.getValueAt(i, col2).toString());
-            } catch (NumberFormatException e) {
-                values1[i] = Double.NaN;
-                values2[i] = Double.NaN;
-            }
+            values1[i] = columnStore.getDouble(i, col1);
+            values2[i] = columnStore.getDouble(i, col2);
         }
 
         return calculateCovariance(values1, values2);
@@ -584,7 +579,7 @@ public class CsvViewer extends JFrame {
         int currentCaretPosition = statsTextArea.getCaretPosition();
 
         if (stateManager.isNormalized()) {
-            tableManager.updateTableData(dataHandler.getOriginalData());
+            dataHandler.normalizeOrDenormalizeData(table, statsTextArea);
             stateManager.setNormalized(false);
             toggleButton.setIcon(UIHelper.loadIcon("/icons/normalize.png", 40, 40));
             toggleButton.setToolTipText("Normalize");
@@ -603,7 +598,7 @@ public class CsvViewer extends JFrame {
         }
     }
 
-    public void updateTableData(java.util.List<String[]> data) {
+    public void updateTableData(ColumnStore data) {
         tableManager.updateTableData(data);
     }
 
@@ -656,21 +651,10 @@ public class CsvViewer extends JFrame {
         java.util.List<double[]> numericalData = new ArrayList<>();
         java.util.List<String> columnNames = new ArrayList<>();
 
+        ColumnStore columnStore = tableModel.getColumnStore();
         for (int col = 0; colCount > col; col++) {
-            boolean isNumeric = true;
-            double[] columnData = new double[rowCount];
-
-            for (int row = 0; row < rowCount; row++) {
-                try {
-                    columnData[row] = Double.parseDouble(tableModel.getValueAt(row, col).toString());
-                } catch (NumberFormatException e) {
-                    isNumeric = false;
-                    break;
-                }
-            }
-
-            if (isNumeric) {
-                numericalData.add(columnData);
+            if (columnStore.getSchema(col).isFullyNumeric()) {
+                numericalData.add(columnStore.getColumnValues(col));
                 columnNames.add(tableModel.getColumnName(col));
             }
         }
@@ -717,15 +701,13 @@ public class CsvViewer extends JFrame {
                 public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
                     Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
 
-                    if (value != null && !value.toString().trim().isEmpty()) {
-                        try {
-                            double val = Double.parseDouble(value.toString());
-                            double normalizedValue = (val - finalMinCovariance) / (finalMaxCovariance - finalMinCovariance);
-                            Color color = getColorForValue(normalizedValue);
-                            c.setBackground(color);
-                        } catch (NumberFormatException e) {
-                            c.setBackground(Color.WHITE);
-                        }
+                    // The first column holds the attribute names, the others index the matrix
+                    int modelColumn = table.convertColumnIndexToModel(column);
+                    if (modelColumn > 0) {
+                        double val = covarianceMatrix[row][modelColumn - 1];
+                        double normalizedValue = (val - finalMinCovariance) / (finalMaxCovariance - finalMinCovariance);
+                        Color color = getColorForValue(normalizedValue);
+                        c.setBackground(color);
                     } else {
                         c.setBackground(Color.WHITE);
                     }
@@ -892,15 +874,12 @@ public class CsvViewer extends JFrame {
         if (selectedRows.length > 0) {
             int currentCaretPosition = statsTextArea.getCaretPosition();
 
-            java.util.List<Integer> rowsToDelete = new ArrayList<>();
-            for (int row : selectedRows) {
-                rowsToDelete.add(table.convertRowIndexToModel(row));
-            }
-            rowsToDelete.sort(Collections.reverseOrder());
-
-            for (int rowIndex : rowsToDelete) {
-                tableModel.removeRow(rowIndex);
+            int[] rowsToDelete = new int[selectedRows.length];
+            for (int i = 0; i < selectedRows.length; i++) {
+                rowsToDelete[i] = table.convertRowIndexToModel(selectedRows[i]);
             }
+            tableModel.removeRows(rowsToDelete);
+            stateManager.getHiddenRows().removeRows(rowsToDelete);
 
             dataHandler.updateStats(tableModel, statsTextArea);
             updateSelectedRowsLabel();
@@ -918,12 +897,11 @@ public class CsvViewer extends JFrame {
         if (selectedRow != -1) {
             int currentCaretPosition = statsTextArea.getCaretPosition();
 
-            DefaultTableModel model = (DefaultTableModel) table.getModel();
-            Object[] rowData = new Object[model.getColumnCount()];
-            for (int col = 0; col < model.getColumnCount(); col++) {
-                rowData[col] = model.getValueAt(selectedRow, col);
+            Object[] rowData = new Object[tableModel.getColumnCount()];
+            for (int col = 0; col < tableModel.getColumnCount(); col++) {
+                rowData[col] = tableModel.getValueAt(selectedRow, col);
             }
-            model.insertRow(selectedRow + 1, rowData);
+            tableModel.insertRow(selectedRow + 1, rowData);
             dataHandler.updateStats(tableModel, statsTextArea);
 
             statsTextArea.setCaretPosition(currentCaretPosition);
@@ -939,7 +917,7 @@ public class CsvViewer extends JFrame {
         // Collect indices of numeric columns in the current column order
         for (int i = 0; i < numColumns; i++) {
             int modelIndex = table.convertColumnIndexToModel(i);
-            if (isColumnNumeric(modelIndex) && stateManager.getOriginalColumnNames().contains(tableModel.getColumnName(modelIndex))) {
+            if (tableModel.getColumnStore().getSchema(modelIndex).isFullyNumeric() && stateManager.getOriginalColumnNames().contains(tableModel.getColumnName(modelIndex))) {
                 numericColumnIndices.add(modelIndex);
             }
         }
@@ -961,44 +939,9 @@ public class CsvViewer extends JFrame {
             tableModel.addColumn(distanceColumnName);
             
             for (int row = 0; row < tableModel.getRowCount(); row++) {
-                try {
-                    double value1 = Double.parseDouble(tableModel.getValueAt(row, colIndex1).toString());
-                    double value2 = Double.parseDouble(tableModel.getValueAt(row, colIndex2).toString());
-                    
-                    double slope = Math.atan2(value2 - value1, 1.0); // Calculate the angle of the line (slant of the polyline)
-                    double distance = value2 - value1; // Terms subtracted
-                    
-                    // Check for NaN, infinity, or other indeterminate forms
-                    if (Double.isNaN(slope) || Double.isInfinite(slope)) {
-                        slope = 0;
-                    }
-                    if (Double.isNaN(distance) || Double.isInfinite(distance)) {
-                        distance = 0;
-                    }
-                    
-                    tableModel.setValueAt(String.format("%.4f", slope), row, tableModel.findColumn(slopeColumnName));
-                    tableModel.setValueAt(String.format("%.4f", distance), row, tableModel.findColumn(distanceColumnName));
-                } catch (NumberFormatException | NullPointerException e) {
-                    tableModel.setValueAt("0.0000", row, tableModel.findColumn(slopeColumnName));
-                    tableModel.setValueAt("0.0000", row, tableModel.findColumn(distanceColumnName));
-                }
-            }
-        }
-        
-        // Calculate slope and distance between last and first column
-        int lastColIndex = numericColumnIndices.get(numericColumnIndices.size() - 1);
-        int firstColIndex = numericColumnIndices.get(0);
-        
-        String slopeColumnName = getUniqueColumnName("Slope(" + tableModel.getColumnName(lastColIndex) + ":" + tableModel.getColumnName(firstColIndex) + ")");
-        String distanceColumnName = getUniqueColumnName("Distance(" + tableModel.getColumnName(lastColIndex) + ":" + tableModel.getColumnName(firstColIndex) + ")");
-        
-        tableModel.addColumn(slopeColumnName);
-        tableModel.addColumn(distanceColumnName);
-        
-        for (int row = 0; row < tableModel.getRowCount(); row++) {
-            try {
-                double value1 = Double.parseDouble(tableModel.getValueAt(row, lastColIndex).toString());
-                double value2 = Double.parseDouble(tableModel.getValueAt(row, firstColIndex).toString());
+                // Blank cells read as NaN, which gives a slope and distance of 0
+                double value1 = tableModel.getColumnStore().getDouble(row, colIndex1);
+                double value2 = tableModel.getColumnStore().getDouble(row, colIndex2);
                 
                 double slope = Math.atan2(value2 - value1, 1.0); // Calculate the angle of the line (slant of the polyline)
                 double distance = value2 - value1; // Terms subtracted
@@ -1013,27 +956,43 @@ public class CsvViewer extends JFrame {
                 
                 tableModel.setValueAt(String.format("%.4f", slope), row, tableModel.findColumn(slopeColumnName));
                 tableModel.setValueAt(String.format("%.4f", distance), row, tableModel.findColumn(distanceColumnName));
-            } catch (NumberFormatException | NullPointerException e) {
-                tableModel.setValueAt("0.0000", row, tableModel.findColumn(slopeColumnName));
-                tableModel.setValueAt("0.0000", row, tableModel.findColumn(distanceColumnName));
             }
         }
         
-        dataHandler.updateStats(tableModel, statsTextArea);
-        updateSelectedRowsLabel();
-    }
+        // Calculate slope and distance between last and first column
+        int lastColIndex = numericColumnIndices.get(numericColumnIndices.size() - 1);
+        int firstColIndex = numericColumnIndices.get(0);
+        
+        String slopeColumnName = getUniqueColumnName("Slope(" + tableModel.getColumnName(lastColIndex) + ":" + tableModel.getColumnName(firstColIndex) + ")");
+        String distanceColumnName = getUniqueColumnName("Distance(" + tableModel.getColumnName(lastColIndex) + ":" + tableModel.getColumnName(firstColIndex) + ")");
+        
+        tableModel.addColumn(slopeColumnName);
+        tableModel.addColumn(distanceColumnName);
         
-    private boolean isColumnNumeric(int colIndex) {
         for (int row = 0; row < tableModel.getRowCount(); row++) {
-            try {
-                Double.parseDouble(tableModel.getValueAt(row, colIndex).toString());
-            } catch (NumberFormatException e) {
-                return false; // If any value in the column is non-numeric, return false
+            // Blank cells read as NaN, which gives a slope and distance of 0
+            double value1 = tableModel.getColumnStore().getDouble(row, lastColIndex);
+            double value2 = tableModel.getColumnStore().getDouble(row, firstColIndex);
+            
+            double slope = Math.atan2(value2 - value1, 1.0); // Calculate the angle of the line (slant of the polyline)
+            double distance = value2 - value1; // Terms subtracted
+            
+            // Check for NaN, infinity, or other indeterminate forms
+            if (Double.isNaN(slope) || Double.isInfinite(slope)) {
+                slope = 0;
             }
+            if (Double.isNaN(distance) || Double.isInfinite(distance)) {
+                distance = 0;
+            }
+            
+            tableModel.setValueAt(String.format("%.4f", slope), row, tableModel.findColumn(slopeColumnName));
+            tableModel.setValueAt(String.format("%.4f", distance), row, tableModel.findColumn(distanceColumnName));
         }
-        return true;
+        
+        dataHandler.updateStats(tableModel, statsTextArea);
+        updateSelectedRowsLabel();
     }
-    
+        
     public void showCalculateSlopesAndDistancesDialog() {
         int option = JOptionPane.showConfirmDialog(this, "Would you like to calculate and insert slopes and distances?", "Calculate Features", JOptionPane.YES_NO_OPTION);
         if (option == JOptionPane.YES_OPTION) {
@@ -1045,6 +1004,10 @@ public class CsvViewer extends JFrame {
         dataExporter.exportCsvFile();
     }
 
+    public void exportJtvSnapshot() {
+        dataExporter.exportJtvSnapshot();
+    }
+
     public void showParallelCoordinatesPlot() {
         visualizationManager.showParallelCoordinatesPlot();
     }
@@ -1080,13 +1043,15 @@ public class CsvViewer extends JFrame {
             selectedRowCount, totalVisibleRowCount, totalRowCount, visiblePercentage));
     }
 
-    public java.util.List<Integer> getSelectedRowsIndices() {
+    /**
+     * Copies the table selection, as model rows, into the shared selection mask.
+     */
+    public void updateSelectedRows() {
         int[] selectedRows = table.getSelectedRows();
-        java.util.List<Integer> selectedIndices = new ArrayList<>();
-        for (int row : selectedRows) {
-            selectedIndices.add(table.convertRowIndexToModel(row));
+        for (int i = 0; i < selectedRows.length; i++) {
+            selectedRows[i] = table.convertRowIndexToModel(selectedRows[i]);
         }
-        return selectedIndices;
+        stateManager.getSelectedRows().setAll(selectedRows);
     }
 
     public JTable getTable() {
@@ -1097,6 +1062,16 @@ public class CsvViewer extends JFrame {
         return dataHandler;
     }
 
+    /**
+     * Shows the threshold next to the slider, with the number of cases hiding the easy cases would leave
+     * once the pure regions of the current data are known.
+     */
+    public void updateThresholdLabel() {
+        int thresholdValue = thresholdSlider.getValue();
+        int remainingCases = pureRegionManager.getRemainingCases(thresholdValue);
+        thresholdLabel.setText(remainingCases < 0 ? thresholdValue + "%" : thresholdValue + "% (" + remainingCases + " cases left)");
+    }
+
     public void updateToggleEasyCasesButton(boolean show) {
         if (show) {
             toggleEasyCasesButton.setIcon(UIHelper.loadIcon("/icons/easy.png", 40, 40));
@@ -33,7 +33,7 @@ public class CsvViewerUIHelper {
         return scrollPane;
     }
 
-    public static JPanel createBottomPanel(JLabel selectedRowsLabel, JSlider thresholdSlider, JLabel thresholdLabel) {
+    public static JPanel createBottomPanel(JLabel selectedRowsLabel, JSlider thresholdSlider, JLabel thresholdLabel, JCheckBox hyperblocksCheckBox) {
         JPanel bottomPanel = new JPanel(new BorderLayout(10, 0));
         bottomPanel.setBackground(BACKGROUND_COLOR);
         bottomPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
@@ -46,6 +46,8 @@ public class CsvViewerUIHelper {
         styleLabel(thresholdTitle);
         styleLabel(thresholdLabel);
         styleLabel(selectedRowsLabel);
+        hyperblocksCheckBox.setFont(new Font("SansSerif", Font.PLAIN, 12));
+        hyperblocksCheckBox.setBackground(BACKGROUND_COLOR);
         
         // Style the slider
         thresholdSlider.setBackground(BACKGROUND_COLOR);
@@ -54,7 +56,12 @@ public class CsvViewerUIHelper {
         
         sliderPanel.add(thresholdTitle, BorderLayout.WEST);
         sliderPanel.add(thresholdSlider, BorderLayout.CENTER);
-        sliderPanel.add(thresholdLabel, BorderLayout.EAST);
+
+        JPanel thresholdPanel = new JPanel(new BorderLayout(10, 0));
+        thresholdPanel.setBackground(BACKGROUND_COLOR);
+        thresholdPanel.add(thresholdLabel, BorderLayout.CENTER);
+        thresholdPanel.add(hyperblocksCheckBox, BorderLayout.EAST);
+        sliderPanel.add(thresholdPanel, BorderLayout.EAST);
         
         bottomPanel.add(sliderPanel, BorderLayout.EAST);
         bottomPanel.add(selectedRowsLabel, BorderLayout.CENTER);
@@ -62,6 +69,25 @@ public class CsvViewerUIHelper {
         return bottomPanel;
     }
 
+    public static JPanel createLoadProgressPanel(JProgressBar progressBar, JButton cancelButton) {
+        JPanel loadProgressPanel = new JPanel(new BorderLayout(5, 0));
+        loadProgressPanel.setBackground(BACKGROUND_COLOR);
+
+        JLabel loadingLabel = new JLabel("Loading:");
+        styleLabel(loadingLabel);
+
+        progressBar.setStringPainted(true);
+        progressBar.setForeground(ACCENT_COLOR);
+        cancelButton.setToolTipText("Stop loading and keep the rows read so far");
+
+        loadProgressPanel.add(loadingLabel, BorderLayout.WEST);
+        loadProgressPanel.add(progressBar, BorderLayout.CENTER);
+        loadProgressPanel.add(cancelButton, BorderLayout.EAST);
+        loadProgressPanel.setVisible(false);
+
+        return loadProgressPanel;
+    }
+
     public static JSplitPane createSplitPane(JScrollPane tableScrollPane, JPanel statsPanel) {
         JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, tableScrollPane, statsPanel);
         splitPane.setResizeWeight(0.8);
@@ -96,7 +122,10 @@ public class CsvViewerUIHelper {
         viewer.applyDefaultRenderer();
         
         // Add existing listeners
-        table.getSelectionModel().addListSelectionListener(e -> viewer.updateSelectedRowsLabel());
+        table.getSelectionModel().addListSelectionListener(e -> {
+            viewer.updateSelectedRows();
+            viewer.updateSelectedRowsLabel();
+        });
         table.addMouseListener(new TableMouseListener(viewer));
         table.getTableHeader().addMouseListener(new TableMouseListener(viewer));
         
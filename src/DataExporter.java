@@ -1,15 +1,18 @@
 package src;
 
+import src.data.JtvSnapshot;
+import src.table.ReorderableTableModel;
+
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
 
 public class DataExporter {
-    private DefaultTableModel tableModel;
+    private ReorderableTableModel tableModel;
 
-    public DataExporter(DefaultTableModel tableModel) {
+    public DataExporter(ReorderableTableModel tableModel) {
         this.tableModel = tableModel;
     }
 
@@ -46,4 +49,24 @@ public class DataExporter {
             }
         }
     }
+
+    public void exportJtvSnapshot() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setCurrentDirectory(new java.io.File("datasets"));
+        fileChooser.setDialogTitle("Save JTV Snapshot");
+        int result = fileChooser.showSaveDialog(null);
+
+        if (result == JFileChooser.APPROVE_OPTION) {
+            Path path = fileChooser.getSelectedFile().toPath();
+            if (!JtvSnapshot.isSnapshot(path)) {
+                path = path.resolveSibling(path.getFileName() + JtvSnapshot.EXTENSION);
+            }
+
+            try {
+                JtvSnapshot.write(tableModel.getColumnStore(), path);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(null, "Error saving JTV snapshot: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
 }
@@ -1,171 +1,309 @@
 package src;
 
+import src.data.ClassCodes;
+import src.data.ColumnStore;
+import src.data.SortedColumnIndex;
+
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.function.Function;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
 
+/**
+ * The DecisionTree class builds a CART tree with Gini impurity over the numeric columns of a ColumnStore.
+ * Each column is sorted once, through its SortedColumnIndex, and every node keeps its rows in that order
+ * for every column, so the best threshold of a column is found in one sweep that moves rows across the
+ * split and updates the class counts of both sides, instead of re-partitioning the node for every value.
+ *
+ * In binned mode each column is instead quantized once into at most MAX_BINS quantile bins, kept as a
+ * byte per row, and a node finds its splits from a class histogram per column. Only the smaller child of
+ * a split scans its rows; the larger one subtracts that histogram from its parent's. Thresholds are then
+ * limited to the bin edges, which are the largest values of their bins.
+ *
+ * Large nodes search their columns in parallel and large subtrees are built as fork-join tasks. A node
+ * only ever changes its own range of the orders, so the tasks need no locking, and the tree does not
+ * depend on how they are scheduled.
+ */
 public class DecisionTree {
 
-    private static final String RIGHT_CHILD = "RIGHT_CHILD";
-    private static final String LEFT_CHILD = "LEFT_CHILD";
+    private static final long PARALLEL_SPLIT_CELLS = 1L << 16; // Rows times columns worth searching in parallel
+    private static final int MIN_FORK_ROWS = 2048;
+    public static final int MAX_BINS = 255; // Value bins per column in binned mode; one more byte code marks blanks
 
-    public static class TreeNode {
-        public Function<String[], Boolean> question;
-        public String questionText;
-        public boolean isLeaf;
-        public TreeNode left;
-        public TreeNode right;
-        public String prediction;
-        public int caseCount;
-    }    
+    /**
+     * The stopping rules of a tree: a node becomes a leaf at the maximum depth, and a split must leave at
+     * least minSamplesLeaf cases on each side and lower the Gini impurity by more than minGain.
+     */
+    public static final class Limits {
+        public static final Limits NONE = new Limits(Integer.MAX_VALUE, 1, 0.0);
 
-    private TreeNode root;
-    private List<String> attributeNames;
+        private final int maxDepth;
+        private final int minSamplesLeaf;
+        private final double minGain;
 
-    public DecisionTree(List<String[]> data, List<String> attributeNames, int labelColumnIndex) {
-        this.attributeNames = attributeNames;
-        this.root = buildTree(data, labelColumnIndex);
-    }
+        public Limits(int maxDepth, int minSamplesLeaf, double minGain) {
+            this.maxDepth = maxDepth;
+            this.minSamplesLeaf = Math.max(1, minSamplesLeaf);
+            this.minGain = Math.max(0.0, minGain);
+        }
 
-    private TreeNode buildTree(List<String[]> data, int labelColumnIndex) {
-        if (isPure(data, labelColumnIndex)) {
-            TreeNode leaf = new TreeNode();
-            leaf.isLeaf = true;
-            leaf.prediction = data.get(0)[labelColumnIndex];
-            leaf.caseCount = data.size(); // Track the number of cases
-            return leaf;
+        public int getMaxDepth() {
+            return maxDepth;
+        }
+
+        public int getMinSamplesLeaf() {
+            return minSamplesLeaf;
         }
 
-        double bestGain = 0.0;
-        int bestIndex = -1;
-        double bestValue = Double.MIN_VALUE;
+        public double getMinGain() {
+            return minGain;
+        }
+    }
 
-        for (int i = 0; i < data.get(0).length; i++) {
-            if (i == labelColumnIndex) continue;
+    private static final class Split {
+        private final int feature;
+        private final double value;
+        private final double gain;
 
-            Set<Double> uniqueValues = getUniqueValues(data, i);
-            for (Double value : uniqueValues) {
-                double gain = informationGain(data, labelColumnIndex, i, value);
-                if (gain > bestGain) {
-                    bestGain = gain;
-                    bestIndex = i;
-                    bestValue = value;
+        private Split(int feature, double value, double gain) {
+            this.feature = feature;
+            this.value = value;
+            this.gain = gain;
+        }
+    }
+
+    /**
+     * The numeric columns of a store prepared for split search: their values, and either their rows in
+     * sorted order or their bins. It is built once and the trees of a forest share it.
+     */
+    static final class Columns {
+        private final ClassCodes labels;
+        private final int[] features; // Numeric columns other than the label column
+        private final double[][] values; // Values of each feature, indexed by row
+        private final int[][] sortedRows; // Per feature, the rows ascending by value with blanks last, or null if binned
+        private final byte[][] bins; // Per feature in binned mode, the bin of every row, otherwise null
+        private final double[][] binEdges; // Per feature in binned mode, the largest value of each bin
+
+        Columns(ColumnStore columnStore, int labelColumnIndex, boolean binned) {
+            labels = ClassCodes.of(columnStore, labelColumnIndex);
+            List<Integer> numericColumns = new ArrayList<>();
+            for (int i = 0; i < columnStore.getColumnCount(); i++) {
+                if (i != labelColumnIndex && columnStore.isNumeric(i)) {
+                    numericColumns.add(i);
+                }
+            }
+            features = numericColumns.stream().mapToInt(Integer::intValue).toArray();
+            values = new double[features.length][];
+            sortedRows = binned ? null : new int[features.length][];
+            bins = binned ? new byte[features.length][] : null;
+            binEdges = binned ? new double[features.length][] : null;
+            int rowCount = columnStore.getRowCount();
+            for (int f = 0; f < features.length; f++) {
+                values[f] = columnStore.getColumnValues(features[f]);
+                SortedColumnIndex index = columnStore.getSortedIndex(features[f]);
+                if (binned) {
+                    binEdges[f] = quantileEdges(index);
+                    bins[f] = binColumn(index, binEdges[f], rowCount);
+                } else {
+                    sortedRows[f] = sortedRows(index, values[f]);
                 }
             }
         }
 
-        if (bestGain == 0) {
-            TreeNode leaf = new TreeNode();
-            leaf.isLeaf = true;
-            leaf.prediction = mostCommonLabel(data, labelColumnIndex);
-            leaf.caseCount = data.size(); // Track the number of cases
-            return leaf;
+        ClassCodes getLabels() {
+            return labels;
         }
 
-        final int bestIndexFinal = bestIndex;
-        final double bestValueFinal = bestValue;
-        Function<String[], Boolean> question = dataRow -> {
-            try {
-                double value = Double.parseDouble(dataRow[bestIndexFinal]);
-                return value <= bestValueFinal;
-            } catch (NumberFormatException e) {
-                return false; // Handle the case where dataRow[bestIndex] is not a number
-            }
-        };
-        
-        Map<String, List<String[]>> partitions = partitionByQuestion(question, data);
+        /**
+         * Returns the columns used as features, in the order the features are numbered.
+         */
+        int[] getFeatures() {
+            return features;
+        }
+
+        double[] getValues(int feature) {
+            return values[feature];
+        }
 
-        TreeNode node = new TreeNode();
-        node.question = question;
-        node.questionText = "Is " + attributeNames.get(bestIndex) + " <= " + bestValue + "?";
-        node.left = buildTree(partitions.get(LEFT_CHILD), labelColumnIndex);
-        node.right = buildTree(partitions.get(RIGHT_CHILD), labelColumnIndex);
+        int getRowCount() {
+            return labels.getRowCount();
+        }
+    }
 
-        return node;
+    public static class TreeNode {
+        public String questionText;
+        public boolean isLeaf;
+        public TreeNode left; // Cases above the threshold or blank
+        public TreeNode right; // Cases at or below the threshold
+        public String prediction;
+        public int caseCount;
+        public int featureIndex = -1; // Column the question tests, -1 for a leaf
+        public double threshold;
+        public double impurityDecrease; // Gain of the split times the cases of the node
     }
 
-    private boolean isPure(List<String[]> data, int labelColumnIndex) {
-        String firstLabel = data.get(0)[labelColumnIndex];
-        for (String[] row : data) {
-            if (!row[labelColumnIndex].equals(firstLabel)) {
-                return false;
+    private TreeNode root;
+    private List<String> attributeNames;
+    private final ClassCodes labels;
+
+    public DecisionTree(ColumnStore columnStore, List<String> attributeNames, int labelColumnIndex) {
+        this(columnStore, attributeNames, labelColumnIndex, Limits.NONE, false, ForkJoinPool.commonPool(), () -> false, percentage -> { });
+    }
+
+    /**
+     * Builds a tree on the pool within the given limits, searching splits over quantile bins if binned is
+     * set. The progress receives the percentage of cases that have reached a leaf. Once cancelled returns
+     * true the remaining nodes become leaves at once, and the tree should be thrown away. The store must
+     * not change while this runs.
+     */
+    public DecisionTree(ColumnStore columnStore, List<String> attributeNames, int labelColumnIndex, Limits limits,
+                        boolean binned, ForkJoinPool pool, BooleanSupplier cancelled, IntConsumer progress) {
+        this(columnStore, attributeNames, new Columns(columnStore, labelColumnIndex, binned), null, Integer.MAX_VALUE, 0L,
+                limits, pool, cancelled, progress);
+    }
+
+    /**
+     * Builds a tree on prepared columns. The sample counts give how many times each row is drawn, or are
+     * null to use every row once, and each node picks its split among featuresPerSplit random features
+     * chosen from the seed, so the same arguments always give the same tree.
+     */
+    DecisionTree(ColumnStore columnStore, List<String> attributeNames, Columns columns, int[] sampleCounts,
+                 int featuresPerSplit, long seed, Limits limits, ForkJoinPool pool, BooleanSupplier cancelled,
+                 IntConsumer progress) {
+        this.attributeNames = attributeNames;
+        this.labels = columns.labels;
+        this.root = new Builder(columns, sampleCounts, featuresPerSplit, limits, cancelled, progress).build(pool, seed);
+    }
+
+    /**
+     * Returns the rows in the given order, or in row order if it is null, each repeated as often as it was
+     * drawn. The result is a new array, since the nodes partition it in place.
+     */
+    private static int[] sampleRows(int[] order, int[] sampleCounts, int rowCount) {
+        if (sampleCounts == null) {
+            if (order != null) {
+                return order.clone();
             }
+            int[] rows = new int[rowCount];
+            for (int row = 0; row < rowCount; row++) {
+                rows[row] = row;
+            }
+            return rows;
+        }
+        int size = 0;
+        for (int count : sampleCounts) {
+            size += count;
         }
-        return true;
+        int[] rows = new int[size];
+        int position = 0;
+        for (int i = 0; i < rowCount; i++) {
+            int row = order == null ? i : order[i];
+            for (int copy = 0; copy < sampleCounts[row]; copy++) {
+                rows[position++] = row;
+            }
+        }
+        return rows;
     }
 
-    private Set<Double> getUniqueValues(List<String[]> data, int index) {
-        Set<Double> uniqueValues = new HashSet<>();
-        for (String[] row : data) {
-            try {
-                uniqueValues.add(Double.parseDouble(row[index]));
-            } catch (NumberFormatException e) {
-                // Skip non-numeric values
+    /**
+     * Returns the rows of a column in the order of its sorted index, followed by its blank rows.
+     */
+    private static int[] sortedRows(SortedColumnIndex index, double[] values) {
+        int[] rows = new int[values.length];
+        int position = 0;
+        for (; position < index.size(); position++) {
+            rows[position] = index.getRow(position);
+        }
+        for (int row = 0; row < values.length; row++) {
+            if (Double.isNaN(values[row])) {
+                rows[position++] = row;
             }
         }
-        return uniqueValues;
+        return rows;
     }
 
-    private String mostCommonLabel(List<String[]> data, int labelColumnIndex) {
-        Map<String, Integer> labelCounts = new HashMap<>();
-        for (String[] row : data) {
-            String label = row[labelColumnIndex];
-            labelCounts.put(label, labelCounts.getOrDefault(label, 0) + 1);
+    /**
+     * Returns the largest value of each quantile bin of a column. A column with at most MAX_BINS distinct
+     * values gets a bin per value, so its splits are the exact ones.
+     */
+    private static double[] quantileEdges(SortedColumnIndex index) {
+        int size = index.size();
+        double[] edges = new double[MAX_BINS + 1];
+        int binCount = 0;
+        for (int position = 0; position < size && binCount <= MAX_BINS; position++) {
+            double value = index.getValue(position);
+            if (binCount == 0 || value != edges[binCount - 1]) {
+                edges[binCount++] = value;
+            }
         }
-        return labelCounts.entrySet().stream().max(Map.Entry.comparingByValue()).get().getKey();
+        if (binCount > MAX_BINS) {
+            binCount = 0;
+            for (int bin = 1; bin <= MAX_BINS; bin++) {
+                double edge = index.getValue((int) ((long) bin * size / MAX_BINS) - 1);
+                if (binCount == 0 || edge > edges[binCount - 1]) {
+                    edges[binCount++] = edge;
+                }
+            }
+        }
+        return Arrays.copyOf(edges, binCount);
     }
 
-    private double informationGain(List<String[]> data, int labelColumnIndex, int featureIndex, double value) {
-        double currentImpurity = gini(data, labelColumnIndex);
-        Map<String, List<String[]>> partitions = partitionByQuestion(dataRow -> {
-            try {
-                return Double.parseDouble(dataRow[featureIndex]) <= value;
-            } catch (NumberFormatException e) {
-                return false; // Handle non-numeric values gracefully
+    /**
+     * Returns the bin of every row of a column, with blank rows in the bin after the last edge.
+     */
+    private static byte[] binColumn(SortedColumnIndex index, double[] edges, int rowCount) {
+        byte[] column = new byte[rowCount];
+        Arrays.fill(column, (byte) edges.length);
+        int bin = 0;
+        for (int position = 0; position < index.size(); position++) {
+            double value = index.getValue(position);
+            while (value > edges[bin]) {
+                bin++;
             }
-        }, data);
-
-        double leftProbability = (double) partitions.get(LEFT_CHILD).size() / data.size();
-        double rightProbability = 1 - leftProbability;
+            column[index.getRow(position)] = (byte) bin;
+        }
+        return column;
+    }
 
-        double gain = currentImpurity;
-        gain -= leftProbability * gini(partitions.get(LEFT_CHILD), labelColumnIndex);
-        gain -= rightProbability * gini(partitions.get(RIGHT_CHILD), labelColumnIndex);
-        return gain;
+    private static Split better(Split best, Split candidate) {
+        return candidate != null && (best == null || candidate.gain > best.gain) ? candidate : best;
     }
 
-    private double gini(List<String[]> data, int labelColumnIndex) {
-        Map<String, Integer> labelCounts = new HashMap<>();
-        for (String[] row : data) {
-            String label = row[labelColumnIndex];
-            labelCounts.put(label, labelCounts.getOrDefault(label, 0) + 1);
-        }
+    /**
+     * Returns the drop in Gini impurity of a split, given the sum of the squared class counts of the
+     * parent and of each side: gini(n) = 1 - squares / n^2.
+     */
+    private static double giniGain(long parentSquares, int size, long leftSquares, int leftSize,
+                                   long rightSquares, int rightSize) {
+        double weighted = (double) leftSquares / leftSize + (double) rightSquares / rightSize;
+        return (weighted - (double) parentSquares / size) / size;
+    }
 
-        double impurity = 1.0;
-        for (int count : labelCounts.values()) {
-            double prob = (double) count / data.size();
-            impurity -= prob * prob;
+    private static long sumOfSquares(int[] counts) {
+        long sum = 0;
+        for (int count : counts) {
+            sum += (long) count * count;
         }
-        return impurity;
+        return sum;
     }
 
-    private Map<String, List<String[]>> partitionByQuestion(Function<String[], Boolean> question, List<String[]> data) {
-        Map<String, List<String[]>> partitions = new HashMap<>();
-        partitions.put(RIGHT_CHILD, new ArrayList<>());
-        partitions.put(LEFT_CHILD, new ArrayList<>());
-
-        for (String[] row : data) {
-            if (question.apply(row)) {
-                partitions.get(RIGHT_CHILD).add(row);
-            } else {
-                partitions.get(LEFT_CHILD).add(row);
+    /**
+     * Subtracts the child's histograms from the parent's in place and returns the parent's, which then
+     * hold the other child's counts.
+     */
+    private static int[][] subtract(int[][] parent, int[][] child) {
+        for (int f = 0; f < parent.length; f++) {
+            for (int i = 0; i < parent[f].length; i++) {
+                parent[f][i] -= child[f][i];
             }
         }
-        return partitions;
+        return parent;
     }
 
     public void printDecisionTree() {
@@ -184,5 +322,395 @@ public class DecisionTree {
 
     public TreeNode getRoot() {
         return root;
-    }     
+    }
+
+    /**
+     * Returns the tree flattened into arrays for fast prediction.
+     */
+    public CompiledTree compile() {
+        return CompiledTree.compile(root, labels);
+    }
+
+    /**
+     * The state of one build: the orders and scratch arrays that the nodes partition, which are only needed
+     * until the tree is built. The tree keeps no reference to it, so it is dropped when the constructor
+     * returns.
+     */
+    private final class Builder {
+        private final int[] features;
+        private final double[][] featureValues;
+        private final int[][] orders; // Per feature, the rows of every node ascending by value with blanks last
+        private final byte[][] bins;
+        private final double[][] binEdges;
+        private final int[] nodeRows; // The rows of every node in row order, for the nodes with no feature
+        private final int sampleSize;
+        private final int featuresPerSplit;
+        private final int[] allFeatures;
+        private final boolean[] goesRight;
+        private final int[] buffer; // Scratch space, used by each node at its own positions
+        private final Limits limits;
+        private final BooleanSupplier cancelled;
+        private final IntConsumer progress;
+        private final AtomicInteger settledCases = new AtomicInteger();
+
+        private Builder(Columns columns, int[] sampleCounts, int featuresPerSplit, Limits limits,
+                        BooleanSupplier cancelled, IntConsumer progress) {
+            this.limits = limits;
+            this.cancelled = cancelled;
+            this.progress = progress;
+            this.features = columns.features;
+            this.featureValues = columns.values;
+            this.bins = columns.bins;
+            this.binEdges = columns.binEdges;
+            this.featuresPerSplit = Math.max(1, Math.min(featuresPerSplit, features.length));
+            this.allFeatures = new int[features.length];
+            for (int f = 0; f < features.length; f++) {
+                allFeatures[f] = f;
+            }
+
+            int rowCount = columns.getRowCount();
+            nodeRows = sampleRows(null, sampleCounts, rowCount);
+            sampleSize = nodeRows.length;
+            orders = new int[columns.sortedRows == null ? 0 : features.length][];
+            for (int f = 0; f < orders.length; f++) {
+                orders[f] = sampleRows(columns.sortedRows[f], sampleCounts, rowCount);
+            }
+            goesRight = new boolean[rowCount];
+            buffer = new int[sampleSize];
+        }
+
+        private TreeNode build(ForkJoinPool pool, long seed) {
+            return pool.invoke(new BuildTask(0, sampleSize, 0, null, seed));
+        }
+
+        /**
+         * Builds the subtree of the node whose rows are at positions [begin, end) of every order. In binned
+         * mode the node's histograms are given, or null for the root. The seed picks the node's features when
+         * it may not use them all.
+         */
+        private TreeNode buildTree(int begin, int end, int depth, int[][] histograms, long seed) {
+            int size = end - begin;
+            int[] labelCounts = countLabels(begin, end);
+            int mostCommon = 0;
+            for (int code = 1; code < labelCounts.length; code++) {
+                if (labelCounts[code] > labelCounts[mostCommon]) {
+                    mostCommon = code;
+                }
+            }
+            if (labelCounts[mostCommon] == size || depth >= limits.getMaxDepth()
+                    || size < 2 * limits.getMinSamplesLeaf() || cancelled.getAsBoolean()) {
+                return leaf(labels.getLabel(mostCommon), size);
+            }
+
+            long leftSeed = seed;
+            long rightSeed = seed;
+            int[] candidates = allFeatures;
+            if (featuresPerSplit < features.length) {
+                SplittableRandom random = new SplittableRandom(seed);
+                candidates = chooseFeatures(random);
+                leftSeed = random.nextLong();
+                rightSeed = random.nextLong();
+            }
+
+            if (bins != null && histograms == null) {
+                histograms = buildHistograms(begin, end);
+            }
+            Split best = histograms == null
+                    ? findBestSplit(begin, end, labelCounts, candidates)
+                    : findBestBinnedSplit(histograms, labelCounts, size, candidates);
+            if (best == null) {
+                return leaf(labels.getLabel(mostCommon), size);
+            }
+
+            int middle = partition(begin, end, featureValues[best.feature], best.value);
+            int[][] leftHistograms = null;
+            int[][] rightHistograms = null;
+            if (histograms != null) {
+                // Only the smaller child counts its rows; the parent's histograms become the larger child's
+                if (middle - begin <= end - middle) {
+                    rightHistograms = buildHistograms(begin, middle);
+                    leftHistograms = subtract(histograms, rightHistograms);
+                } else {
+                    leftHistograms = buildHistograms(middle, end);
+                    rightHistograms = subtract(histograms, leftHistograms);
+                }
+            }
+
+            TreeNode node = new TreeNode();
+            node.questionText = "Is " + attributeNames.get(features[best.feature]) + " <= " + best.value + "?";
+            node.featureIndex = features[best.feature];
+            node.threshold = best.value;
+            node.impurityDecrease = best.gain * size;
+            if (end - middle >= MIN_FORK_ROWS && middle - begin >= MIN_FORK_ROWS) {
+                BuildTask leftTask = new BuildTask(middle, end, depth + 1, leftHistograms, leftSeed);
+                leftTask.fork();
+                node.right = buildTree(begin, middle, depth + 1, rightHistograms, rightSeed);
+                node.left = leftTask.join();
+            } else {
+                node.left = buildTree(middle, end, depth + 1, leftHistograms, leftSeed);
+                node.right = buildTree(begin, middle, depth + 1, rightHistograms, rightSeed);
+            }
+
+            return node;
+        }
+
+        /**
+         * Returns featuresPerSplit distinct features drawn at random, in ascending order.
+         */
+        private int[] chooseFeatures(SplittableRandom random) {
+            int[] shuffled = allFeatures.clone();
+            for (int i = 0; i < featuresPerSplit; i++) {
+                int j = i + random.nextInt(shuffled.length - i);
+                int swap = shuffled[i];
+                shuffled[i] = shuffled[j];
+                shuffled[j] = swap;
+            }
+            int[] candidates = Arrays.copyOf(shuffled, featuresPerSplit);
+            Arrays.sort(candidates);
+            return candidates;
+        }
+
+        /**
+         * Returns the split of the node on one of the candidate features with the highest gain, or null if no
+         * split passes the limits. Ties go to the first column and the lowest threshold, whether or not the
+         * columns were searched in parallel.
+         */
+        private Split findBestSplit(int begin, int end, int[] labelCounts, int[] candidates) {
+            Split best = null;
+            if (candidates.length > 1 && (long) (end - begin) * candidates.length >= PARALLEL_SPLIT_CELLS) {
+                List<ForkJoinTask<Split>> tasks = new ArrayList<>(candidates.length);
+                for (int feature : candidates) {
+                    tasks.add(ForkJoinTask.adapt(() -> findBestSplitOn(feature, begin, end, labelCounts)));
+                }
+                ForkJoinTask.invokeAll(tasks);
+                for (ForkJoinTask<Split> task : tasks) {
+                    best = better(best, task.join());
+                }
+            } else {
+                for (int feature : candidates) {
+                    best = better(best, findBestSplitOn(feature, begin, end, labelCounts));
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Returns the best split of the node on one feature, sweeping the thresholds upwards and moving each
+         * row from the left side to the right side, or null if none passes the limits.
+         */
+        private Split findBestSplitOn(int feature, int begin, int end, int[] labelCounts) {
+            int size = end - begin;
+            int minSamplesLeaf = limits.getMinSamplesLeaf();
+            int[] order = orders[feature];
+            double[] values = featureValues[feature];
+            int[] rightCounts = new int[labelCounts.length];
+            long parentSquares = sumOfSquares(labelCounts);
+            long rightSquares = 0;
+            long leftSquares = parentSquares;
+
+            Split best = null;
+            double bestGain = limits.getMinGain();
+            for (int i = begin; i < end; i++) {
+                int row = order[i];
+                double value = values[row];
+                if (Double.isNaN(value)) {
+                    break; // Blank values stay on the left whatever the threshold
+                }
+                int code = labels.getCode(row);
+                int rightCount = ++rightCounts[code];
+                int leftCount = labelCounts[code] - rightCount;
+                rightSquares += 2L * rightCount - 1;
+                leftSquares -= 2L * leftCount + 1;
+
+                if (i + 1 < end && values[order[i + 1]] == value) {
+                    continue; // Rows with the same value fall on the same side
+                }
+                int rightSize = i - begin + 1;
+                int leftSize = size - rightSize;
+                if (leftSize < minSamplesLeaf) {
+                    break;
+                }
+                if (rightSize < minSamplesLeaf) {
+                    continue;
+                }
+                double gain = giniGain(parentSquares, size, leftSquares, leftSize, rightSquares, rightSize);
+                if (gain > bestGain) {
+                    bestGain = gain;
+                    best = new Split(feature, value, gain);
+                }
+            }
+            return best;
+        }
+
+        private TreeNode leaf(String prediction, int caseCount) {
+            TreeNode leaf = new TreeNode();
+            leaf.isLeaf = true;
+            leaf.prediction = prediction;
+            leaf.caseCount = caseCount; // Track the number of cases
+            progress.accept((int) (settledCases.addAndGet(caseCount) * 100L / Math.max(1, sampleSize)));
+            return leaf;
+        }
+
+        /**
+         * Returns the best split of the node over the bin edges of the candidate features, or null if none
+         * passes the limits. Ties go to the first column and the lowest edge, as in the exact search.
+         */
+        private Split findBestBinnedSplit(int[][] histograms, int[] labelCounts, int size, int[] candidates) {
+            int classCount = labelCounts.length;
+            int minSamplesLeaf = limits.getMinSamplesLeaf();
+            long parentSquares = sumOfSquares(labelCounts);
+            int[] rightCounts = new int[classCount];
+
+            Split best = null;
+            double bestGain = limits.getMinGain();
+            for (int f : candidates) {
+                int[] histogram = histograms[f];
+                double[] edges = binEdges[f];
+                Arrays.fill(rightCounts, 0);
+                int rightSize = 0;
+                // The blank bin comes after the last edge, so it always stays on the left
+                for (int bin = 0; bin < edges.length; bin++) {
+                    int binSize = 0;
+                    for (int code = 0; code < classCount; code++) {
+                        int count = histogram[bin * classCount + code];
+                        rightCounts[code] += count;
+                        binSize += count;
+                    }
+                    if (binSize == 0) {
+                        continue;
+                    }
+                    rightSize += binSize;
+                    int leftSize = size - rightSize;
+                    if (leftSize < minSamplesLeaf) {
+                        break;
+                    }
+                    if (rightSize < minSamplesLeaf) {
+                        continue;
+                    }
+                    long rightSquares = sumOfSquares(rightCounts);
+                    long leftSquares = 0;
+                    for (int code = 0; code < classCount; code++) {
+                        long leftCount = labelCounts[code] - rightCounts[code];
+                        leftSquares += leftCount * leftCount;
+                    }
+                    double gain = giniGain(parentSquares, size, leftSquares, leftSize, rightSquares, rightSize);
+                    if (gain > bestGain) {
+                        bestGain = gain;
+                        best = new Split(f, edges[bin], gain);
+                    }
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Counts the rows at positions [begin, end) by bin and class, one histogram per feature indexed by
+         * bin * classCount + code.
+         */
+        private int[][] buildHistograms(int begin, int end) {
+            int[][] histograms = new int[features.length][];
+            if (features.length > 1 && (long) (end - begin) * features.length >= PARALLEL_SPLIT_CELLS) {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(features.length);
+                for (int f = 0; f < features.length; f++) {
+                    final int feature = f;
+                    tasks.add(ForkJoinTask.adapt(() -> histograms[feature] = buildHistogram(feature, begin, end)));
+                }
+                ForkJoinTask.invokeAll(tasks);
+            } else {
+                for (int f = 0; f < features.length; f++) {
+                    histograms[f] = buildHistogram(f, begin, end);
+                }
+            }
+            return histograms;
+        }
+
+        private int[] buildHistogram(int feature, int begin, int end) {
+            int classCount = labels.getClassCount();
+            byte[] column = bins[feature];
+            int[] histogram = new int[(binEdges[feature].length + 1) * classCount];
+            for (int i = begin; i < end; i++) {
+                int row = nodeRows[i];
+                histogram[(column[row] & 0xFF) * classCount + labels.getCode(row)]++;
+            }
+            return histogram;
+        }
+
+        /**
+         * Stably moves the rows at or below the threshold to the front of the node in every order, and
+         * returns the position where the rows above it or blank begin.
+         */
+        private int partition(int begin, int end, double[] values, double threshold) {
+            int rightSize = 0;
+            for (int i = begin; i < end; i++) {
+                int row = nodeRows[i];
+                // Blank values compare false, so they go to the left
+                goesRight[row] = values[row] <= threshold;
+                if (goesRight[row]) {
+                    rightSize++;
+                }
+            }
+            if (orders.length > 1 && (long) (end - begin) * orders.length >= PARALLEL_SPLIT_CELLS) {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(orders.length);
+                for (int[] order : orders) {
+                    tasks.add(ForkJoinTask.adapt(() -> partitionOrder(order, begin, end, new int[end - begin], -begin)));
+                }
+                ForkJoinTask.invokeAll(tasks);
+            } else {
+                for (int[] order : orders) {
+                    partitionOrder(order, begin, end, buffer, 0);
+                }
+            }
+            partitionOrder(nodeRows, begin, end, buffer, 0);
+            return begin + rightSize;
+        }
+
+        /**
+         * Partitions one order, keeping the left rows at positions [begin, end) of the scratch array shifted
+         * by the offset.
+         */
+        private void partitionOrder(int[] order, int begin, int end, int[] scratch, int offset) {
+            int position = begin;
+            int left = begin;
+            for (int i = begin; i < end; i++) {
+                int row = order[i];
+                if (goesRight[row]) {
+                    order[position++] = row;
+                } else {
+                    scratch[offset + left++] = row;
+                }
+            }
+            System.arraycopy(scratch, offset + begin, order, position, left - begin);
+        }
+
+        private int[] countLabels(int begin, int end) {
+            int[] labelCounts = new int[labels.getClassCount()];
+            for (int i = begin; i < end; i++) {
+                labelCounts[labels.getCode(nodeRows[i])]++;
+            }
+            return labelCounts;
+        }
+
+        private final class BuildTask extends RecursiveTask<TreeNode> {
+            private static final long serialVersionUID = 1L;
+
+            private final int begin;
+            private final int end;
+            private final int depth;
+            private final int[][] histograms;
+            private final long seed;
+
+            private BuildTask(int begin, int end, int depth, int[][] histograms, long seed) {
+                this.begin = begin;
+                this.end = end;
+                this.depth = depth;
+                this.histograms = histograms;
+                this.seed = seed;
+            }
+
+            @Override
+            protected TreeNode compute() {
+                return buildTree(begin, end, depth, histograms, seed);
+            }
+        }
+    }
 }
@@ -1,13 +1,13 @@
 package src;
 
 import java.util.List;
-import java.util.Map;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Random;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
 
+import src.data.ClassCodes;
+import src.data.ColumnStore;
+
 /**
  * The GradientDescentOptimizer class provides functionality to optimize the coefficients
  * for a weighted sum of features using the gradient descent algorithm with optional adaptive learning rate.
@@ -55,12 +55,20 @@ public class GradientDescentOptimizer {
     public void optimizeCoefficientsUsingGradientDescent(List<Integer> originalColumnIndices, List<Double> coefficients, JPanel panel, String trigFunction, String initializationType, double flatValue, double minRange, double maxRange, double coeffMin, double coeffMax) {
         initializeCoefficients(coefficients, initializationType, flatValue, minRange, maxRange);
 
+        // Read the attributes and class labels from the column store once for the whole optimization
+        ColumnStore columnStore = csvViewer.tableModel.getColumnStore();
+        double[][] columnValues = new double[originalColumnIndices.size()][];
+        for (int j = 0; j < originalColumnIndices.size(); j++) {
+            columnValues[j] = columnStore.getColumnValues(originalColumnIndices.get(j));
+        }
+        ClassCodes classLabels = ClassCodes.of(columnStore, csvViewer.getClassColumnIndex());
+
         int n = coefficients.size();
         double[] gradients = new double[n];
         double previousScore = Double.NEGATIVE_INFINITY;
 
         for (int iteration = 0; iteration < maxIterations; iteration++) {
-            double currentScore = evaluateClassSeparation(originalColumnIndices, coefficients.stream().mapToDouble(Double::doubleValue).toArray(), trigFunction);
+            double currentScore = evaluateClassSeparation(columnValues, classLabels, coefficients.stream().mapToDouble(Double::doubleValue).toArray(), trigFunction);
 
             if (useAdaptiveLearningRate) {
                 // Adapt learning rate based on score improvement
@@ -76,7 +84,7 @@ public class GradientDescentOptimizer {
 
             for (int i = 0; i < n; i++) {
                 coefficients.set(i, coefficients.get(i) + tolerance);
-                double newScore = evaluateClassSeparation(originalColumnIndices, coefficients.stream().mapToDouble(Double::doubleValue).toArray(), trigFunction);
+                double newScore = evaluateClassSeparation(columnValues, classLabels, coefficients.stream().mapToDouble(Double::doubleValue).toArray(), trigFunction);
                 gradients[i] = (newScore - currentScore) / tolerance;
                 coefficients.set(i, coefficients.get(i) - tolerance);
             }
@@ -131,43 +139,45 @@ public class GradientDescentOptimizer {
      * Evaluates the class separability using the specified coefficients and trigonometric function.
      * The separability is measured as the ratio of between-class variance to within-class variance.
      *
-     * @param originalColumnIndices the list of indices corresponding to the original columns in the dataset.
+     * @param columnValues the values of the original columns in the dataset, one array per column.
+     * @param classLabels the class code of each row.
      * @param coefficients the array of coefficients for the weighted sum.
      * @param trigFunction the trigonometric function to apply to the weighted sum.
      * @return the class separability score.
      */
-    private double evaluateClassSeparation(List<Integer> originalColumnIndices, double[] coefficients, String trigFunction) {
-        Map<String, List<Double>> classSums = new HashMap<>();
-        int classColumnIndex = csvViewer.getClassColumnIndex();
-
-        for (int row = 0; row < csvViewer.tableModel.getRowCount(); row++) {
+    private double evaluateClassSeparation(double[][] columnValues, ClassCodes classLabels, double[] coefficients, String trigFunction) {
+        int totalSampleCount = classLabels.getRowCount();
+        int classCount = classLabels.getClassCount();
+        double[] sums = new double[totalSampleCount];
+        int[] classSampleCounts = new int[classCount];
+        double[] classTotals = new double[classCount];
+        double overallTotal = 0.0;
+
+        for (int row = 0; row < totalSampleCount; row++) {
             double sum = 0.0;
-            for (int j = 0; j < originalColumnIndices.size(); j++) {
-                double value = Double.parseDouble(csvViewer.tableModel.getValueAt(row, originalColumnIndices.get(j)).toString());
-                sum += coefficients[j] * value;
+            for (int j = 0; j < columnValues.length; j++) {
+                sum += coefficients[j] * columnValues[j][row];
             }
             sum = applyTrigFunction(sum, trigFunction);
-            String className = (String) csvViewer.tableModel.getValueAt(row, classColumnIndex);
-            classSums.computeIfAbsent(className, k -> new ArrayList<>()).add(sum);
+            sums[row] = sum;
+            int classCode = classLabels.getCode(row);
+            classSampleCounts[classCode]++;
+            classTotals[classCode] += sum;
+            overallTotal += sum;
         }
 
-        double overallMean = classSums.values().stream()
-                .flatMapToDouble(classList -> classList.stream().mapToDouble(Double::doubleValue))
-                .average().orElse(0.0);
-
+        double overallMean = totalSampleCount == 0 ? 0.0 : overallTotal / totalSampleCount;
+        double[] classMeans = new double[classCount];
         double betweenClassVariance = 0.0;
-        double withinClassVariance = 0.0;
-        int totalSampleCount = csvViewer.tableModel.getRowCount();
-
-        for (Map.Entry<String, List<Double>> entry : classSums.entrySet()) {
-            List<Double> classValues = entry.getValue();
-            int classSampleCount = classValues.size();
-            double classMean = classValues.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-
-            betweenClassVariance += classSampleCount * Math.pow(classMean - overallMean, 2);
+        for (int classCode = 0; classCode < classCount; classCode++) {
+            if (classSampleCounts[classCode] == 0) continue;
+            classMeans[classCode] = classTotals[classCode] / classSampleCounts[classCode];
+            betweenClassVariance += classSampleCounts[classCode] * Math.pow(classMeans[classCode] - overallMean, 2);
+        }
 
-            double classVariance = classValues.stream().mapToDouble(v -> Math.pow(v - classMean, 2)).sum();
-            withinClassVariance += classVariance;
+        double withinClassVariance = 0.0;
+        for (int row = 0; row < totalSampleCount; row++) {
+            withinClassVariance += Math.pow(sums[row] - classMeans[classLabels.getCode(row)], 2);
         }
 
         betweenClassVariance /= totalSampleCount;
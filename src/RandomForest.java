@@ -0,0 +1,205 @@
+package src;
+
+import src.data.ClassCodes;
+import src.data.ColumnStore;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * The RandomForest class trains a bagged ensemble of DecisionTrees. Every tree learns from a bootstrap
+ * sample of the rows and picks each split among a random subset of about the square root of the number
+ * of features. The trees share the sorted rows or bins of the columns, which are prepared once, and are
+ * built in parallel on the pool.
+ *
+ * The rows a tree did not draw are its out-of-bag rows. Their votes give an estimate of the accuracy
+ * without a held-out set. Feature importance is the impurity decrease of every split on a feature summed
+ * over all trees and scaled to add up to 1. The seed fixes the samples and feature subsets, so the same
+ * data and seed always give the same forest.
+ */
+public class RandomForest {
+
+    private static final long SEED_STEP = 0x9E3779B97F4A7C15L;
+
+    private final List<DecisionTree> trees;
+    private final List<CompiledTree> compiledTrees;
+    private final List<String> classLabels;
+    private final double outOfBagAccuracy;
+    private final double[] featureImportance;
+
+    /**
+     * Trains the forest on the pool. The progress receives the percentage of trees built. Once cancelled
+     * returns true the remaining trees are cut short, and the forest should be thrown away. The store must
+     * not change while this runs.
+     */
+    public RandomForest(ColumnStore columnStore, List<String> attributeNames, int labelColumnIndex, int treeCount,
+                        DecisionTree.Limits limits, boolean binned, long seed, ForkJoinPool pool,
+                        BooleanSupplier cancelled, IntConsumer progress) {
+        DecisionTree.Columns columns = new DecisionTree.Columns(columnStore, labelColumnIndex, binned);
+        ClassCodes labels = columns.getLabels();
+        int rowCount = columns.getRowCount();
+        int classCount = labels.getClassCount();
+        int[] features = columns.getFeatures();
+        int featuresPerSplit = Math.max(1, (int) Math.round(Math.sqrt(features.length)));
+
+        double[][] valuesByColumn = new double[columnStore.getColumnCount()][];
+        for (int f = 0; f < features.length; f++) {
+            valuesByColumn[features[f]] = columns.getValues(f);
+        }
+
+        int[] votes = new int[rowCount * classCount]; // Out-of-bag votes, indexed by row * classCount + code
+        AtomicInteger builtTrees = new AtomicInteger();
+        CompiledTree[] compiled = new CompiledTree[treeCount];
+        List<ForkJoinTask<DecisionTree>> tasks = new ArrayList<>(treeCount);
+        for (int t = 0; t < treeCount; t++) {
+            int treeIndex = t;
+            long treeSeed = seed + (t + 1) * SEED_STEP;
+            tasks.add(pool.submit(() -> {
+                SplittableRandom random = new SplittableRandom(treeSeed);
+                int[] sampleCounts = new int[rowCount];
+                for (int i = 0; i < rowCount; i++) {
+                    sampleCounts[random.nextInt(rowCount)]++;
+                }
+                DecisionTree tree = new DecisionTree(columnStore, attributeNames, columns, sampleCounts,
+                        featuresPerSplit, random.nextLong(), limits, pool, cancelled, percentage -> { });
+                compiled[treeIndex] = tree.compile();
+                addOutOfBagVotes(compiled[treeIndex], valuesByColumn, sampleCounts, votes, classCount);
+                progress.accept(builtTrees.incrementAndGet() * 100 / treeCount);
+                return tree;
+            }));
+        }
+
+        List<DecisionTree> builtList = new ArrayList<>(treeCount);
+        for (ForkJoinTask<DecisionTree> task : tasks) {
+            builtList.add(task.join());
+        }
+        trees = Collections.unmodifiableList(builtList);
+        compiledTrees = List.of(compiled);
+        classLabels = treeCount == 0 ? Collections.emptyList() : compiled[0].getClassLabels();
+        outOfBagAccuracy = outOfBagAccuracy(votes, labels, classCount);
+        featureImportance = featureImportance(builtList, columnStore.getColumnCount());
+    }
+
+    /**
+     * Adds the tree's votes for the rows it did not draw. Trees finish at different times, so the shared
+     * counts are updated under a lock, once per tree.
+     */
+    private static void addOutOfBagVotes(CompiledTree tree, double[][] valuesByColumn, int[] sampleCounts, int[] votes, int classCount) {
+        int[] predictions = new int[sampleCounts.length];
+        for (int row = 0; row < sampleCounts.length; row++) {
+            predictions[row] = sampleCounts[row] == 0 ? tree.predict(valuesByColumn, row) : -1;
+        }
+        synchronized (votes) {
+            for (int row = 0; row < predictions.length; row++) {
+                if (predictions[row] >= 0) {
+                    votes[row * classCount + predictions[row]]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the share of the rows with out-of-bag votes whose most voted class is their own, or NaN if
+     * every tree drew every row.
+     */
+    private static double outOfBagAccuracy(int[] votes, ClassCodes labels, int classCount) {
+        int voted = 0;
+        int correct = 0;
+        for (int row = 0; row < labels.getRowCount(); row++) {
+            int mostVoted = mostVoted(votes, row * classCount, classCount);
+            if (votes[row * classCount + mostVoted] > 0) {
+                voted++;
+                if (mostVoted == labels.getCode(row)) {
+                    correct++;
+                }
+            }
+        }
+        return voted == 0 ? Double.NaN : (double) correct / voted;
+    }
+
+    /**
+     * Returns the class with the most votes among classCount counts starting at the offset, the lowest
+     * code on a tie.
+     */
+    private static int mostVoted(int[] votes, int offset, int classCount) {
+        int mostVoted = 0;
+        for (int code = 1; code < classCount; code++) {
+            if (votes[offset + code] > votes[offset + mostVoted]) {
+                mostVoted = code;
+            }
+        }
+        return mostVoted;
+    }
+
+    private static double[] featureImportance(List<DecisionTree> trees, int columnCount) {
+        double[] importance = new double[columnCount];
+        Deque<DecisionTree.TreeNode> pending = new ArrayDeque<>();
+        for (DecisionTree tree : trees) {
+            pending.push(tree.getRoot());
+            while (!pending.isEmpty()) {
+                DecisionTree.TreeNode node = pending.pop();
+                if (!node.isLeaf) {
+                    importance[node.featureIndex] += node.impurityDecrease;
+                    pending.push(node.left);
+                    pending.push(node.right);
+                }
+            }
+        }
+        double total = 0;
+        for (double value : importance) {
+            total += value;
+        }
+        if (total > 0) {
+            for (int col = 0; col < columnCount; col++) {
+                importance[col] /= total;
+            }
+        }
+        return importance;
+    }
+
+    public List<DecisionTree> getTrees() {
+        return trees;
+    }
+
+    /**
+     * Returns the class labels, indexed by the codes the forest predicts.
+     */
+    public List<String> getClassLabels() {
+        return classLabels;
+    }
+
+    /**
+     * Returns the class code most trees predict for one case, given its values indexed by column.
+     */
+    public int predict(double[] values) {
+        int[] votes = new int[classLabels.size()];
+        for (CompiledTree tree : compiledTrees) {
+            votes[tree.predict(values)]++;
+        }
+        return mostVoted(votes, 0, votes.length);
+    }
+
+    /**
+     * Returns the share of the rows predicted correctly by the trees that did not train on them, or NaN if
+     * there are no such rows.
+     */
+    public double getOutOfBagAccuracy() {
+        return outOfBagAccuracy;
+    }
+
+    /**
+     * Returns the importance of every column, indexed by column; columns that are not features get 0.
+     */
+    public double[] getFeatureImportance() {
+        return featureImportance.clone();
+    }
+}
@@ -0,0 +1,268 @@
+package src;
+
+import src.data.ColumnStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * The RuleProgram class is an ordered list of classification rules compiled into parallel arrays, so that
+ * testing them is a series of comparisons over primitive columns instead of text parsed for every cell.
+ * Each rule is a sequence of clauses joined by AND or OR from left to right, and each clause bounds one
+ * column by one or two relations. A row is predicted by the first rule that matches it.
+ *
+ * Rules are evaluated one at a time over all rows that no earlier rule matched, one condition per pass,
+ * and the rows they match drop out of the later passes. Blank cells are NaN and so fail every relation but
+ * "!=".
+ */
+public final class RuleProgram {
+
+    private static final int ROWS_PER_TASK = 1 << 16;
+
+    static final int LESS = 0;
+    static final int LESS_EQUAL = 1;
+    static final int GREATER = 2;
+    static final int GREATER_EQUAL = 3;
+    static final int EQUAL = 4;
+    static final int NOT_EQUAL = 5;
+    static final int ALWAYS = 6;
+    static final int NEVER = 7;
+
+    static final int FIRST = 0;
+    static final int AND = 1;
+    static final int OR = 2;
+    static final int IGNORED = 3;
+
+    private final int[] ruleStarts; // First clause of every rule, with the clause count appended
+    private final int[] ruleClassCodes;
+    private final int[] connectives; // How each clause joins the clauses before it in its rule
+    private final int[] columns;
+    private final int[] operators1;
+    private final double[] bounds1;
+    private final int[] operators2;
+    private final double[] bounds2;
+
+    /**
+     * One clause as written in the rule tester: "value1 relation1 attribute relation2 value2", where the
+     * second relation is skipped when value2 is empty.
+     */
+    public static final class Clause {
+        private final int connective;
+        private final int column;
+        private final int operator1;
+        private final double bound1;
+        private final int operator2;
+        private final double bound2;
+
+        /**
+         * Parses a clause. The connective is "AND" or "OR"; it is ignored for the first clause of a rule and
+         * any other text leaves the match of the clauses before it unchanged.
+         *
+         * @throws NumberFormatException if value1, or value2 when it is not empty, is not a number
+         */
+        public Clause(String connective, int column, String relation1, String value1, String relation2, String value2) {
+            this.connective = "AND".equals(connective) ? AND : "OR".equals(connective) ? OR : IGNORED;
+            this.column = column;
+            // The first value is on the left of the attribute, so its relation is read mirrored
+            operator1 = mirror(operatorOf(relation1));
+            bound1 = Double.parseDouble(value1);
+            operator2 = value2.isEmpty() ? ALWAYS : operatorOf(relation2);
+            bound2 = value2.isEmpty() ? 0 : Double.parseDouble(value2);
+        }
+    }
+
+    /**
+     * Compiles the rules in order. Rule i predicts classCodes[i] and consists of rules.get(i); a rule with no
+     * clauses matches every row.
+     */
+    public RuleProgram(List<List<Clause>> rules, int[] classCodes) {
+        int clauseCount = 0;
+        for (List<Clause> rule : rules) {
+            clauseCount += rule.size();
+        }
+        ruleStarts = new int[rules.size() + 1];
+        ruleClassCodes = classCodes.clone();
+        connectives = new int[clauseCount];
+        columns = new int[clauseCount];
+        operators1 = new int[clauseCount];
+        bounds1 = new double[clauseCount];
+        operators2 = new int[clauseCount];
+        bounds2 = new double[clauseCount];
+
+        int index = 0;
+        for (int r = 0; r < rules.size(); r++) {
+            ruleStarts[r] = index;
+            for (Clause clause : rules.get(r)) {
+                connectives[index] = index == ruleStarts[r] ? FIRST : clause.connective;
+                columns[index] = clause.column;
+                operators1[index] = clause.operator1;
+                bounds1[index] = clause.bound1;
+                operators2[index] = clause.operator2;
+                bounds2[index] = clause.bound2;
+                index++;
+            }
+        }
+        ruleStarts[rules.size()] = index;
+    }
+
+    private static int operatorOf(String relation) {
+        switch (relation) {
+            case "<":
+                return LESS;
+            case "<=":
+                return LESS_EQUAL;
+            case ">":
+                return GREATER;
+            case ">=":
+                return GREATER_EQUAL;
+            case "==":
+                return EQUAL;
+            case "!=":
+                return NOT_EQUAL;
+            default:
+                return NEVER;
+        }
+    }
+
+    private static int mirror(int operator) {
+        switch (operator) {
+            case LESS:
+                return GREATER;
+            case LESS_EQUAL:
+                return GREATER_EQUAL;
+            case GREATER:
+                return LESS;
+            case GREATER_EQUAL:
+                return LESS_EQUAL;
+            default:
+                return operator;
+        }
+    }
+
+    public int getRuleCount() {
+        return ruleClassCodes.length;
+    }
+
+    /**
+     * Returns, for every row of the store, the class code of the first rule that matches it, or -1 if none
+     * does. The rows are tested in slices on the pool.
+     */
+    public int[] predict(ColumnStore columnStore, ForkJoinPool pool) {
+        int rowCount = columnStore.getRowCount();
+        double[][] values = new double[columnStore.getColumnCount()][];
+        for (int column : columns) {
+            if (values[column] == null) {
+                values[column] = columnStore.getColumnValues(column);
+            }
+        }
+
+        int[] codes = new int[rowCount];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int from = 0; from < rowCount; from += ROWS_PER_TASK) {
+            int sliceFrom = from;
+            int sliceTo = Math.min(rowCount, from + ROWS_PER_TASK);
+            tasks.add(pool.submit(() -> predictSlice(values, sliceFrom, sliceTo, codes)));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        return codes;
+    }
+
+    private void predictSlice(double[][] values, int from, int to, int[] codes) {
+        int[] pending = new int[to - from]; // Rows no rule has matched yet
+        int pendingCount = pending.length;
+        for (int i = 0; i < pendingCount; i++) {
+            pending[i] = from + i;
+            codes[from + i] = -1;
+        }
+        boolean[] matches = new boolean[pending.length];
+        boolean[] hits = new boolean[pending.length];
+
+        for (int r = 0; r < ruleClassCodes.length && pendingCount > 0; r++) {
+            if (ruleStarts[r] == ruleStarts[r + 1]) {
+                for (int i = 0; i < pendingCount; i++) {
+                    codes[pending[i]] = ruleClassCodes[r];
+                }
+                return;
+            }
+            for (int c = ruleStarts[r]; c < ruleStarts[r + 1]; c++) {
+                if (connectives[c] == IGNORED) {
+                    continue;
+                }
+                boolean[] target = connectives[c] == FIRST ? matches : hits;
+                compare(operators1[c], bounds1[c], values[columns[c]], pending, pendingCount, target, false);
+                compare(operators2[c], bounds2[c], values[columns[c]], pending, pendingCount, target, true);
+                if (connectives[c] == AND) {
+                    for (int i = 0; i < pendingCount; i++) {
+                        matches[i] &= hits[i];
+                    }
+                } else if (connectives[c] == OR) {
+                    for (int i = 0; i < pendingCount; i++) {
+                        matches[i] |= hits[i];
+                    }
+                }
+            }
+
+            int kept = 0;
+            for (int i = 0; i < pendingCount; i++) {
+                if (matches[i]) {
+                    codes[pending[i]] = ruleClassCodes[r];
+                } else {
+                    pending[kept++] = pending[i];
+                }
+            }
+            pendingCount = kept;
+        }
+    }
+
+    /**
+     * Tests one relation on the given rows, storing the results, or with and set, combining them with AND
+     * into the results already there.
+     */
+    private static void compare(int operator, double bound, double[] values, int[] rows, int count, boolean[] results, boolean and) {
+        switch (operator) {
+            case LESS:
+                for (int i = 0; i < count; i++) {
+                    results[i] = (!and || results[i]) && values[rows[i]] < bound;
+                }
+                break;
+            case LESS_EQUAL:
+                for (int i = 0; i < count; i++) {
+                    results[i] = (!and || results[i]) && values[rows[i]] <= bound;
+                }
+                break;
+            case GREATER:
+                for (int i = 0; i < count; i++) {
+                    results[i] = (!and || results[i]) && values[rows[i]] > bound;
+                }
+                break;
+            case GREATER_EQUAL:
+                for (int i = 0; i < count; i++) {
+                    results[i] = (!and || results[i]) && values[rows[i]] >= bound;
+                }
+                break;
+            case EQUAL:
+                for (int i = 0; i < count; i++) {
+                    results[i] = (!and || results[i]) && values[rows[i]] == bound;
+                }
+                break;
+            case NOT_EQUAL:
+                for (int i = 0; i < count; i++) {
+                    results[i] = (!and || results[i]) && values[rows[i]] != bound;
+                }
+                break;
+            case ALWAYS:
+                if (!and) {
+                    Arrays.fill(results, 0, count, true);
+                }
+                break;
+            default:
+                Arrays.fill(results, 0, count, false);
+                break;
+        }
+    }
+}
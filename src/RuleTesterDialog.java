@@ -3,22 +3,25 @@ package src;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableModel;
+import src.data.ClassCodes;
+import src.table.ReorderableTableModel;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class RuleTesterDialog extends JDialog {
 
     private static final String RULES_FILE = "rules.ser";
-    private final DefaultTableModel tableModel;
+    private final ReorderableTableModel tableModel;
     private final JPanel rulesPanel;
     private final List<RulePanel> rulePanels = new ArrayList<>();
     private String[] columnNames;
 
-    public RuleTesterDialog(JFrame parent, DefaultTableModel tableModel) {
+    public RuleTesterDialog(JFrame parent, ReorderableTableModel tableModel) {
         super(parent, "Rule Tester", false);  // Changed to non-modal dialog
         this.tableModel = tableModel;
         columnNames = getColumnNames();
@@ -85,67 +88,30 @@ public class RuleTesterDialog extends JDialog {
     private void testRule() {
         filterContainedRules();  // Filter out redundant rules first
 
-        Map<String, Map<String, Integer>> confusionMatrix = new HashMap<>();
+        ClassCodes classCodes = getClassCodes();
         String[] uniqueClassNames = getUniqueClassNames();
+        int noneCode = classCodes.getClassCount();
 
-        // Initialize the confusion matrix
-        for (String actualClass : uniqueClassNames) {
-            confusionMatrix.put(actualClass, new HashMap<>());
-            for (String predictedClass : uniqueClassNames) {
-                confusionMatrix.get(actualClass).put(predictedClass, 0);
-            }
-            confusionMatrix.get(actualClass).put("None", 0);
-        }
-        Map<String, Integer> noneMap = new HashMap<>();
-        for (String predictedClass : uniqueClassNames) {
-            noneMap.put(predictedClass, 0);
+        RuleProgram program;
+        try {
+            program = compileRules(classCodes);
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Please enter valid numbers for every clause.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
         }
-        noneMap.put("None", 0);
-        confusionMatrix.put("None", noneMap);
+        int[] predictedCodes = program.predict(tableModel.getColumnStore(), ForkJoinPool.commonPool());
 
-        int totalInstances = 0;
+        // Rows are actual class codes, columns are predicted class codes with "None" as the last column
+        int[][] confusionMatrix = new int[classCodes.getClassCount()][classCodes.getClassCount() + 1];
+        int totalInstances = predictedCodes.length;
         int correctPredictions = 0;
 
-        for (int row = 0; row < tableModel.getRowCount(); row++) {
-            totalInstances++;
-            String predictedClass = "None";
+        for (int row = 0; row < predictedCodes.length; row++) {
+            int predictedClass = predictedCodes[row] == -1 ? noneCode : predictedCodes[row];
+            int actualClass = classCodes.getCode(row);
+            confusionMatrix[actualClass][predictedClass]++;
 
-            for (RulePanel rulePanel : rulePanels) {
-                boolean match = true;
-                for (ClausePanel clausePanel : rulePanel.getClausePanels()) {
-                    String attribute = clausePanel.getAttribute();
-                    String relation1 = clausePanel.getRelation1();
-                    String relation2 = clausePanel.getRelation2();
-                    String value1 = clausePanel.getValue1();
-                    String value2 = clausePanel.getValue2();
-
-                    int columnIndex = tableModel.findColumn(attribute);
-                    double cellValue = Double.parseDouble(tableModel.getValueAt(row, columnIndex).toString());
-
-                    boolean clauseMatch = evaluateRule(cellValue, relation1, value1, relation2, value2);
-
-                    if (clausePanel != rulePanel.getClausePanels().get(0)) {
-                        if ("AND".equals(clausePanel.getAndOr())) {
-                            match = match && clauseMatch;
-                        } else if ("OR".equals(clausePanel.getAndOr())) {
-                            match = match || clauseMatch;
-                        }
-                    } else {
-                        match = clauseMatch;
-                    }
-                }
-
-                if (match) {
-                    predictedClass = rulePanel.getSelectedClass();
-                    break;
-                }
-            }
-
-            String actualClass = (String) tableModel.getValueAt(row, tableModel.getColumnCount() - 1);
-            confusionMatrix.get(actualClass).put(predictedClass,
-                    confusionMatrix.get(actualClass).get(predictedClass) + 1);
-
-            if (actualClass.equals(predictedClass)) {
+            if (actualClass == predictedClass) {
                 correctPredictions++;
             }
         }
@@ -155,38 +121,24 @@ public class RuleTesterDialog extends JDialog {
         showConfusionMatrix(confusionMatrix, uniqueClassNames, accuracy);
     }
 
-    private boolean evaluateRule(double cellValue, String relation1, String value1, String relation2, String value2) {
-        if (relation1.equals("<")) {
-            relation1 = ">";
-        } else if (relation1.equals("<=")) {
-            relation1 = ">=";
-        } else if (relation1.equals(">")) {
-            relation1 = "<";
-        } else if (relation1.equals(">=")) {
-            relation1 = "<=";
-        }
-        boolean match1 = evaluateCondition(cellValue, relation1, Double.parseDouble(value1));
-        boolean match2 = value2.isEmpty() || evaluateCondition(cellValue, relation2, Double.parseDouble(value2));
-        return match1 && match2;
-    }
-
-    private boolean evaluateCondition(double cellValue, String relation, double value) {
-        switch (relation) {
-            case "<":
-                return cellValue < value;
-            case "<=":
-                return cellValue <= value;
-            case ">":
-                return cellValue > value;
-            case ">=":
-                return cellValue >= value;
-            case "==":
-                return cellValue == value;
-            case "!=":
-                return cellValue != value;
-            default:
-                return false;
+    /**
+     * Reads the rules from their panels once, so that testing them does not go back to the Swing components
+     * for every row. A rule whose class is not in the data predicts "None".
+     */
+    private RuleProgram compileRules(ClassCodes classCodes) {
+        List<List<RuleProgram.Clause>> rules = new ArrayList<>();
+        int[] ruleClassCodes = new int[rulePanels.size()];
+        for (int i = 0; i < rulePanels.size(); i++) {
+            RulePanel rulePanel = rulePanels.get(i);
+            ruleClassCodes[i] = classCodes.codeOf(rulePanel.getSelectedClass());
+            List<RuleProgram.Clause> clauses = new ArrayList<>();
+            for (ClausePanel clausePanel : rulePanel.getClausePanels()) {
+                clauses.add(new RuleProgram.Clause(clausePanel.getAndOr(), tableModel.findColumn(clausePanel.getAttribute()),
+                        clausePanel.getRelation1(), clausePanel.getValue1(), clausePanel.getRelation2(), clausePanel.getValue2()));
+            }
+            rules.add(clauses);
         }
+        return new RuleProgram(rules, ruleClassCodes);
     }
 
     private void filterContainedRules() {
@@ -275,18 +227,18 @@ public class RuleTesterDialog extends JDialog {
         rulesPanel.repaint();
     }
 
-    private void showConfusionMatrix(Map<String, Map<String, Integer>> confusionMatrix, String[] classNames, double accuracy) {
+    private void showConfusionMatrix(int[][] confusionMatrix, String[] classNames, double accuracy) {
         String[] columnNames = new String[classNames.length + 2];
         columnNames[0] = "Actual\\Predicted";
         System.arraycopy(classNames, 0, columnNames, 1, classNames.length);
         columnNames[columnNames.length - 1] = "None";
 
         DefaultTableModel model = new DefaultTableModel(columnNames, 0);
-        for (String actualClass : classNames) {
+        for (int actualClass = 0; actualClass < classNames.length; actualClass++) {
             Object[] rowData = new Object[columnNames.length];
-            rowData[0] = actualClass;
+            rowData[0] = classNames[actualClass];
             for (int i = 1; i < columnNames.length; i++) {
-                rowData[i] = confusionMatrix.get(actualClass).get(columnNames[i]);
+                rowData[i] = confusionMatrix[actualClass][i - 1];
             }
             model.addRow(rowData);
         }
@@ -305,13 +257,20 @@ public class RuleTesterDialog extends JDialog {
         JOptionPane.showMessageDialog(this, panel, "Confusion Matrix", JOptionPane.INFORMATION_MESSAGE);
     }
 
+    private ClassCodes getClassCodes() {
+        return ClassCodes.of(tableModel.getColumnStore(), tableModel.getColumnCount() - 1);
+    }
+
+    /**
+     * Returns the class names in code order, so index i of the result is the name of class code i.
+     */
     private String[] getUniqueClassNames() {
-        int classColumnIndex = tableModel.getColumnCount() - 1;
-        Set<String> uniqueClasses = new HashSet<>();
-        for (int i = 0; i < tableModel.getRowCount(); i++) {
-            uniqueClasses.add((String) tableModel.getValueAt(i, classColumnIndex));
+        ClassCodes classCodes = getClassCodes();
+        String[] classNames = new String[classCodes.getClassCount()];
+        for (int code = 0; code < classNames.length; code++) {
+            classNames[code] = classCodes.getLabel(code);
         }
-        return uniqueClasses.toArray(new String[0]);
+        return classNames;
     }
 
     private void saveRules() {
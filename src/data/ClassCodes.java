@@ -0,0 +1,141 @@
+package src.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * The ClassCodes class gives every row's class label as a small int code (0 .. getClassCount() - 1) plus
+ * the dictionary that maps the codes back to labels. Counting and lookup loops can then use plain int
+ * arrays indexed by code instead of String-keyed maps.
+ *
+ * For a dictionary-encoded column of a ColumnStore the codes are the store's own and are not copied, so
+ * an instance describes the store as it was when it was created and should not outlive later edits.
+ */
+public final class ClassCodes {
+
+    private final int[] codes;
+    private final int rowCount;
+    private final List<String> labels;
+    private final Map<String, Integer> labelIndex = new HashMap<>();
+
+    private ClassCodes(int[] codes, int rowCount, List<String> labels) {
+        this.codes = codes;
+        this.rowCount = rowCount;
+        this.labels = labels;
+        for (int code = 0; code < labels.size(); code++) {
+            labelIndex.put(labels.get(code), code);
+        }
+    }
+
+    /**
+     * Returns the class codes of a column. Categorical columns, which includes the store's class column,
+     * reuse their dictionary; a numeric column is encoded from its displayed text.
+     */
+    public static ClassCodes of(ColumnStore columnStore, int col) {
+        int rowCount = columnStore.getRowCount();
+        if (!columnStore.isNumeric(col)) {
+            List<String> labels = new ArrayList<>(columnStore.getCategoryCount(col));
+            for (int code = 0; code < columnStore.getCategoryCount(col); code++) {
+                labels.add(columnStore.getCategory(col, code));
+            }
+            return new ClassCodes(columnStore.codesOf(col), rowCount, labels);
+        }
+        String[] texts = new String[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            texts[row] = columnStore.getText(row, col);
+        }
+        return of(Arrays.asList(texts));
+    }
+
+    /**
+     * Encodes a list of per-row labels, numbering the labels in order of first appearance.
+     */
+    public static ClassCodes of(List<String> rowLabels) {
+        int[] codes = new int[rowLabels.size()];
+        List<String> labels = new ArrayList<>();
+        Map<String, Integer> index = new HashMap<>();
+        for (int row = 0; row < codes.length; row++) {
+            String label = rowLabels.get(row);
+            Integer code = index.get(label);
+            if (code == null) {
+                code = labels.size();
+                labels.add(label);
+                index.put(label, code);
+            }
+            codes[row] = code;
+        }
+        return new ClassCodes(codes, codes.length, labels);
+    }
+
+    /**
+     * Returns the codes of the rows that are not in the removed mask, in order, with the same labels, so
+     * the codes line up with a list that leaves the hidden rows out. The codes are copied, so the result
+     * stays valid after the store is edited.
+     */
+    public ClassCodes without(RowMask removed) {
+        int[] keptCodes = new int[rowCount];
+        int kept = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (!removed.get(row)) {
+                keptCodes[kept++] = codes[row];
+            }
+        }
+        return new ClassCodes(Arrays.copyOf(keptCodes, kept), kept, labels);
+    }
+
+    /**
+     * Returns the value of every class from a map keyed by label, indexed by code, so that per-row lookups
+     * are array reads. Classes that the map does not hold get the fallback.
+     */
+    public <T> T[] byCode(Map<String, ? extends T> valuesByLabel, T fallback, IntFunction<T[]> newArray) {
+        T[] values = newArray.apply(labels.size());
+        for (int code = 0; code < values.length; code++) {
+            T value = valuesByLabel.get(labels.get(code));
+            values[code] = value != null ? value : fallback;
+        }
+        return values;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getClassCount() {
+        return labels.size();
+    }
+
+    public int getCode(int row) {
+        return codes[row];
+    }
+
+    public String getLabel(int code) {
+        return labels.get(code);
+    }
+
+    public String getLabelOf(int row) {
+        return labels.get(codes[row]);
+    }
+
+    /**
+     * Returns the code of the given label, or -1 if no row has that label.
+     */
+    public int codeOf(String label) {
+        Integer code = labelIndex.get(label);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Returns how many rows there are of each class, indexed by code.
+     */
+    public int[] countAll() {
+        int[] counts = new int[labels.size()];
+        for (int row = 0; row < rowCount; row++) {
+            counts[codes[row]]++;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,57 @@
+package src.data;
+
+/**
+ * The ColumnSchema class describes one column of a ColumnStore: its name, type, number of blank cells and
+ * an estimate of its distinct values. The store keeps this information up to date as cells are loaded,
+ * edited and inserted, so asking for a schema never scans the column.
+ */
+public final class ColumnSchema {
+
+    private final String name;
+    private final ColumnStore.ColumnType type;
+    private final int blankCount;
+    private final long distinctEstimate;
+
+    ColumnSchema(String name, ColumnStore.ColumnType type, int blankCount, long distinctEstimate) {
+        this.name = name;
+        this.type = type;
+        this.blankCount = blankCount;
+        this.distinctEstimate = distinctEstimate;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ColumnStore.ColumnType getType() {
+        return type;
+    }
+
+    public boolean isNumeric() {
+        return type == ColumnStore.ColumnType.NUMERIC;
+    }
+
+    /**
+     * Returns true if every cell of the column holds a number, i.e. the column is numeric and has no blanks.
+     */
+    public boolean isFullyNumeric() {
+        return isNumeric() && blankCount == 0;
+    }
+
+    public int getBlankCount() {
+        return blankCount;
+    }
+
+    /**
+     * Returns the estimated number of distinct non-blank values. It is exact for categorical columns until
+     * labels are edited away, and within a few percent for numeric columns.
+     */
+    public long getDistinctEstimate() {
+        return distinctEstimate;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + type + ", " + blankCount + " blank, ~" + distinctEstimate + " distinct)";
+    }
+}
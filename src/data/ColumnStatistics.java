@@ -0,0 +1,46 @@
+package src.data;
+
+/**
+ * The ColumnStatistics class is a snapshot of the statistics of one numeric column: the number of non-blank
+ * values, min, max, mean and sample standard deviation, as seen through the column's normalization view.
+ * The store maintains them incrementally, so getting a snapshot does not scan the column.
+ */
+public final class ColumnStatistics {
+
+    private final int count;
+    private final double min;
+    private final double max;
+    private final double mean;
+    private final double stdDev;
+
+    ColumnStatistics(int count, double min, double max, double mean, double stdDev) {
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.stdDev = stdDev;
+    }
+
+    /**
+     * Returns the number of non-blank values. The other values are NaN when it is 0.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getStdDev() {
+        return stdDev;
+    }
+}
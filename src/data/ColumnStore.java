@@ -0,0 +1,862 @@
+package src.data;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ColumnStore class holds a loaded dataset column by column. Numeric attributes are kept as primitive
+ * double arrays (blank cells are stored as NaN) and categorical attributes, including the class column,
+ * as int codes into a small per-column dictionary. It is the single copy of the data that the table,
+ * the plots and the analytics read from.
+ */
+public class ColumnStore {
+
+    public enum ColumnType { NUMERIC, CATEGORICAL }
+
+    public static final String DEFAULT_DISPLAY_PATTERN = "#.##########################";
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final List<Column> columns = new ArrayList<>();
+    private final NumberParser numberParser = new NumberParser();
+    private int rowCount;
+    private int capacity = INITIAL_CAPACITY;
+    private int classColumnIndex = -1;
+    private String displayPattern = DEFAULT_DISPLAY_PATTERN;
+    private DecimalFormat displayFormat = new DecimalFormat(DEFAULT_DISPLAY_PATTERN);
+    private DecimalFormat scaledFormat;
+    private long version;
+    private long viewVersion;
+
+    private static final class Column {
+        private String name;
+        private ColumnType type;
+        private double[] values;
+        private int[] codes;
+        private List<String> dictionary;
+        private Map<String, Integer> dictionaryIndex;
+        private int missingCount;
+        private DistinctCounter distinct = new DistinctCounter();
+        private RunningStatistics statistics = new RunningStatistics();
+        // Rows per dictionary code of a categorical column, or null until they are first asked for
+        private int[] codeCounts;
+        private SortedColumnIndex sortedIndex;
+        // Normalization view: a numeric value v is read as (v - offset) / divisor while scaled is set
+        private boolean scaled;
+        private double offset;
+        private double divisor = 1;
+        // Set while the arrays and dictionary are shared with a copy of the store; the first write copies them
+        private boolean shared;
+
+        private Column(String name, int capacity) {
+            this.name = name;
+            this.type = ColumnType.NUMERIC;
+            this.values = new double[capacity];
+            Arrays.fill(this.values, Double.NaN);
+        }
+
+        private int encode(String text) {
+            Integer code = dictionaryIndex.get(text);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(text);
+                dictionaryIndex.put(text, code);
+            }
+            return code;
+        }
+
+        private void count(int code, int delta) {
+            if (codeCounts == null) {
+                return;
+            }
+            if (code >= codeCounts.length) {
+                codeCounts = Arrays.copyOf(codeCounts, Math.max(code + 1, codeCounts.length * 2));
+            }
+            codeCounts[code] += delta;
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    public String getColumnName(int col) {
+        return columns.get(col).name;
+    }
+
+    public void setColumnName(int col, String name) {
+        columns.get(col).name = name;
+    }
+
+    public List<String> getColumnNames() {
+        List<String> names = new ArrayList<>(columns.size());
+        for (Column column : columns) {
+            names.add(column.name);
+        }
+        return names;
+    }
+
+    public int findColumn(String name) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).name.equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public ColumnType getColumnType(int col) {
+        return columns.get(col).type;
+    }
+
+    public boolean isNumeric(int col) {
+        return columns.get(col).type == ColumnType.NUMERIC;
+    }
+
+    /**
+     * Returns the number of blank cells in the given column.
+     */
+    public int getMissingCount(int col) {
+        return columns.get(col).missingCount;
+    }
+
+    /**
+     * Returns the schema of the given column. It is maintained as the store changes, so this is cheap
+     * enough to call instead of rescanning the column.
+     */
+    public ColumnSchema getSchema(int col) {
+        Column column = columns.get(col);
+        long distinct;
+        if (column.type == ColumnType.NUMERIC) {
+            distinct = Math.min(column.distinct.estimate(), rowCount - column.missingCount);
+        } else {
+            distinct = column.dictionary.size() - (column.dictionaryIndex.containsKey("") ? 1 : 0);
+        }
+        return new ColumnSchema(column.name, column.type, column.missingCount, distinct);
+    }
+
+    /**
+     * Returns the statistics of a numeric column as seen through its normalization view. They are kept up
+     * to date on every edit, so this only rescans the column after its min or max was removed.
+     */
+    public ColumnStatistics getStatistics(int col) {
+        Column column = columns.get(col);
+        if (column.type != ColumnType.NUMERIC) {
+            return new ColumnStatistics(0, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+        }
+        RunningStatistics statistics = column.statistics;
+        statistics.update(column.values, rowCount);
+        if (statistics.getCount() == 0) {
+            return new ColumnStatistics(0, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+        }
+        double min = toView(column, statistics.getMin());
+        double max = toView(column, statistics.getMax());
+        double stdDev = Math.sqrt(statistics.getVariance());
+        if (column.scaled) {
+            stdDev = column.divisor != 0 ? stdDev / Math.abs(column.divisor) : 0;
+        }
+        return new ColumnStatistics(statistics.getCount(), Math.min(min, max), Math.max(min, max),
+                toView(column, statistics.getMean()), stdDev);
+    }
+
+    /**
+     * Returns the rows of a numeric column ordered by value. The index is kept until the store or its
+     * normalization view changes, so repeated range lookups on unchanged data sort the column only once.
+     * Returns null for a categorical column.
+     */
+    public SortedColumnIndex getSortedIndex(int col) {
+        Column column = columns.get(col);
+        if (column.type != ColumnType.NUMERIC) {
+            return null;
+        }
+        if (column.sortedIndex == null || !column.sortedIndex.isCurrent(version, viewVersion)) {
+            column.sortedIndex = SortedColumnIndex.build(getColumnValues(col), version, viewVersion);
+        }
+        return column.sortedIndex;
+    }
+
+    /**
+     * Returns how many rows hold each dictionary code of a categorical column, indexed by code, or an
+     * empty array for a numeric column. The counts are kept up to date on every edit after the first call.
+     */
+    public int[] getCategoryCounts(int col) {
+        Column column = columns.get(col);
+        if (column.type != ColumnType.CATEGORICAL) {
+            return new int[0];
+        }
+        if (column.codeCounts == null) {
+            int[] counts = new int[Math.max(column.dictionary.size(), 1)];
+            for (int row = 0; row < rowCount; row++) {
+                counts[column.codes[row]]++;
+            }
+            column.codeCounts = counts;
+        }
+        return Arrays.copyOf(column.codeCounts, column.dictionary.size());
+    }
+
+    /**
+     * Returns a counter that changes whenever cells, rows or columns change, so derived results can be
+     * cached against it. Switching the normalization view does not change it.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns a counter that changes whenever the normalization view is switched. Together with
+     * getVersion() it tells whether results computed from the values seen through the view are current.
+     */
+    public long getViewVersion() {
+        return viewVersion;
+    }
+
+    public int getClassColumnIndex() {
+        return classColumnIndex;
+    }
+
+    /**
+     * Marks the given column as the class column. The class column is always kept dictionary encoded,
+     * even when its labels look like numbers.
+     */
+    public void setClassColumnIndex(int col) {
+        classColumnIndex = col;
+        version++;
+        if (col >= 0 && col < columns.size()) {
+            convertToCategorical(columns.get(col));
+        }
+    }
+
+    public void setDisplayPattern(String pattern) {
+        displayPattern = pattern;
+        displayFormat = new DecimalFormat(pattern);
+    }
+
+    public int addColumn(String name) {
+        version++;
+        columns.add(new Column(name, capacity));
+        Column column = columns.get(columns.size() - 1);
+        column.missingCount = rowCount;
+        return columns.size() - 1;
+    }
+
+    /**
+     * Sizes an empty store for the given number of rows so that loaders can hand over whole columns.
+     */
+    void allocateRows(int count) {
+        if (!columns.isEmpty()) {
+            throw new IllegalStateException("Rows can only be allocated before columns are added");
+        }
+        rowCount = count;
+        capacity = Math.max(count, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Adds a numeric column that was parsed elsewhere. The array holds one value per row, NaN for blanks.
+     */
+    int addColumn(String name, double[] values) {
+        version++;
+        Column column = new Column(name, 0);
+        column.values = values.length == capacity ? values : Arrays.copyOf(values, capacity);
+        if (values.length < capacity) {
+            Arrays.fill(column.values, values.length, capacity, Double.NaN);
+        }
+        for (int row = 0; row < rowCount; row++) {
+            if (Double.isNaN(column.values[row])) {
+                column.missingCount++;
+            } else {
+                column.distinct.add(column.values[row]);
+                column.statistics.add(column.values[row]);
+            }
+        }
+        columns.add(column);
+        return columns.size() - 1;
+    }
+
+    /**
+     * Adds a categorical column from its trimmed cell texts, one per row.
+     */
+    int addColumn(String name, String[] texts) {
+        version++;
+        Column column = new Column(name, 0);
+        column.type = ColumnType.CATEGORICAL;
+        column.values = null;
+        column.distinct = null;
+        column.statistics = null;
+        column.codes = new int[capacity];
+        column.dictionary = new ArrayList<>();
+        column.dictionaryIndex = new HashMap<>();
+        for (int row = 0; row < rowCount; row++) {
+            String text = texts[row] == null ? "" : texts[row];
+            column.codes[row] = column.encode(text);
+            if (text.isEmpty()) {
+                column.missingCount++;
+            }
+        }
+        columns.add(column);
+        return columns.size() - 1;
+    }
+
+    /**
+     * Adds a categorical column from its codes and dictionary, as stored in a snapshot.
+     */
+    int addColumn(String name, int[] codes, List<String> dictionary) {
+        version++;
+        Column column = new Column(name, 0);
+        column.type = ColumnType.CATEGORICAL;
+        column.values = null;
+        column.distinct = null;
+        column.statistics = null;
+        column.codes = codes.length == capacity ? codes : Arrays.copyOf(codes, capacity);
+        column.dictionary = new ArrayList<>(dictionary);
+        column.dictionaryIndex = new HashMap<>();
+        for (int code = 0; code < dictionary.size(); code++) {
+            column.dictionaryIndex.put(dictionary.get(code), code);
+        }
+        Integer blankCode = column.dictionaryIndex.get("");
+        if (blankCode != null) {
+            for (int row = 0; row < rowCount; row++) {
+                if (column.codes[row] == blankCode) {
+                    column.missingCount++;
+                }
+            }
+        }
+        columns.add(column);
+        return columns.size() - 1;
+    }
+
+    /**
+     * Returns the backing value array of a numeric column without copying it. Only the first
+     * getRowCount() entries are in use, and they are the stored values, not the normalization view.
+     */
+    double[] valuesOf(int col) {
+        return columns.get(col).values;
+    }
+
+    /**
+     * Returns the backing code array of a categorical column without copying it.
+     */
+    int[] codesOf(int col) {
+        return columns.get(col).codes;
+    }
+
+    String getDisplayPattern() {
+        return displayPattern;
+    }
+
+    /**
+     * Shows a numeric column through the affine view (v - offset) / divisor. The stored values are not
+     * touched: every reader (getDouble, getColumnValues, getText) sees the scaled value and writes are
+     * mapped back, so switching the view costs nothing per row. A divisor of 0 shows every value as 0.
+     */
+    public void setNormalization(int col, double offset, double divisor) {
+        Column column = columns.get(col);
+        if (column.type != ColumnType.NUMERIC) {
+            return;
+        }
+        viewVersion++;
+        column.scaled = true;
+        column.offset = offset;
+        column.divisor = divisor;
+    }
+
+    /**
+     * Sets the pattern used to show the scaled columns, or null to show them like the other columns.
+     */
+    public void setNormalizedDisplayPattern(String pattern) {
+        scaledFormat = pattern == null ? null : new DecimalFormat(pattern);
+    }
+
+    public void clearNormalization() {
+        viewVersion++;
+        for (Column column : columns) {
+            column.scaled = false;
+            column.offset = 0;
+            column.divisor = 1;
+        }
+    }
+
+    public boolean isNormalized() {
+        for (Column column : columns) {
+            if (column.scaled) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void removeColumn(int col) {
+        version++;
+        columns.remove(col);
+        if (col == classColumnIndex) {
+            classColumnIndex = -1;
+        } else if (col < classColumnIndex) {
+            classColumnIndex--;
+        }
+    }
+
+    public void setColumnCount(int count) {
+        while (columns.size() > count) {
+            removeColumn(columns.size() - 1);
+        }
+        while (columns.size() < count) {
+            addColumn("");
+        }
+    }
+
+    public void appendRow(Object[] values) {
+        insertRow(rowCount, values);
+    }
+
+    public void insertRow(int row, Object[] values) {
+        version++;
+        ensureCapacity(rowCount + 1);
+        for (Column column : columns) {
+            unshare(column);
+            if (column.type == ColumnType.NUMERIC) {
+                System.arraycopy(column.values, row, column.values, row + 1, rowCount - row);
+            } else {
+                System.arraycopy(column.codes, row, column.codes, row + 1, rowCount - row);
+            }
+        }
+        rowCount++;
+        for (int col = 0; col < columns.size(); col++) {
+            Column column = columns.get(col);
+            // The slot is treated as blank until it is written so the missing count stays balanced
+            if (column.type == ColumnType.NUMERIC) {
+                column.values[row] = Double.NaN;
+            } else {
+                column.codes[row] = column.encode("");
+                column.count(column.codes[row], 1);
+            }
+            column.missingCount++;
+            setValue(row, col, values != null && col < values.length ? values[col] : null);
+        }
+    }
+
+    /**
+     * Appends all rows of another store with the same columns. A column that is numeric here but holds
+     * text in the batch (or the other way around) becomes categorical, as it would through setValue.
+     */
+    public void appendRows(ColumnStore batch) {
+        version++;
+        int batchRows = batch.rowCount;
+        ensureCapacity(rowCount + batchRows);
+        for (int col = 0; col < columns.size(); col++) {
+            Column column = columns.get(col);
+            unshare(column);
+            if (col >= batch.columns.size()) {
+                appendMissing(column, batchRows);
+                continue;
+            }
+            Column source = batch.columns.get(col);
+            if (column.type == ColumnType.NUMERIC && source.type == ColumnType.CATEGORICAL) {
+                convertToCategorical(column);
+            }
+
+            if (column.type == ColumnType.NUMERIC) {
+                System.arraycopy(source.values, 0, column.values, rowCount, batchRows);
+                column.distinct.addAll(source.distinct);
+                column.statistics.addAll(source.statistics);
+            } else if (source.type == ColumnType.CATEGORICAL) {
+                int[] codeMap = new int[source.dictionary.size()];
+                for (int code = 0; code < codeMap.length; code++) {
+                    codeMap[code] = column.encode(source.dictionary.get(code));
+                }
+                for (int row = 0; row < batchRows; row++) {
+                    column.codes[rowCount + row] = codeMap[source.codes[row]];
+                    column.count(column.codes[rowCount + row], 1);
+                }
+            } else {
+                for (int row = 0; row < batchRows; row++) {
+                    double value = source.values[row];
+                    column.codes[rowCount + row] = column.encode(Double.isNaN(value) ? "" : formatValue(value));
+                    column.count(column.codes[rowCount + row], 1);
+                }
+            }
+            column.missingCount += source.missingCount;
+        }
+        rowCount += batchRows;
+    }
+
+    private void appendMissing(Column column, int count) {
+        if (column.type == ColumnType.NUMERIC) {
+            Arrays.fill(column.values, rowCount, rowCount + count, Double.NaN);
+        } else {
+            Arrays.fill(column.codes, rowCount, rowCount + count, column.encode(""));
+            column.count(column.encode(""), count);
+        }
+        column.missingCount += count;
+    }
+
+    public void removeRow(int row) {
+        version++;
+        for (Column column : columns) {
+            unshare(column);
+            if (isMissing(column, row)) {
+                column.missingCount--;
+            }
+            if (column.type == ColumnType.NUMERIC) {
+                column.statistics.remove(column.values[row]);
+                System.arraycopy(column.values, row + 1, column.values, row, rowCount - row - 1);
+                column.values[rowCount - 1] = Double.NaN;
+            } else {
+                column.count(column.codes[row], -1);
+                System.arraycopy(column.codes, row + 1, column.codes, row, rowCount - row - 1);
+            }
+        }
+        rowCount--;
+    }
+
+    /**
+     * Removes the given rows, in any order, compacting every column in one pass.
+     */
+    public void removeRows(int[] rows) {
+        if (rows.length == 0) {
+            return;
+        }
+        version++;
+        int[] sorted = rows.clone();
+        Arrays.sort(sorted);
+        for (Column column : columns) {
+            unshare(column);
+            int write = sorted[0];
+            int next = 0;
+            for (int read = sorted[0]; read < rowCount; read++) {
+                if (next < sorted.length && sorted[next] == read) {
+                    if (isMissing(column, read)) {
+                        column.missingCount--;
+                    }
+                    if (column.type == ColumnType.NUMERIC) {
+                        column.statistics.remove(column.values[read]);
+                    } else {
+                        column.count(column.codes[read], -1);
+                    }
+                    while (next < sorted.length && sorted[next] == read) {
+                        next++; // Skip duplicates
+                    }
+                    continue;
+                }
+                if (column.type == ColumnType.NUMERIC) {
+                    column.values[write++] = column.values[read];
+                } else {
+                    column.codes[write++] = column.codes[read];
+                }
+            }
+            if (column.type == ColumnType.NUMERIC) {
+                Arrays.fill(column.values, write, rowCount, Double.NaN);
+            }
+        }
+        int removed = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                removed++;
+            }
+        }
+        rowCount -= removed;
+    }
+
+    /**
+     * Moves the rows start..end (inclusive) so that they begin at index {@code to} of the list that
+     * remains after they have been taken out, matching ReorderableTableModel.moveRow.
+     */
+    public void moveRows(int start, int end, int to) {
+        version++;
+        int length = end - start + 1;
+        for (Column column : columns) {
+            unshare(column);
+            if (column.type == ColumnType.NUMERIC) {
+                double[] block = Arrays.copyOfRange(column.values, start, end + 1);
+                System.arraycopy(column.values, end + 1, column.values, start, rowCount - end - 1);
+                System.arraycopy(column.values, to, column.values, to + length, rowCount - length - to);
+                System.arraycopy(block, 0, column.values, to, length);
+            } else {
+                int[] block = Arrays.copyOfRange(column.codes, start, end + 1);
+                System.arraycopy(column.codes, end + 1, column.codes, start, rowCount - end - 1);
+                System.arraycopy(column.codes, to, column.codes, to + length, rowCount - length - to);
+                System.arraycopy(block, 0, column.codes, to, length);
+            }
+        }
+    }
+
+    public void setRowCount(int count) {
+        while (rowCount > count) {
+            removeRow(rowCount - 1);
+        }
+        while (rowCount < count) {
+            appendRow(null);
+        }
+    }
+
+    public void clear() {
+        version++;
+        columns.clear();
+        rowCount = 0;
+        capacity = INITIAL_CAPACITY;
+        classColumnIndex = -1;
+    }
+
+    /**
+     * Writes a cell from its table representation. Blank or null values become missing, numbers are
+     * stored as doubles and any other text turns a numeric column into a categorical one.
+     */
+    public void setValue(int row, int col, Object value) {
+        version++;
+        Column column = columns.get(col);
+        unshare(column);
+        boolean wasMissing = isMissing(column, row);
+        double oldValue = column.type == ColumnType.NUMERIC ? column.values[row] : Double.NaN;
+        int oldCode = column.type == ColumnType.CATEGORICAL ? column.codes[row] : -1;
+        String text = value == null ? "" : value.toString().trim();
+
+        if (column.type == ColumnType.NUMERIC) {
+            double number = Double.NaN;
+            if (value instanceof Number) {
+                number = ((Number) value).doubleValue();
+            } else if (numberParser.parse(text) == NumberParser.NUMBER) {
+                number = numberParser.getValue();
+            } else if (!text.isEmpty()) {
+                convertToCategorical(column);
+            }
+            if (column.type == ColumnType.NUMERIC) {
+                column.values[row] = toStored(column, number);
+                column.distinct.add(column.values[row]);
+                column.statistics.replace(oldValue, column.values[row]);
+            }
+        }
+        if (column.type == ColumnType.CATEGORICAL) {
+            if (oldCode >= 0) {
+                column.count(oldCode, -1);
+            }
+            column.codes[row] = column.encode(text);
+            column.count(column.codes[row], 1);
+        }
+
+        boolean isMissing = isMissing(column, row);
+        if (wasMissing != isMissing) {
+            column.missingCount += isMissing ? 1 : -1;
+        }
+    }
+
+    /**
+     * Writes a numeric cell directly, without going through text.
+     */
+    public void setDouble(int row, int col, double value) {
+        version++;
+        Column column = columns.get(col);
+        if (column.type != ColumnType.NUMERIC) {
+            setValue(row, col, Double.isNaN(value) ? "" : formatValue(value));
+            return;
+        }
+        unshare(column);
+        boolean wasMissing = Double.isNaN(column.values[row]);
+        double oldValue = column.values[row];
+        column.values[row] = toStored(column, value);
+        column.distinct.add(column.values[row]);
+        column.statistics.replace(oldValue, column.values[row]);
+        if (wasMissing != Double.isNaN(value)) {
+            column.missingCount += wasMissing ? -1 : 1;
+        }
+    }
+
+    /**
+     * Returns the numeric value of a cell, or NaN when the cell is blank or the column is categorical.
+     */
+    public double getDouble(int row, int col) {
+        Column column = columns.get(col);
+        return column.type == ColumnType.NUMERIC ? toView(column, column.values[row]) : Double.NaN;
+    }
+
+    public boolean isMissing(int row, int col) {
+        return isMissing(columns.get(col), row);
+    }
+
+    /**
+     * Returns a copy of the numeric values of a column, one entry per row.
+     */
+    public double[] getColumnValues(int col) {
+        Column column = columns.get(col);
+        if (column.type == ColumnType.NUMERIC) {
+            double[] values = Arrays.copyOf(column.values, rowCount);
+            if (column.scaled) {
+                for (int row = 0; row < rowCount; row++) {
+                    values[row] = toView(column, values[row]);
+                }
+            }
+            return values;
+        }
+        double[] values = new double[rowCount];
+        Arrays.fill(values, Double.NaN);
+        return values;
+    }
+
+    /**
+     * Returns the dictionary code of a categorical cell, or -1 for numeric columns.
+     */
+    public int getCode(int row, int col) {
+        Column column = columns.get(col);
+        return column.type == ColumnType.CATEGORICAL ? column.codes[row] : -1;
+    }
+
+    public int getCategoryCount(int col) {
+        Column column = columns.get(col);
+        return column.type == ColumnType.CATEGORICAL ? column.dictionary.size() : 0;
+    }
+
+    public String getCategory(int col, int code) {
+        return columns.get(col).dictionary.get(code);
+    }
+
+    /**
+     * Returns the text shown for a cell: categorical labels as loaded and numbers formatted without
+     * scientific notation.
+     */
+    public String getText(int row, int col) {
+        Column column = columns.get(col);
+        if (column.type == ColumnType.CATEGORICAL) {
+            return column.dictionary.get(column.codes[row]);
+        }
+        double value = column.values[row];
+        if (Double.isNaN(value)) {
+            return "";
+        }
+        if (column.scaled) {
+            value = toView(column, value);
+            return scaledFormat != null ? scaledFormat.format(value) : formatValue(value);
+        }
+        return formatValue(value);
+    }
+
+    public Object[] getRowText(int row) {
+        Object[] text = new Object[columns.size()];
+        for (int col = 0; col < columns.size(); col++) {
+            text[col] = getText(row, col);
+        }
+        return text;
+    }
+
+    public String formatValue(double value) {
+        return displayFormat.format(value);
+    }
+
+    /**
+     * Returns a copy of the store. The copy shares the column arrays and dictionaries with this store until
+     * either of them writes to a column, which copies that column first, so taking a copy costs nothing per
+     * row and a background task can read it while the table is edited. The copy keeps the version counters
+     * and sorted indexes, since it holds the same data.
+     */
+    public ColumnStore copy() {
+        ColumnStore copy = new ColumnStore();
+        copy.rowCount = rowCount;
+        copy.capacity = capacity;
+        copy.classColumnIndex = classColumnIndex;
+        copy.version = version;
+        copy.viewVersion = viewVersion;
+        copy.setDisplayPattern(displayPattern);
+        copy.scaledFormat = scaledFormat == null ? null : (DecimalFormat) scaledFormat.clone();
+        for (Column column : columns) {
+            Column columnCopy = new Column(column.name, 0);
+            columnCopy.type = column.type;
+            columnCopy.missingCount = column.missingCount;
+            columnCopy.scaled = column.scaled;
+            columnCopy.offset = column.offset;
+            columnCopy.divisor = column.divisor;
+            columnCopy.sortedIndex = column.sortedIndex;
+            columnCopy.values = column.values;
+            columnCopy.codes = column.codes;
+            columnCopy.dictionary = column.dictionary;
+            columnCopy.dictionaryIndex = column.dictionaryIndex;
+            if (column.type == ColumnType.NUMERIC) {
+                columnCopy.distinct = column.distinct.copy();
+                columnCopy.statistics = column.statistics.copy();
+            } else {
+                columnCopy.distinct = null;
+                columnCopy.statistics = null;
+                columnCopy.codeCounts = column.codeCounts == null ? null : column.codeCounts.clone();
+            }
+            column.shared = true;
+            columnCopy.shared = true;
+            copy.columns.add(columnCopy);
+        }
+        return copy;
+    }
+
+    /**
+     * Gives the column its own arrays and dictionary before they are written, if a copy of the store still
+     * shares them.
+     */
+    private static void unshare(Column column) {
+        if (!column.shared) {
+            return;
+        }
+        column.shared = false;
+        if (column.type == ColumnType.NUMERIC) {
+            column.values = column.values.clone();
+        } else {
+            column.codes = column.codes.clone();
+            column.dictionary = new ArrayList<>(column.dictionary);
+            column.dictionaryIndex = new HashMap<>(column.dictionaryIndex);
+        }
+    }
+
+    private static double toView(Column column, double value) {
+        if (!column.scaled || Double.isNaN(value)) {
+            return value;
+        }
+        return column.divisor != 0 ? (value - column.offset) / column.divisor : 0;
+    }
+
+    private static double toStored(Column column, double value) {
+        return column.scaled ? value * column.divisor + column.offset : value;
+    }
+
+    private static boolean isMissing(Column column, int row) {
+        if (column.type == ColumnType.NUMERIC) {
+            return Double.isNaN(column.values[row]);
+        }
+        return column.dictionary.get(column.codes[row]).isEmpty();
+    }
+
+    private void convertToCategorical(Column column) {
+        if (column.type == ColumnType.CATEGORICAL) {
+            return;
+        }
+        column.dictionary = new ArrayList<>();
+        column.dictionaryIndex = new HashMap<>();
+        column.codes = new int[column.values.length];
+        for (int row = 0; row < rowCount; row++) {
+            double value = column.values[row];
+            column.codes[row] = column.encode(Double.isNaN(value) ? "" : formatValue(value));
+        }
+        column.values = null;
+        column.distinct = null;
+        column.statistics = null;
+        column.codeCounts = null;
+        column.scaled = false;
+        column.shared = false;
+        column.type = ColumnType.CATEGORICAL;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(required, capacity * 2);
+        for (Column column : columns) {
+            if (column.type == ColumnType.NUMERIC) {
+                int oldLength = column.values.length;
+                column.values = Arrays.copyOf(column.values, newCapacity);
+                Arrays.fill(column.values, oldLength, newCapacity, Double.NaN);
+            } else {
+                column.codes = Arrays.copyOf(column.codes, newCapacity);
+            }
+        }
+        capacity = newCapacity;
+    }
+}
@@ -0,0 +1,397 @@
+package src.data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The CsvLoader class reads a CSV file into ColumnStore batches. The file is memory mapped, split into
+ * newline-aligned chunks and the chunks are parsed in parallel on the common ForkJoinPool straight
+ * into primitive column buffers.
+ *
+ * Columns are numeric unless a non-numeric value is found in them; those columns, and the class column,
+ * are read a second time to collect their labels. The first header field named "class" (ignoring case)
+ * becomes the class column.
+ *
+ * Every chunk is turned into a ColumnStore of its own as soon as it is parsed, and the batches are handed
+ * to a listener in file order so that the first rows can be shown while the rest of the file is still
+ * being read. There are a few chunks per pool thread, so the parse keeps every core busy while the
+ * listener has only a few batches to put together.
+ */
+public class CsvLoader {
+
+    private static final long MIN_CHUNK_SIZE = 1L << 20;
+    private static final long MAX_CHUNK_SIZE = 64L << 20;
+    private static final int BOUNDARY_SCAN_SIZE = 1 << 16;
+
+    /**
+     * Receives the batches of a streaming load, in file order, on a loader thread.
+     */
+    public interface BatchListener {
+        void batchLoaded(ColumnStore batch, long bytesLoaded, long totalBytes);
+    }
+
+    private interface ChunkAction {
+        void run(int index) throws IOException;
+    }
+
+    private final Path path;
+    private final ForkJoinPool pool;
+    private volatile boolean cancelled;
+
+    public CsvLoader(Path path) {
+        this(path, ForkJoinPool.commonPool());
+    }
+
+    public CsvLoader(Path path, ForkJoinPool pool) {
+        this.path = path;
+        this.pool = pool;
+    }
+
+    /**
+     * Stops a running load. Chunks that have not started yet are skipped and no further batches are delivered.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Loads the file in chunks and passes each one to the listener as a separate batch, in file order.
+     * A column that holds text in one batch may still be numeric in another; ColumnStore.appendRows
+     * reconciles the two when the batches are put together.
+     */
+    public void load(BatchListener listener) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return;
+            }
+            long headerEnd = findLineEnd(channel, 0, size);
+            String[] header = readHeader(channel, headerEnd);
+            int columnCount = header.length;
+            int classColumnIndex = findClassColumn(header);
+
+            long target = (size - headerEnd) / (pool.getParallelism() * 4L);
+            Chunk[] chunks = createChunks(channel, Math.min(headerEnd + 1, size), size, target, columnCount);
+            long[] chunkEnds = new long[chunks.length];
+            for (int i = 0; i < chunks.length; i++) {
+                chunkEnds[i] = chunks[i].end;
+            }
+            ColumnStore[] completed = new ColumnStore[chunks.length];
+            int[] nextToDeliver = {0};
+
+            runParallel(chunks.length, index -> {
+                Chunk chunk = chunks[index];
+                boolean[] textColumns = new boolean[columnCount];
+                if (classColumnIndex >= 0) {
+                    textColumns[classColumnIndex] = true;
+                }
+                chunk.parse(channel, textColumns, false);
+                boolean hasTextColumns = false;
+                for (int col = 0; col < columnCount; col++) {
+                    textColumns[col] |= chunk.textSeen[col];
+                    hasTextColumns |= textColumns[col];
+                }
+                if (hasTextColumns) {
+                    chunk.parse(channel, textColumns, true);
+                }
+                ColumnStore batch = assemble(header, new Chunk[]{chunk}, textColumns, classColumnIndex);
+                chunks[index] = null;
+
+                synchronized (completed) {
+                    completed[index] = batch;
+                    while (nextToDeliver[0] < completed.length && completed[nextToDeliver[0]] != null && !cancelled) {
+                        int next = nextToDeliver[0]++;
+                        listener.batchLoaded(completed[next], chunkEnds[next], size);
+                        completed[next] = null;
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void runParallel(int chunkCount, ChunkAction action) {
+        pool.invoke(new ParseTask(0, chunkCount, action));
+    }
+
+    private static int findClassColumn(String[] header) {
+        for (int i = 0; i < header.length; i++) {
+            if (header[i].equalsIgnoreCase("class")) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static ColumnStore assemble(String[] header, Chunk[] chunks, boolean[] textColumns, int classColumnIndex) {
+        int rowCount = 0;
+        for (Chunk chunk : chunks) {
+            rowCount += chunk.rowCount;
+        }
+
+        ColumnStore columnStore = new ColumnStore();
+        columnStore.allocateRows(rowCount);
+        for (int col = 0; col < header.length; col++) {
+            int offset = 0;
+            if (textColumns[col]) {
+                String[] texts = new String[rowCount];
+                for (Chunk chunk : chunks) {
+                    System.arraycopy(chunk.texts[col], 0, texts, offset, chunk.rowCount);
+                    offset += chunk.rowCount;
+                }
+                columnStore.addColumn(header[col], texts);
+            } else {
+                double[] values = new double[rowCount];
+                for (Chunk chunk : chunks) {
+                    System.arraycopy(chunk.values[col], 0, values, offset, chunk.rowCount);
+                    offset += chunk.rowCount;
+                }
+                columnStore.addColumn(header[col], values);
+            }
+        }
+        if (classColumnIndex >= 0) {
+            columnStore.setClassColumnIndex(classColumnIndex);
+        }
+        return columnStore;
+    }
+
+    private static String[] readHeader(FileChannel channel, long headerEnd) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) headerEnd);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            // Keep reading until the whole header line is in the buffer
+        }
+        String line = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+        if (line.endsWith("\r")) {
+            line = line.substring(0, line.length() - 1);
+        }
+        return line.split(",");
+    }
+
+    /**
+     * Splits the bytes between start and size into chunks of roughly the target size, each ending just
+     * after a newline.
+     */
+    private static Chunk[] createChunks(FileChannel channel, long start, long size, long target, int columnCount) throws IOException {
+        target = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, target));
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(start);
+        long position = start;
+        while (size - position > target) {
+            long lineEnd = findLineEnd(channel, position + target, size);
+            if (lineEnd >= size - 1) {
+                break;
+            }
+            position = lineEnd + 1;
+            bounds.add(position);
+        }
+        bounds.add(size);
+
+        Chunk[] chunks = new Chunk[bounds.size() - 1];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = new Chunk(bounds.get(i), bounds.get(i + 1), columnCount);
+        }
+        return chunks;
+    }
+
+    /**
+     * Returns the position of the first newline at or after from, or size when there is none.
+     */
+    private static long findLineEnd(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private final class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final ChunkAction action;
+
+        private ParseTask(int from, int to, ChunkAction action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled) {
+                return;
+            }
+            if (to - from <= 1) {
+                if (from < to) {
+                    try {
+                        action.run(from);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ParseTask(from, middle, action), new ParseTask(middle, to, action));
+        }
+    }
+
+    /**
+     * A newline-aligned byte range of the file together with the columns parsed from it.
+     */
+    private static final class Chunk {
+        private final long start;
+        private final long end;
+        private final int columnCount;
+        private int rowCount;
+        private double[][] values;
+        private String[][] texts;
+        private final boolean[] textSeen;
+        private final NumberParser numberParser = new NumberParser();
+        private byte[] field = new byte[64];
+
+        private Chunk(long start, long end, int columnCount) {
+            this.start = start;
+            this.end = end;
+            this.columnCount = columnCount;
+            this.textSeen = new boolean[columnCount];
+        }
+
+        private void parse(FileChannel channel, boolean[] textColumns, boolean collectText) throws IOException {
+            int capacity = (int) Math.max(16, (end - start) / Math.max(1, columnCount * 4L));
+            if (collectText) {
+                texts = new String[columnCount][];
+                for (int col = 0; col < columnCount; col++) {
+                    if (textColumns[col]) {
+                        texts[col] = new String[rowCount];
+                    }
+                }
+            } else {
+                values = new double[columnCount][capacity];
+            }
+
+            if (end <= start) {
+                return;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            int limit = buffer.limit();
+            int row = 0;
+            int col = 0;
+            int fieldStart = 0;
+            boolean lineHasContent = false;
+
+            for (int i = 0; i <= limit; i++) {
+                byte b = i < limit ? buffer.get(i) : (byte) '\n';
+                if (b != ',' && b != '\n') {
+                    if (b != '\r') {
+                        lineHasContent = true;
+                    }
+                    continue;
+                }
+
+                if (col < columnCount) {
+                    if (!collectText) {
+                        ensureRowCapacity(row);
+                    }
+                    storeField(buffer, fieldStart, i, row, col, textColumns, collectText);
+                }
+                col++;
+                fieldStart = i + 1;
+
+                if (b == '\n') {
+                    if (lineHasContent || col > 1) {
+                        // Short rows are padded with blank cells
+                        for (int c = col; c < columnCount; c++) {
+                            storeMissing(row, c, textColumns, collectText);
+                        }
+                        row++;
+                    }
+                    col = 0;
+                    lineHasContent = false;
+                }
+            }
+
+            if (!collectText) {
+                rowCount = row;
+            }
+        }
+
+        private void ensureRowCapacity(int row) {
+            if (row < values[0].length) {
+                return;
+            }
+            int newCapacity = values[0].length * 2;
+            for (int col = 0; col < columnCount; col++) {
+                values[col] = Arrays.copyOf(values[col], newCapacity);
+            }
+        }
+
+        private void storeField(MappedByteBuffer buffer, int from, int to, int row, int col, boolean[] textColumns, boolean collectText) {
+            if (collectText) {
+                if (textColumns[col]) {
+                    texts[col][row] = decode(buffer, from, to).trim();
+                }
+                return;
+            }
+            if (textColumns[col]) {
+                values[col][row] = Double.NaN;
+                return;
+            }
+            if (numberParser.parse(buffer, from, to) == NumberParser.NOT_A_NUMBER) {
+                textSeen[col] = true;
+            }
+            values[col][row] = numberParser.getValue();
+        }
+
+        private void storeMissing(int row, int col, boolean[] textColumns, boolean collectText) {
+            if (collectText) {
+                if (textColumns[col]) {
+                    texts[col][row] = "";
+                }
+            } else {
+                values[col][row] = Double.NaN;
+            }
+        }
+
+        private String decode(MappedByteBuffer buffer, int from, int to) {
+            int length = to - from;
+            if (length > 0 && buffer.get(to - 1) == '\r') {
+                length--;
+            }
+            if (field.length < length) {
+                field = new byte[Math.max(length, field.length * 2)];
+            }
+            buffer.get(from, field, 0, length);
+            return new String(field, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package src.data;
+
+/**
+ * The DistinctCounter class estimates the number of distinct values of a numeric column in a fixed
+ * 1 KB of memory (a HyperLogLog sketch with 1024 registers, about 3% standard error). Values can only
+ * be added, so after cells are overwritten or removed the estimate counts values that may no longer
+ * be present.
+ */
+final class DistinctCounter {
+
+    private static final int PRECISION = 10;
+    private static final int REGISTER_COUNT = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+
+    private final byte[] registers = new byte[REGISTER_COUNT];
+
+    void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        long hash = mix(Double.doubleToLongBits(value == 0.0 ? 0.0 : value));
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        // The sentinel bit caps the rank when the remaining bits are all zero
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    void addAll(DistinctCounter other) {
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+        if (estimate <= 2.5 * REGISTER_COUNT && zeros > 0) {
+            // Linear counting is more accurate while many registers are still empty
+            estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    DistinctCounter copy() {
+        DistinctCounter copy = new DistinctCounter();
+        System.arraycopy(registers, 0, copy.registers, 0, REGISTER_COUNT);
+        return copy;
+    }
+
+    private static long mix(long bits) {
+        bits ^= bits >>> 33;
+        bits *= 0xff51afd7ed558ccdL;
+        bits ^= bits >>> 33;
+        bits *= 0xc4ceb9fe1a85ec53L;
+        bits ^= bits >>> 33;
+        return bits;
+    }
+}
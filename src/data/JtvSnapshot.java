@@ -0,0 +1,270 @@
+package src.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The JtvSnapshot class writes and reads the binary .jtv snapshot of a ColumnStore. A snapshot holds the
+ * header, the column types, the dictionaries of the categorical columns (including the class column)
+ * and the raw little-endian double and int columns, so reopening it only copies memory-mapped arrays
+ * instead of parsing text.
+ *
+ * Layout, all little endian:
+ * <pre>
+ * int magic "JTV1", int version, long source size, long source mtime (millis),
+ * int rows, int columns, int class column, long data offset,
+ * string display pattern,
+ * per column: byte type, string name, and for categorical columns int count + that many strings,
+ * then from the data offset, per column: rows doubles (numeric) or rows ints (categorical codes)
+ * </pre>
+ * Strings are an int byte length followed by UTF-8 bytes. A snapshot written next to a CSV file records
+ * the size and modification time of that file and is considered stale as soon as either changes.
+ */
+public class JtvSnapshot {
+
+    public static final String EXTENSION = ".jtv";
+
+    private static final int MAGIC = 0x3156544A; // "JTV1" read as a little-endian int
+    private static final int VERSION = 1;
+    private static final int FIXED_HEADER_SIZE = 44;
+    private static final byte NUMERIC = 0;
+    private static final byte CATEGORICAL = 1;
+    private static final int WINDOW_SIZE = 1 << 27;
+
+    private JtvSnapshot() {
+    }
+
+    /**
+     * Returns the sidecar snapshot path for a CSV file, e.g. data.csv.jtv next to data.csv.
+     */
+    public static Path sidecarFor(Path source) {
+        return source.resolveSibling(source.getFileName() + EXTENSION);
+    }
+
+    public static boolean isSnapshot(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith(EXTENSION);
+    }
+
+    /**
+     * Returns true if the snapshot exists and was written from the source file as it is now.
+     */
+    public static boolean isFresh(Path snapshot, Path source) {
+        if (!Files.isRegularFile(snapshot) || !Files.isRegularFile(source)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, 0, FIXED_HEADER_SIZE);
+            if (header == null || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                return false;
+            }
+            return header.getLong(8) == Files.size(source)
+                    && header.getLong(16) == Files.getLastModifiedTime(source).toMillis();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes a snapshot that is not tied to a source file.
+     */
+    public static void write(ColumnStore columnStore, Path snapshot) throws IOException {
+        write(columnStore, snapshot, -1, -1);
+    }
+
+    /**
+     * Writes a snapshot of the store. The file is written under a temporary name first and then moved into
+     * place, so a reader never sees a partly written snapshot.
+     */
+    public static void write(ColumnStore columnStore, Path snapshot, long sourceSize, long sourceModified) throws IOException {
+        int rowCount = columnStore.getRowCount();
+        int columnCount = columnStore.getColumnCount();
+
+        List<byte[]> strings = new ArrayList<>();
+        long headerSize = FIXED_HEADER_SIZE;
+        headerSize += addString(strings, columnStore.getDisplayPattern());
+        for (int col = 0; col < columnCount; col++) {
+            headerSize += 1 + addString(strings, columnStore.getColumnName(col));
+            if (!columnStore.isNumeric(col)) {
+                headerSize += 4;
+                for (int code = 0; code < columnStore.getCategoryCount(col); code++) {
+                    headerSize += addString(strings, columnStore.getCategory(col, code));
+                }
+            }
+        }
+        long dataOffset = (headerSize + 7) & ~7L;
+        if (dataOffset > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot header is too large");
+        }
+
+        ByteBuffer header = ByteBuffer.allocate((int) dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putLong(sourceSize).putLong(sourceModified);
+        header.putInt(rowCount).putInt(columnCount).putInt(columnStore.getClassColumnIndex()).putLong(dataOffset);
+        int next = 0;
+        putString(header, strings.get(next++));
+        for (int col = 0; col < columnCount; col++) {
+            header.put(columnStore.isNumeric(col) ? NUMERIC : CATEGORICAL);
+            putString(header, strings.get(next++));
+            if (!columnStore.isNumeric(col)) {
+                header.putInt(columnStore.getCategoryCount(col));
+                for (int code = 0; code < columnStore.getCategoryCount(col); code++) {
+                    putString(header, strings.get(next++));
+                }
+            }
+        }
+        header.clear();
+
+        Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            for (int col = 0; col < columnCount; col++) {
+                if (columnStore.isNumeric(col)) {
+                    double[] values = columnStore.valuesOf(col);
+                    int perBuffer = buffer.capacity() / Double.BYTES;
+                    for (int from = 0; from < rowCount; from += perBuffer) {
+                        int count = Math.min(perBuffer, rowCount - from);
+                        buffer.clear();
+                        buffer.asDoubleBuffer().put(values, from, count);
+                        buffer.limit(count * Double.BYTES);
+                        writeFully(channel, buffer);
+                    }
+                } else {
+                    int[] codes = columnStore.codesOf(col);
+                    int perBuffer = buffer.capacity() / Integer.BYTES;
+                    for (int from = 0; from < rowCount; from += perBuffer) {
+                        int count = Math.min(perBuffer, rowCount - from);
+                        buffer.clear();
+                        buffer.asIntBuffer().put(codes, from, count);
+                        buffer.limit(count * Integer.BYTES);
+                        writeFully(channel, buffer);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        try {
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public static ColumnStore read(Path snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            ByteBuffer fixed = readFully(channel, 0, FIXED_HEADER_SIZE);
+            if (fixed == null || fixed.getInt(0) != MAGIC) {
+                throw new IOException("Not a JTV snapshot: " + snapshot.getFileName());
+            }
+            if (fixed.getInt(4) != VERSION) {
+                throw new IOException("Unsupported JTV snapshot version " + fixed.getInt(4));
+            }
+            int rowCount = fixed.getInt(24);
+            int columnCount = fixed.getInt(28);
+            int classColumnIndex = fixed.getInt(32);
+            long dataOffset = fixed.getLong(36);
+            long expectedSize = dataOffset;
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, dataOffset);
+            header.order(ByteOrder.LITTLE_ENDIAN).position(FIXED_HEADER_SIZE);
+            String displayPattern = getString(header);
+            byte[] types = new byte[columnCount];
+            String[] names = new String[columnCount];
+            List<List<String>> dictionaries = new ArrayList<>();
+            for (int col = 0; col < columnCount; col++) {
+                types[col] = header.get();
+                names[col] = getString(header);
+                List<String> dictionary = null;
+                if (types[col] == CATEGORICAL) {
+                    int size = header.getInt();
+                    dictionary = new ArrayList<>(size);
+                    for (int code = 0; code < size; code++) {
+                        dictionary.add(getString(header));
+                    }
+                }
+                dictionaries.add(dictionary);
+                expectedSize += (long) rowCount * (types[col] == NUMERIC ? Double.BYTES : Integer.BYTES);
+            }
+            if (channel.size() < expectedSize) {
+                throw new IOException("Truncated JTV snapshot: " + snapshot.getFileName());
+            }
+
+            ColumnStore columnStore = new ColumnStore();
+            columnStore.allocateRows(rowCount);
+            columnStore.setDisplayPattern(displayPattern);
+            long position = dataOffset;
+            for (int col = 0; col < columnCount; col++) {
+                if (types[col] == NUMERIC) {
+                    double[] values = new double[rowCount];
+                    int perWindow = WINDOW_SIZE / Double.BYTES;
+                    for (int from = 0; from < rowCount; from += perWindow) {
+                        int count = Math.min(perWindow, rowCount - from);
+                        channel.map(FileChannel.MapMode.READ_ONLY, position, (long) count * Double.BYTES)
+                                .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(values, from, count);
+                        position += (long) count * Double.BYTES;
+                    }
+                    columnStore.addColumn(names[col], values);
+                } else {
+                    int[] codes = new int[rowCount];
+                    int perWindow = WINDOW_SIZE / Integer.BYTES;
+                    for (int from = 0; from < rowCount; from += perWindow) {
+                        int count = Math.min(perWindow, rowCount - from);
+                        channel.map(FileChannel.MapMode.READ_ONLY, position, (long) count * Integer.BYTES)
+                                .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(codes, from, count);
+                        position += (long) count * Integer.BYTES;
+                    }
+                    columnStore.addColumn(names[col], codes, dictionaries.get(col));
+                }
+            }
+            if (classColumnIndex >= 0) {
+                columnStore.setClassColumnIndex(classColumnIndex);
+            }
+            return columnStore;
+        }
+    }
+
+    private static int addString(List<byte[]> strings, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        strings.add(bytes);
+        return Integer.BYTES + bytes.length;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return null;
+            }
+        }
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
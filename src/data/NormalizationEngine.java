@@ -0,0 +1,172 @@
+package src.data;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The NormalizationEngine class normalizes the numeric columns of a ColumnStore. Each column is summarized
+ * in a single Welford pass (count, min, max, mean and variance together), columns in parallel, and the
+ * result is an offset and divisor per column that the store applies as a lazy view. No normalized copy of
+ * the data is made; blank cells stay blank and categorical columns are left unchanged.
+ *
+ * Supported types are min-max to [0, 1], z-score with the sample standard deviation, and robust scaling
+ * by the median and interquartile range, which is not pulled around by outliers.
+ */
+public class NormalizationEngine {
+
+    public static final String MIN_MAX = "minmax";
+    public static final String Z_SCORE = "zscore";
+    public static final String ROBUST = "robust";
+
+    private NormalizationEngine() {
+    }
+
+    /**
+     * Summary statistics of the non-blank values of a column.
+     */
+    public static final class ColumnSummary {
+        private int count;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double mean;
+        private double m2;
+
+        private void add(double value) {
+            count++;
+            if (value < min) min = value;
+            if (value > max) max = value;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * Returns the sample standard deviation, or 0 for fewer than two values.
+         */
+        public double getStdDev() {
+            return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0.0;
+        }
+    }
+
+    /**
+     * Summarizes the first rowCount entries of a column in one pass, skipping NaN (blank) values.
+     */
+    public static ColumnSummary summarize(double[] values, int rowCount) {
+        ColumnSummary summary = new ColumnSummary();
+        for (int row = 0; row < rowCount; row++) {
+            double value = values[row];
+            if (!Double.isNaN(value)) {
+                summary.add(value);
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * The offset and divisor of every normalized column of a store, as computed by {@link #fit}.
+     */
+    public static final class Normalization {
+        private final String type;
+        private final long version;
+        private final double[] offsets;
+        private final double[] divisors;
+
+        private Normalization(String type, long version, int columnCount) {
+            this.type = type;
+            this.version = version;
+            this.offsets = new double[columnCount];
+            this.divisors = new double[columnCount];
+            Arrays.fill(divisors, Double.NaN); // NaN marks a column that is left as it is
+        }
+
+        /**
+         * Returns true if this normalization was computed with the given type from the store as it is now.
+         */
+        public boolean isCurrent(ColumnStore columnStore, String type) {
+            return this.type.equals(type) && version == columnStore.getVersion() && offsets.length == columnStore.getColumnCount();
+        }
+
+        /**
+         * Switches the store to the normalized view. This only sets two numbers per column.
+         */
+        public void applyTo(ColumnStore columnStore) {
+            columnStore.clearNormalization();
+            for (int col = 0; col < offsets.length; col++) {
+                if (!Double.isNaN(divisors[col])) {
+                    columnStore.setNormalization(col, offsets[col], divisors[col]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the normalization of every numeric column of the store except the skipped column (normally
+     * the class column). The store is not modified; apply the result to switch it to the normalized view.
+     */
+    public static Normalization fit(ColumnStore source, String type, int skipColumn) {
+        int rowCount = source.getRowCount();
+        Normalization normalization = new Normalization(type, source.getVersion(), source.getColumnCount());
+        IntStream.range(0, source.getColumnCount()).parallel().forEach(col -> {
+            if (col == skipColumn || !source.isNumeric(col)) {
+                return;
+            }
+            double[] values = source.valuesOf(col);
+            if (ROBUST.equals(type)) {
+                fitRobust(normalization, col, values, rowCount);
+            } else {
+                ColumnSummary summary = summarize(values, rowCount);
+                if (Z_SCORE.equals(type)) {
+                    normalization.offsets[col] = summary.getMean();
+                    normalization.divisors[col] = summary.getStdDev();
+                } else {
+                    normalization.offsets[col] = summary.getMin();
+                    normalization.divisors[col] = summary.getCount() > 0 ? summary.getMax() - summary.getMin() : 0;
+                }
+            }
+        });
+        return normalization;
+    }
+
+    private static void fitRobust(Normalization normalization, int col, double[] values, int rowCount) {
+        double[] sorted = new double[rowCount];
+        int count = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (!Double.isNaN(values[row])) {
+                sorted[count++] = values[row];
+            }
+        }
+        if (count == 0) {
+            normalization.divisors[col] = 0;
+            return;
+        }
+        Arrays.sort(sorted, 0, count);
+        normalization.offsets[col] = quantile(sorted, count, 0.5);
+        normalization.divisors[col] = quantile(sorted, count, 0.75) - quantile(sorted, count, 0.25);
+    }
+
+    /**
+     * Returns the q-quantile of the first count sorted values, interpolating linearly between ranks.
+     */
+    private static double quantile(double[] sorted, int count, double q) {
+        double position = q * (count - 1);
+        int lower = (int) Math.floor(position);
+        int upper = Math.min(lower + 1, count - 1);
+        return sorted[lower] + (position - lower) * (sorted[upper] - sorted[lower]);
+    }
+}
@@ -0,0 +1,218 @@
+package src.data;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The NumberParser class parses decimal numbers out of a character or byte range without creating
+ * intermediate Strings or throwing exceptions. Each call to parse returns a status code and, for
+ * {@link #NUMBER}, leaves the parsed value in {@link #getValue()}.
+ *
+ * Plain decimals with up to 18 significant digits and a small exponent are converted exactly from a
+ * long mantissa; any other well-formed number falls back to Double.parseDouble so the result always
+ * matches it. Java's float/double suffixes and hexadecimal literals are not treated as numbers. A parser
+ * keeps the last value, so an instance must not be shared between threads.
+ */
+public class NumberParser {
+
+    public static final int NUMBER = 0;
+    public static final int BLANK = 1;
+    public static final int NOT_A_NUMBER = 2;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int MAX_MANTISSA_DIGITS = 18;
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final ByteRange byteRange = new ByteRange();
+    private double value;
+
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Parses the whole text. A null text counts as blank.
+     */
+    public int parse(CharSequence text) {
+        if (text == null) {
+            value = Double.NaN;
+            return BLANK;
+        }
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * Parses the bytes from (inclusive) to (exclusive) of the buffer, read as ASCII.
+     */
+    public int parse(ByteBuffer buffer, int from, int to) {
+        byteRange.buffer = buffer;
+        byteRange.offset = from;
+        byteRange.length = to - from;
+        return parse(byteRange, 0, to - from);
+    }
+
+    /**
+     * Parses the characters from (inclusive) to (exclusive) of the text. Surrounding whitespace is ignored.
+     */
+    public int parse(CharSequence text, int from, int to) {
+        value = Double.NaN;
+        while (from < to && text.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && text.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        if (from == to) {
+            return BLANK;
+        }
+
+        int pos = from;
+        boolean negative = false;
+        char c = text.charAt(pos);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            pos++;
+        }
+        if (pos < to && (text.charAt(pos) == 'N' || text.charAt(pos) == 'I')) {
+            return parseSpecial(text, pos, to, negative);
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean seenPoint = false;
+        boolean exact = true;
+
+        for (; pos < to; pos++) {
+            c = text.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (mantissa == 0 && c == '0') {
+                    // Leading zeros are not significant, but still shift the point
+                    if (seenPoint) {
+                        exponent--;
+                    }
+                    continue;
+                }
+                if (significantDigits < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    significantDigits++;
+                    if (seenPoint) {
+                        exponent--;
+                    }
+                } else {
+                    exact = false;
+                    if (!seenPoint) {
+                        exponent++;
+                    }
+                }
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return NOT_A_NUMBER;
+        }
+
+        if (pos < to && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < to && (text.charAt(pos) == '-' || text.charAt(pos) == '+')) {
+                negativeExponent = text.charAt(pos) == '-';
+                pos++;
+            }
+            int exponentDigits = 0;
+            int explicitExponent = 0;
+            for (; pos < to; pos++) {
+                c = text.charAt(pos);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                exponentDigits++;
+                if (explicitExponent < 100000) {
+                    explicitExponent = explicitExponent * 10 + (c - '0');
+                }
+            }
+            if (exponentDigits == 0) {
+                return NOT_A_NUMBER;
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (pos != to) {
+            return NOT_A_NUMBER;
+        }
+
+        if (mantissa == 0) {
+            value = negative ? -0.0 : 0.0;
+        } else if (exact && mantissa < MAX_EXACT_MANTISSA && Math.abs(exponent) < POWERS_OF_TEN.length) {
+            // Both operands are exact doubles, so a single multiply or divide rounds correctly
+            double result = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+            value = negative ? -result : result;
+        } else {
+            value = Double.parseDouble(text.subSequence(from, to).toString());
+        }
+        return NUMBER;
+    }
+
+    private int parseSpecial(CharSequence text, int pos, int to, boolean negative) {
+        if (matches(text, pos, to, "Infinity")) {
+            value = negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            return NUMBER;
+        }
+        if (matches(text, pos, to, "NaN")) {
+            value = Double.NaN;
+            return NUMBER;
+        }
+        return NOT_A_NUMBER;
+    }
+
+    private static boolean matches(CharSequence text, int from, int to, String word) {
+        if (to - from != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (text.charAt(from + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A reusable view of a byte range as characters, so byte input goes through the same code path.
+     */
+    private static final class ByteRange implements CharSequence {
+        private ByteBuffer buffer;
+        private int offset;
+        private int length;
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(offset + index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            StringBuilder builder = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) {
+                builder.append(charAt(i));
+            }
+            return builder;
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length).toString();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package src.data;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.EventListenerList;
+import java.util.BitSet;
+
+/**
+ * The RowMask class is a set of row indices backed by a BitSet, used for the hidden and selected rows
+ * that the table, the plots and the analytics share. Membership tests are a bit lookup instead of a
+ * List or HashSet search, and listeners are told whenever the set changes so views can refresh.
+ */
+public final class RowMask {
+
+    private final BitSet bits;
+    private final EventListenerList listeners = new EventListenerList();
+
+    public RowMask() {
+        this(new BitSet());
+    }
+
+    private RowMask(BitSet bits) {
+        this.bits = bits;
+    }
+
+    /**
+     * Returns a mask holding the given rows.
+     */
+    public static RowMask of(int[] rows) {
+        BitSet bits = new BitSet();
+        for (int row : rows) {
+            bits.set(row);
+        }
+        return new RowMask(bits);
+    }
+
+    public boolean get(int row) {
+        return bits.get(row);
+    }
+
+    public boolean isEmpty() {
+        return bits.isEmpty();
+    }
+
+    /**
+     * Returns the number of rows in the mask.
+     */
+    public int cardinality() {
+        return bits.cardinality();
+    }
+
+    /**
+     * Returns the first row at or after fromRow that is in the mask, or -1 if there is none.
+     */
+    public int nextSetBit(int fromRow) {
+        return bits.nextSetBit(fromRow);
+    }
+
+    public void set(int row) {
+        if (!bits.get(row)) {
+            bits.set(row);
+            fireStateChanged();
+        }
+    }
+
+    public void clear(int row) {
+        if (bits.get(row)) {
+            bits.clear(row);
+            fireStateChanged();
+        }
+    }
+
+    public void clear() {
+        if (!bits.isEmpty()) {
+            bits.clear();
+            fireStateChanged();
+        }
+    }
+
+    /**
+     * Replaces the content of the mask with the given rows, notifying the listeners once.
+     */
+    public void setAll(BitSet rows) {
+        if (!bits.equals(rows)) {
+            bits.clear();
+            bits.or(rows);
+            fireStateChanged();
+        }
+    }
+
+    /**
+     * Replaces the content of the mask with the given rows, in any order, notifying the listeners once.
+     */
+    public void setAll(int[] rows) {
+        setAll(of(rows).bits);
+    }
+
+    /**
+     * Returns a copy of the rows in the mask.
+     */
+    public BitSet toBitSet() {
+        return (BitSet) bits.clone();
+    }
+
+    /**
+     * Drops the given rows, in any order, and shifts the rows after them down, matching ColumnStore.removeRows.
+     */
+    public void removeRows(int[] rows) {
+        if (rows.length == 0 || bits.isEmpty()) {
+            return;
+        }
+        BitSet removed = of(rows).bits;
+        BitSet kept = compact(bits, removed);
+        if (!bits.equals(kept)) {
+            bits.clear();
+            bits.or(kept);
+            fireStateChanged();
+        }
+    }
+
+    /**
+     * Returns the rows of this mask numbered among the rows that are not in the removed mask, so a
+     * selection in table rows can be looked up in a list that leaves the hidden rows out. Rows that are
+     * themselves removed are dropped.
+     */
+    public RowMask without(RowMask removed) {
+        return new RowMask(compact(bits, removed.bits));
+    }
+
+    private static BitSet compact(BitSet rows, BitSet removed) {
+        BitSet result = new BitSet();
+        int skipped = 0;
+        int nextRemoved = removed.nextSetBit(0);
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            while (nextRemoved >= 0 && nextRemoved < row) {
+                skipped++;
+                nextRemoved = removed.nextSetBit(nextRemoved + 1);
+            }
+            if (nextRemoved != row) {
+                result.set(row - skipped);
+            }
+        }
+        return result;
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(ChangeListener.class, listener);
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        listeners.remove(ChangeListener.class, listener);
+    }
+
+    private void fireStateChanged() {
+        ChangeEvent event = new ChangeEvent(this);
+        for (ChangeListener listener : listeners.getListeners(ChangeListener.class)) {
+            listener.stateChanged(event);
+        }
+    }
+}
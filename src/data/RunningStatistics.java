@@ -0,0 +1,127 @@
+package src.data;
+
+/**
+ * The RunningStatistics class keeps the count, sum, sum of squares, min and max of the non-blank values of
+ * a numeric column while cells are added, removed and overwritten. Every update is O(1); only removing the
+ * current min or max leaves the extremes unknown, and the next read rescans the column once.
+ *
+ * The sums are taken relative to a shift (the first value seen) so the variance does not lose precision on
+ * data with a large mean.
+ */
+final class RunningStatistics {
+
+    private int count;
+    private double shift;
+    private double sum;
+    private double sumOfSquares;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private boolean valid = true;
+
+    void add(double value) {
+        if (Double.isNaN(value) || !valid) {
+            return;
+        }
+        if (count == 0) {
+            shift = value;
+        }
+        count++;
+        double shifted = value - shift;
+        sum += shifted;
+        sumOfSquares += shifted * shifted;
+        if (value < min) min = value;
+        if (value > max) max = value;
+    }
+
+    void remove(double value) {
+        if (Double.isNaN(value) || !valid) {
+            return;
+        }
+        if (value <= min || value >= max) {
+            valid = false; // An extreme is gone, the next read rescans
+            return;
+        }
+        count--;
+        double shifted = value - shift;
+        sum -= shifted;
+        sumOfSquares -= shifted * shifted;
+    }
+
+    void replace(double oldValue, double newValue) {
+        remove(oldValue);
+        add(newValue);
+    }
+
+    void addAll(RunningStatistics other) {
+        if (!valid || !other.valid) {
+            valid = false;
+            return;
+        }
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            shift = other.shift;
+        }
+        // Move the other's sums onto this shift: sum(v - s) = sum(v - s') + n (s' - s)
+        double delta = other.shift - shift;
+        sumOfSquares += other.sumOfSquares + 2 * delta * other.sum + other.count * delta * delta;
+        sum += other.sum + other.count * delta;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Makes sure the statistics describe the first rowCount values, rescanning them if needed.
+     */
+    void update(double[] values, int rowCount) {
+        if (valid) {
+            return;
+        }
+        count = 0;
+        sum = 0;
+        sumOfSquares = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+        valid = true;
+        for (int row = 0; row < rowCount; row++) {
+            add(values[row]);
+        }
+    }
+
+    RunningStatistics copy() {
+        RunningStatistics copy = new RunningStatistics();
+        copy.count = count;
+        copy.shift = shift;
+        copy.sum = sum;
+        copy.sumOfSquares = sumOfSquares;
+        copy.min = min;
+        copy.max = max;
+        copy.valid = valid;
+        return copy;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    double getMin() {
+        return min;
+    }
+
+    double getMax() {
+        return max;
+    }
+
+    double getMean() {
+        return count > 0 ? shift + sum / count : Double.NaN;
+    }
+
+    double getVariance() {
+        if (count < 2) {
+            return 0.0;
+        }
+        return Math.max(0.0, (sumOfSquares - sum * sum / count) / (count - 1));
+    }
+}
@@ -0,0 +1,150 @@
+package src.data;
+
+import java.util.Arrays;
+
+/**
+ * The SortedColumnIndex class lists the rows of a numeric column in ascending order of their values, as
+ * seen through the normalization view, leaving blank cells out. The rows with values in a range are then
+ * a run of consecutive positions that two binary searches find, instead of a scan over every row.
+ *
+ * Values are ordered as by Double.compare, so -0.0 comes before 0.0, and rows with equal values keep
+ * their row order. An index describes the store as it was when it was built; ColumnStore.getSortedIndex
+ * builds a new one after the store or its view changes.
+ */
+public final class SortedColumnIndex {
+
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    private final double[] values;
+    private final int[] rows;
+    private final long version;
+    private final long viewVersion;
+
+    private SortedColumnIndex(double[] values, int[] rows, long version, long viewVersion) {
+        this.values = values;
+        this.rows = rows;
+        this.version = version;
+        this.viewVersion = viewVersion;
+    }
+
+    /**
+     * Sorts the non-blank values of a column with a stable radix sort on their bit patterns.
+     */
+    static SortedColumnIndex build(double[] columnValues, long version, long viewVersion) {
+        int size = 0;
+        for (double value : columnValues) {
+            if (!Double.isNaN(value)) {
+                size++;
+            }
+        }
+        long[] keys = new long[size];
+        int[] rows = new int[size];
+        int position = 0;
+        for (int row = 0; row < columnValues.length; row++) {
+            if (!Double.isNaN(columnValues[row])) {
+                keys[position] = sortableBits(columnValues[row]);
+                rows[position++] = row;
+            }
+        }
+
+        long[] keyBuffer = new long[size];
+        int[] rowBuffer = new int[size];
+        int[] counts = new int[RADIX];
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+            for (long key : keys) {
+                counts[(int) (key >>> shift) & (RADIX - 1)]++;
+            }
+            if (size == 0 || counts[(int) (keys[0] >>> shift) & (RADIX - 1)] == size) {
+                continue; // Every key has the same digit here
+            }
+            int total = 0;
+            for (int digit = 0; digit < RADIX; digit++) {
+                int count = counts[digit];
+                counts[digit] = total;
+                total += count;
+            }
+            for (int i = 0; i < size; i++) {
+                int target = counts[(int) (keys[i] >>> shift) & (RADIX - 1)]++;
+                keyBuffer[target] = keys[i];
+                rowBuffer[target] = rows[i];
+            }
+            long[] swapKeys = keys;
+            keys = keyBuffer;
+            keyBuffer = swapKeys;
+            int[] swapRows = rows;
+            rows = rowBuffer;
+            rowBuffer = swapRows;
+        }
+
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = columnValues[rows[i]];
+        }
+        return new SortedColumnIndex(values, rows, version, viewVersion);
+    }
+
+    /**
+     * Maps a double to a long whose unsigned order is the order of Double.compare.
+     */
+    private static long sortableBits(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+    }
+
+    boolean isCurrent(long version, long viewVersion) {
+        return this.version == version && this.viewVersion == viewVersion;
+    }
+
+    /**
+     * Returns the number of non-blank values.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    public double getValue(int position) {
+        return values[position];
+    }
+
+    public int getRow(int position) {
+        return rows[position];
+    }
+
+    /**
+     * Returns the first position whose value is not below the given value, or size() if there is none.
+     * The rows with values in [start, end) are the positions from lowerBound(start) to lowerBound(end).
+     */
+    public int lowerBound(double value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Double.compare(values[mid], value) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the first position whose value is above the given value, or size() if there is none.
+     * The rows with values in [low, high] are the positions from lowerBound(low) to upperBound(high).
+     */
+    public int upperBound(double value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Double.compare(values[mid], value) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -46,13 +46,16 @@ public class ButtonPanelManager {
     private JButton createFileMenu() {
         JMenuItem loadItem = new JMenuItem("Load CSV");
         JMenuItem exportItem = new JMenuItem("Export CSV");
+        JMenuItem exportSnapshotItem = new JMenuItem("Export JTV Snapshot");
 
         loadItem.addActionListener(e -> csvViewer.loadCsvFile());
         exportItem.addActionListener(e -> csvViewer.exportCsvFile());
+        exportSnapshotItem.addActionListener(e -> csvViewer.exportJtvSnapshot());
 
         JPopupMenu fileMenu = new JPopupMenu();
         fileMenu.add(loadItem);
         fileMenu.add(exportItem);
+        fileMenu.add(exportSnapshotItem);
 
         return UIHelper.createButton("/icons/file.png", "File", e -> fileMenu.show((JComponent) e.getSource(), 0, 0));
     }
@@ -143,6 +146,7 @@ public class ButtonPanelManager {
 
             JMenuItem minMaxItem = new JMenuItem("Min-Max Normalization");
             JMenuItem zScoreItem = new JMenuItem("Z-Score Normalization");
+            JMenuItem robustItem = new JMenuItem("Robust (Median/IQR) Normalization");
             minMaxItem.addActionListener(event -> {
                 csvViewer.getStateManager().setNormalizationType("minmax");
                 csvViewer.dataHandler.setNormalizationType("minmax");
@@ -159,9 +163,18 @@ public class ButtonPanelManager {
                 toggleButton.setIcon(UIHelper.loadIcon("/icons/denormalize.png", 40, 40));
                 toggleButton.setToolTipText("Denormalize");
             });
+            robustItem.addActionListener(event -> {
+                csvViewer.getStateManager().setNormalizationType("robust");
+                csvViewer.dataHandler.setNormalizationType("robust");
+                csvViewer.dataHandler.normalizeOrDenormalizeData(csvViewer.getTable(), csvViewer.getStatsTextArea());
+                csvViewer.getStateManager().setNormalized(true);
+                toggleButton.setIcon(UIHelper.loadIcon("/icons/denormalize.png", 40, 40));
+                toggleButton.setToolTipText("Denormalize");
+            });
             JPopupMenu normalizationMenu = new JPopupMenu();
             normalizationMenu.add(minMaxItem);
             normalizationMenu.add(zScoreItem);
+            normalizationMenu.add(robustItem);
 
             normalizationMenu.show((JComponent) e.getSource(), 0, 0);
         });
@@ -331,7 +344,7 @@ public class ButtonPanelManager {
     }
 
     private JButton createRuleOverlayButton() {
-        return UIHelper.createButton("/icons/ruleplot.png", "Rule Overlay Plot", e -> {
+        return UIHelper.createButton("/icons/ruleplot.png", "Hyperblock Overlay Plot", e -> {
             if (csvViewer.dataHandler.isDataEmpty()) {
                 csvViewer.noDataLoadedError();
             } else {
@@ -1,74 +1,262 @@
 package src.managers;
 
-import src.utils.PureRegionUtils;
+import src.utils.EasyCaseCoverage;
+import src.utils.Hyperblock;
+import src.utils.HyperblockCoverage;
+import src.utils.PureRegionCoverage;
 import src.CsvViewer;
+import src.data.ColumnStore;
+import src.data.RowMask;
 import src.table.NumericStringComparator;
+import src.table.ReorderableTableModel;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import javax.swing.table.TableRowSorter;
 import javax.swing.RowFilter;
 
 public class PureRegionManager {
     private final CsvViewer csvViewer;
-    private final DefaultTableModel tableModel;
+    private final ReorderableTableModel tableModel;
     private final JTextArea statsTextArea;
     private final JSlider thresholdSlider;
-    private Set<Integer> hiddenRows;
+    private final CoverageSearch regionSearch = new CoverageSearch(false);
+    private final CoverageSearch hyperblockSearch = new CoverageSearch(true);
+    private boolean useHyperblocks;
 
-    public PureRegionManager(CsvViewer csvViewer, DefaultTableModel tableModel, JTextArea statsTextArea, JSlider thresholdSlider) {
-        this.csvViewer = csvViewer;
-        this.tableModel = tableModel;
-        this.statsTextArea = statsTextArea;
-        this.thresholdSlider = thresholdSlider;
-        this.hiddenRows = new HashSet<>();
+    /**
+     * Identifies the data pure regions were found for: the store, its version and normalization view, the
+     * class column, and whether they are multi-attribute hyperblocks.
+     */
+    private static final class DataKey {
+        private final ColumnStore columnStore;
+        private final long version;
+        private final long viewVersion;
+        private final int classColumnIndex;
+        private final boolean hyperblocks;
+
+        private DataKey(ColumnStore columnStore, int classColumnIndex, boolean hyperblocks) {
+            this.columnStore = columnStore;
+            this.version = columnStore.getVersion();
+            this.viewVersion = columnStore.getViewVersion();
+            this.classColumnIndex = classColumnIndex;
+            this.hyperblocks = hyperblocks;
+        }
+
+        private boolean isCurrent(ColumnStore columnStore, int classColumnIndex, boolean hyperblocks) {
+            return this.columnStore == columnStore && version == columnStore.getVersion()
+                    && viewVersion == columnStore.getViewVersion() && this.classColumnIndex == classColumnIndex
+                    && this.hyperblocks == hyperblocks;
+        }
     }
 
-    public double calculateAndDisplayPureRegions(int thresholdPercentage) {
-        int classColumnIndex = csvViewer.getClassColumnIndex();
-        if (classColumnIndex == -1) {
-            csvViewer.noDataLoadedError();
-            return 0;
+    /**
+     * Finds either the single-attribute pure regions or the hyperblocks of the table in the background and
+     * keeps those of the latest data. Actions waiting for them run on the EDT once they are found, or wait
+     * for a new search if the data has changed by then. A search for data that has changed since is
+     * cancelled, so only the latest result is kept.
+     */
+    private final class CoverageSearch {
+        private final boolean hyperblocks;
+        private final List<Consumer<EasyCaseCoverage>> waitingActions = new ArrayList<>();
+        private SwingWorker<EasyCaseCoverage, Void> worker;
+        private DataKey workerKey;
+        private EasyCaseCoverage coverage;
+        private DataKey coverageKey;
+
+        private CoverageSearch(boolean hyperblocks) {
+            this.hyperblocks = hyperblocks;
         }
 
-        List<PureRegionUtils> pureRegions = PureRegionUtils.calculatePureRegions(tableModel, thresholdPercentage, classColumnIndex);
+        /**
+         * Returns the coverage of the current data, or null if it has not been found yet.
+         */
+        private EasyCaseCoverage getFound(int classColumnIndex) {
+            if (coverage == null || !coverageKey.isCurrent(tableModel.getColumnStore(), classColumnIndex, hyperblocks)) {
+                return null;
+            }
+            return coverage;
+        }
 
-        int totalRows = tableModel.getRowCount();
-        hiddenRows = new HashSet<>();
-        for (PureRegionUtils region : pureRegions) {
-            for (int row = 0; row < totalRows; row++) {
-                String attributeName = region.getAttributeName();
-                int attributeColumnIndex = tableModel.findColumn(attributeName);
+        /**
+         * Passes the coverage of the current data to the action, now if it is known and otherwise once the
+         * search started or already running for it finishes.
+         */
+        private void whenFound(int classColumnIndex, Consumer<EasyCaseCoverage> action) {
+            EasyCaseCoverage found = getFound(classColumnIndex);
+            if (found != null) {
+                action.accept(found);
+                return;
+            }
+            search(classColumnIndex);
+            waitingActions.add(action);
+        }
 
-                if (attributeColumnIndex != -1) {
-                    try {
-                        double value = Double.parseDouble(tableModel.getValueAt(row, attributeColumnIndex).toString());
-                        String className = tableModel.getValueAt(row, classColumnIndex).toString();
+        /**
+         * Starts searching the current data unless it is already being searched.
+         */
+        private void search(int classColumnIndex) {
+            ColumnStore columnStore = tableModel.getColumnStore();
+            if (worker != null && workerKey.isCurrent(columnStore, classColumnIndex, hyperblocks)) {
+                return; // Already searching this data
+            }
 
-                        if (value >= region.getStart() && value < region.getEnd() && className.equals(region.getCurrentClass())) {
-                            hiddenRows.add(row);
+            cancel();
+            DataKey key = new DataKey(columnStore, classColumnIndex, hyperblocks);
+            // The search runs on a copy, which shares the columns until the table is edited, so the table can be
+            // edited meanwhile without copying the whole store here
+            ColumnStore snapshot = columnStore.copy();
+            SwingWorker<EasyCaseCoverage, Void> search = new SwingWorker<>() {
+                @Override
+                protected EasyCaseCoverage doInBackground() {
+                    return hyperblocks
+                            ? HyperblockCoverage.compute(snapshot, classColumnIndex, ForkJoinPool.commonPool(), this::isCancelled)
+                            : PureRegionCoverage.compute(snapshot, classColumnIndex, ForkJoinPool.commonPool(), this::isCancelled);
+                }
+
+                @Override
+                protected void done() {
+                    if (isCancelled() || worker != this) {
+                        return;
+                    }
+                    worker = null;
+                    workerKey = null;
+                    List<Consumer<EasyCaseCoverage>> actions = new ArrayList<>(waitingActions);
+                    waitingActions.clear();
+                    try {
+                        coverage = get();
+                        coverageKey = key;
+                    } catch (InterruptedException e) {
+                        statsTextArea.append("Error finding pure regions: " + e.getMessage() + "\n");
+                        return;
+                    } catch (ExecutionException e) {
+                        statsTextArea.append("Error finding pure regions: " + e.getCause().getMessage() + "\n");
+                        return;
+                    }
+                    if (CoverageSearch.this == currentSearch()) {
+                        displayPureRegions(coverage.describe(thresholdSlider.getValue()));
+                        csvViewer.updateThresholdLabel();
+                    }
+                    int currentClassColumnIndex = csvViewer.getClassColumnIndex();
+                    for (Consumer<EasyCaseCoverage> action : actions) {
+                        if (key.isCurrent(tableModel.getColumnStore(), currentClassColumnIndex, hyperblocks)) {
+                            action.accept(coverage);
+                        } else if (currentClassColumnIndex != -1) {
+                            whenFound(currentClassColumnIndex, action); // The data changed meanwhile
                         }
-                    } catch (NumberFormatException e) {
-                        // Skip non-numerical values
                     }
                 }
+            };
+            worker = search;
+            workerKey = key;
+            search.execute();
+        }
+
+        private void cancel() {
+            if (worker != null) {
+                worker.cancel(false);
+                worker = null;
+                workerKey = null;
             }
         }
 
-        double remainingCoverage = ((totalRows - hiddenRows.size()) / (double) totalRows) * 100.0;
+        private void clear() {
+            cancel();
+            waitingActions.clear();
+            coverage = null;
+            coverageKey = null;
+        }
+    }
 
-        displayPureRegions(pureRegions);
+    public PureRegionManager(CsvViewer csvViewer, ReorderableTableModel tableModel, JTextArea statsTextArea, JSlider thresholdSlider) {
+        this.csvViewer = csvViewer;
+        this.tableModel = tableModel;
+        this.statsTextArea = statsTextArea;
+        this.thresholdSlider = thresholdSlider;
+        csvViewer.getHiddenRows().addChangeListener(e -> applyRowFilter());
+    }
+
+    /**
+     * Switches between single-attribute pure regions and multi-attribute hyperblocks for the stats area
+     * and the easy cases, and shows the ones for the current threshold.
+     */
+    public void setUseHyperblocks(boolean useHyperblocks) {
+        if (this.useHyperblocks != useHyperblocks) {
+            this.useHyperblocks = useHyperblocks;
+            if (csvViewer.getClassColumnIndex() != -1) {
+                calculateAndDisplayPureRegions(thresholdSlider.getValue());
+            }
+        }
+    }
 
-        return remainingCoverage;
+    public boolean isUsingHyperblocks() {
+        return useHyperblocks;
+    }
+
+    private CoverageSearch currentSearch() {
+        return useHyperblocks ? hyperblockSearch : regionSearch;
+    }
+
+    /**
+     * Shows the pure regions that pass the threshold in the stats area. The regions found for the current
+     * data are kept, so a new threshold only filters them; otherwise they are found in the background and
+     * shown when ready, for the slider's threshold at that time.
+     */
+    public void calculateAndDisplayPureRegions(int thresholdPercentage) {
+        int classColumnIndex = csvViewer.getClassColumnIndex();
+        if (classColumnIndex == -1) {
+            csvViewer.noDataLoadedError();
+            return;
+        }
+
+        EasyCaseCoverage coverage = currentSearch().getFound(classColumnIndex);
+        if (coverage != null) {
+            displayPureRegions(coverage.describe(thresholdPercentage));
+        } else {
+            currentSearch().search(classColumnIndex);
+        }
+    }
+
+    /**
+     * Returns the number of cases left after hiding the easy cases at the given threshold, or -1 if the
+     * regions of the current data have not been found yet.
+     */
+    public int getRemainingCases(int thresholdPercentage) {
+        EasyCaseCoverage coverage = currentSearch().getFound(csvViewer.getClassColumnIndex());
+        return coverage == null ? -1 : coverage.getRemainingCases(thresholdPercentage);
+    }
+
+    /**
+     * Stops running searches and forgets the regions found, e.g. when another dataset is loaded.
+     */
+    public void clearPureRegions() {
+        regionSearch.clear();
+        hyperblockSearch.clear();
+    }
+
+    /**
+     * Passes the hyperblocks of the current data that pass the slider's threshold, largest first, to the
+     * action on the EDT. They are found in the background first if they are not known yet, and the
+     * threshold is read once they are.
+     */
+    public void findHyperblocks(Consumer<List<Hyperblock>> action) {
+        int classColumnIndex = csvViewer.getClassColumnIndex();
+        if (classColumnIndex == -1) {
+            action.accept(Collections.emptyList());
+            return;
+        }
+        hyperblockSearch.whenFound(classColumnIndex,
+                coverage -> action.accept(((HyperblockCoverage) coverage).getHyperblocks(thresholdSlider.getValue())));
     }
 
     public void toggleEasyCases() {
-        if (hiddenRows.isEmpty()) {
+        if (csvViewer.getHiddenRows().isEmpty()) {
             hideEasyCases();
-            csvViewer.updateToggleEasyCasesButton(false);
         } else {
             showEasyCases();
             csvViewer.updateToggleEasyCasesButton(true);
@@ -82,48 +270,25 @@ public class PureRegionManager {
             return;
         }
 
-        int currentThreshold = thresholdSlider.getValue();
-        List<PureRegionUtils> pureRegions = PureRegionUtils.calculatePureRegions(tableModel, currentThreshold, classColumnIndex);
-        Set<Integer> rowsToHide = new HashSet<>();
-
-        for (PureRegionUtils region : pureRegions) {
-            for (int row = 0; row < tableModel.getRowCount(); row++) {
-                String attributeName = region.getAttributeName();
-                int attributeColumnIndex = tableModel.findColumn(attributeName);
-
-                if (attributeColumnIndex != -1) {
-                    try {
-                        double value = Double.parseDouble(tableModel.getValueAt(row, attributeColumnIndex).toString());
-                        String className = tableModel.getValueAt(row, classColumnIndex).toString();
-
-                        if (value >= region.getStart() && value < region.getEnd() && className.equals(region.getCurrentClass())) {
-                            rowsToHide.add(row);
-                        }
-                    } catch (NumberFormatException e) {
-                        // Skip non-numerical values
-                    }
-                }
-            }
-        }
-
-        hiddenRows.clear();
-        hiddenRows.addAll(rowsToHide);
-        applyRowFilter();
-        csvViewer.updateSelectedRowsLabel();
+        // The easy cases are hidden once the regions of the current data are known. The row filter listens
+        // to the shared mask and refreshes the table
+        currentSearch().whenFound(classColumnIndex, coverage -> {
+            csvViewer.getHiddenRows().setAll(coverage.getCoveredRows(thresholdSlider.getValue()));
+            csvViewer.updateToggleEasyCasesButton(false);
+        });
     }
 
     public void showEasyCases() {
-        hiddenRows.clear();
-        applyRowFilter();
-        csvViewer.updateSelectedRowsLabel();
+        csvViewer.getHiddenRows().clear();
     }
 
     public void applyRowFilter() {
-        TableRowSorter<DefaultTableModel> sorter = new TableRowSorter<>(tableModel);
-        sorter.setRowFilter(new RowFilter<DefaultTableModel, Integer>() {
+        RowMask hiddenRows = csvViewer.getHiddenRows();
+        TableRowSorter<ReorderableTableModel> sorter = new TableRowSorter<>(tableModel);
+        sorter.setRowFilter(new RowFilter<ReorderableTableModel, Integer>() {
             @Override
-            public boolean include(Entry<? extends DefaultTableModel, ? extends Integer> entry) {
-                return !hiddenRows.contains(entry.getIdentifier());
+            public boolean include(Entry<? extends ReorderableTableModel, ? extends Integer> entry) {
+                return !hiddenRows.get(entry.getIdentifier());
             }
         });
         // Apply the custom comparator for each column
@@ -134,6 +299,10 @@ public class PureRegionManager {
         csvViewer.updateSelectedRowsLabel();
     }
 
+    /**
+     * Returns the number of cases left after hiding the easy cases at the given threshold, or -1 while the
+     * regions of the current data are still being found; the search is started if it is not running.
+     */
     public int calculateRemainingCases(int threshold) {
         int classColumnIndex = csvViewer.getClassColumnIndex();
         if (classColumnIndex == -1) {
@@ -141,42 +310,18 @@ public class PureRegionManager {
             return 0;
         }
 
-        List<PureRegionUtils> pureRegions = PureRegionUtils.calculatePureRegions(tableModel, threshold, classColumnIndex);
-        Set<Integer> hiddenRows = new HashSet<>();
-
-        for (PureRegionUtils region : pureRegions) {
-            for (int row = 0; row < tableModel.getRowCount(); row++) {
-                String attributeName = region.getAttributeName();
-                int attributeColumnIndex = tableModel.findColumn(attributeName);
-
-                if (attributeColumnIndex != -1) {
-                    try {
-                        double value = Double.parseDouble(tableModel.getValueAt(row, attributeColumnIndex).toString());
-                        String className = tableModel.getValueAt(row, classColumnIndex).toString();
-
-                        if (value >= region.getStart() && value < region.getEnd() && className.equals(region.getCurrentClass())) {
-                            hiddenRows.add(row);
-                        }
-                    } catch (NumberFormatException e) {
-                        // Skip non-numerical values
-                    }
-                }
-            }
+        EasyCaseCoverage coverage = currentSearch().getFound(classColumnIndex);
+        if (coverage == null) {
+            currentSearch().search(classColumnIndex);
+            return -1;
         }
-
-        return tableModel.getRowCount() - hiddenRows.size();
+        return coverage.getRemainingCases(threshold);
     }
 
-    private void displayPureRegions(List<PureRegionUtils> pureRegions) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("Single-Attribute Pure Regions:\n");
-        for (int i = pureRegions.size() - 1; i >= 0; i--) {
-            PureRegionUtils region = pureRegions.get(i);
-            sb.append(String.format("Attribute: %s, Pure Region: %.2f <= %s < %.2f, Class: %s, Count: %d (%.2f%% of class, %.2f%% of dataset)\n",
-                    region.getAttributeName(), region.getStart(), region.getAttributeName(), region.getEnd(),
-                    region.getCurrentClass(), region.getRegionCount(), region.getPercentageOfClass(), region.getPercentageOfDataset()));
-        }
+    private void displayPureRegions(String regionsText) {
+        int caretPosition = statsTextArea.getCaretPosition();
         csvViewer.getDataHandler().updateStats(tableModel, statsTextArea);
-        statsTextArea.append(sb.toString());
+        statsTextArea.append(regionsText);
+        statsTextArea.setCaretPosition(Math.min(caretPosition, statsTextArea.getText().length()));
     }
 }
@@ -4,6 +4,8 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
 
 import src.CsvViewer;
+import src.data.ColumnStore;
+import src.data.NumberParser;
 
 import java.awt.*;
 /**
@@ -16,6 +18,7 @@ public class RendererManager {
     private double[] minValues;
     private double[] maxValues;
     private boolean[] isNumerical;
+    private final NumberParser numberParser = new NumberParser();
 
     /**
      * Constructs a RendererManager for the given CsvViewer instance.
@@ -64,21 +67,22 @@ public class RendererManager {
         isNumerical = new boolean[numColumns];
         int classColumnIndex = csvViewer.getClassColumnIndex();
     
+        ColumnStore columnStore = csvViewer.tableModel.getColumnStore();
         for (int i = 0; i < numColumns; i++) {
             minValues[i] = Double.MAX_VALUE;
             maxValues[i] = Double.MIN_VALUE;
-            isNumerical[i] = true;
+            isNumerical[i] = columnStore.getSchema(i).isFullyNumeric();
         }
     
-        for (int row = 0; row < csvViewer.tableModel.getRowCount(); row++) {
-            for (int col = 0; col < numColumns; col++) {
-                try {
-                    double value = Double.parseDouble(csvViewer.tableModel.getValueAt(row, col).toString());
-                    if (value < minValues[col]) minValues[col] = value;
-                    if (value > maxValues[col]) maxValues[col] = value;
-                } catch (NumberFormatException e) {
-                    isNumerical[col] = false;
-                }
+        // Only the numeric columns are scanned, the schema already tells which ones they are
+        for (int col = 0; col < numColumns; col++) {
+            if (!isNumerical[col]) {
+                continue;
+            }
+            for (int row = 0; row < columnStore.getRowCount(); row++) {
+                double value = columnStore.getDouble(row, col);
+                if (value < minValues[col]) minValues[col] = value;
+                if (value > maxValues[col]) maxValues[col] = value;
             }
         }
     
@@ -97,12 +101,12 @@ public class RendererManager {
                             c.setBackground(Color.decode("#C0C0C0"));
                         }
                     } else if (csvViewer.isHeatmapEnabled() && value != null && !value.toString().trim().isEmpty() && isNumerical[modelColumn]) {
-                        try {
-                            double val = Double.parseDouble(value.toString());
+                        if (numberParser.parse(value.toString()) == NumberParser.NUMBER) {
+                            double val = numberParser.getValue();
                             double normalizedValue = (val - minValues[modelColumn]) / (maxValues[modelColumn] - minValues[modelColumn]);
                             Color color = getColorForValue(normalizedValue);
                             c.setBackground(color);
-                        } catch (NumberFormatException e) {
+                        } else {
                             c.setBackground(Color.decode("#C0C0C0"));
                         }
                     } else {
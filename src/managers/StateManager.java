@@ -1,5 +1,7 @@
 package src.managers;
 
+import src.data.RowMask;
+
 import java.awt.Color;
 import java.awt.Shape;
 import java.util.ArrayList;
@@ -14,7 +16,8 @@ public class StateManager {
     private String normalizationType;
     private boolean heatmapEnabled;
     private boolean classColorEnabled;
-    private List<Integer> hiddenRows;
+    private final RowMask hiddenRows;
+    private final RowMask selectedRows;
     private Map<String, Color> classColors;
     private Map<String, Shape> classShapes;
     private Color cellTextColor;
@@ -27,7 +30,8 @@ public class StateManager {
         this.normalizationType = "minmax";
         this.heatmapEnabled = false;
         this.classColorEnabled = false;
-        this.hiddenRows = new ArrayList<>();
+        this.hiddenRows = new RowMask();
+        this.selectedRows = new RowMask();
         this.classColors = new HashMap<>();
         this.classShapes = new HashMap<>();
         this.cellTextColor = Color.BLACK;
@@ -41,6 +45,7 @@ public class StateManager {
         heatmapEnabled = false;
         classColorEnabled = false;
         hiddenRows.clear();
+        selectedRows.clear();
         classColors.clear();
         classShapes.clear();
         cellTextColor = Color.BLACK;
@@ -95,12 +100,18 @@ public class StateManager {
         this.classColorEnabled = classColorEnabled;
     }
 
-    public List<Integer> getHiddenRows() {
+    /**
+     * Returns the model rows hidden from the table and the plots, shared by every view of the data.
+     */
+    public RowMask getHiddenRows() {
         return hiddenRows;
     }
 
-    public void setHiddenRows(List<Integer> hiddenRows) {
-        this.hiddenRows = hiddenRows;
+    /**
+     * Returns the model rows selected in the table, kept in sync with its selection.
+     */
+    public RowMask getSelectedRows() {
+        return selectedRows;
     }
 
     public Map<String, Color> getClassColors() {
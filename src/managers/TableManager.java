@@ -1,12 +1,12 @@
 package src.managers;
 
 import src.CsvViewer;
+import src.data.ColumnStore;
 import src.table.ReorderableTableModel;
 import src.table.NumericStringComparator;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.TableColumnModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.util.ArrayList;
@@ -22,13 +22,10 @@ public class TableManager {
         this.tableModel = tableModel;
     }
 
-    public void updateTableData(List<String[]> data) {
+    public void updateTableData(ColumnStore data) {
         int currentCaretPosition = csvViewer.getStatsTextArea().getCaretPosition();
 
-        tableModel.setRowCount(0);
-        for (String[] row : data) {
-            tableModel.addRow(row);
-        }
+        tableModel.setColumnStore(data);
 
         List<String> originalColumnNames = new ArrayList<>();
         for (int i = 0; i < tableModel.getColumnCount(); i++) {
@@ -69,17 +66,8 @@ public class TableManager {
             csvViewer.getStateManager().getOriginalColumnNames().remove(modelColumnIndex);
         }
 
-        TableColumnModel columnModel = csvViewer.getTable().getColumnModel();
-        columnModel.removeColumn(columnModel.getColumn(viewColumnIndex));
-
-        for (int row = 0; row < tableModel.getRowCount(); row++) {
-            for (int col = modelColumnIndex; col < tableModel.getColumnCount() - 1; col++) {
-                tableModel.setValueAt(tableModel.getValueAt(row, col + 1), row, col);
-            }
-        }
-
-        tableModel.setColumnCount(tableModel.getColumnCount() - 1);
-        tableModel.setColumnIdentifiers(csvViewer.getStateManager().getOriginalColumnNames().toArray());
+        // Only the column list changes, the cells of the other columns are not touched
+        tableModel.removeColumn(modelColumnIndex);
 
         csvViewer.getDataHandler().updateStats(tableModel, csvViewer.getStatsTextArea());
         csvViewer.updateSelectedRowsLabel();
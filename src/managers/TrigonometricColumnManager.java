@@ -1,21 +1,20 @@
 package src.managers;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableColumnModel;
-import java.util.ArrayList;
-import java.util.List;
+
+import src.data.ColumnStore;
+import src.table.ReorderableTableModel;
 
 public class TrigonometricColumnManager {
     private JTable table;
-    private DefaultTableModel tableModel;
-    private List<String[]> originalData;
-    private List<String> originalColumnNames;
+    private ReorderableTableModel tableModel;
+    private int originalColumnCount = -1;
     private boolean areDifferenceColumnsVisible = false;
 
     public TrigonometricColumnManager(JTable table) {
         this.table = table;
-        this.tableModel = (DefaultTableModel) table.getModel();
+        this.tableModel = (ReorderableTableModel) table.getModel();
     }
 
     public void toggleTrigonometricColumns(boolean isNormalized, Runnable normalizeData, Runnable updateTableData) {
@@ -73,19 +72,8 @@ public class TrigonometricColumnManager {
 
     private void addTrigonometricColumns(String mode, boolean isInverse) {
         if (!areDifferenceColumnsVisible) {
-            // Save the original data and column names before adding new columns
-            originalData = new ArrayList<>();
-            originalColumnNames = new ArrayList<>();
-            for (int row = 0; row < tableModel.getRowCount(); row++) {
-                String[] rowData = new String[tableModel.getColumnCount()];
-                for (int col = 0; col < tableModel.getColumnCount(); col++) {
-                    rowData[col] = tableModel.getValueAt(row, col).toString();
-                }
-                originalData.add(rowData);
-            }
-            for (int col = 0; col < tableModel.getColumnCount(); col++) {
-                originalColumnNames.add(tableModel.getColumnName(col));
-            }
+            // The new columns are appended after the original ones, so remembering the count is enough to remove them
+            originalColumnCount = tableModel.getColumnCount();
         }
 
         int numRows = tableModel.getRowCount();
@@ -125,6 +113,7 @@ public class TrigonometricColumnManager {
         }
 
         // Populate the new columns with trigonometric values
+        ColumnStore columnStore = tableModel.getColumnStore();
         for (int row = 0; row < numRows; row++) {
             int newColIndex = numCols;
 
@@ -134,62 +123,57 @@ public class TrigonometricColumnManager {
 
                 if (col1 == classColumnIndex) continue;
 
-                try {
-                    double value1 = Double.parseDouble(tableModel.getValueAt(row, col1).toString());
-                    double value2 = 0;
-
-                    switch (mode) {
-                        case "Direct":
-                            value2 = value1;
-                            break;
-
-                        case "Forward Differences":
-                            col2 = (i + 1) % numCols;
-                            if (col2 == classColumnIndex) col2 = (col2 + 1) % numCols;
-                            value2 = Double.parseDouble(tableModel.getValueAt(row, col2).toString());
-                            value1 = value2 - value1;
-                            break;
-
-                        case "Backward Differences":
-                            col2 = (i - 1 + numCols) % numCols;
-                            if (col2 == classColumnIndex) col2 = (col2 - 1 + numCols) % numCols;
-                            value2 = Double.parseDouble(tableModel.getValueAt(row, col2).toString());
-                            value1 = value1 - value2;
-                            break;
-                    }
-
-                    double cosValue = Math.cos(value1);
-                    double sinValue = Math.sin(value1);
-                    double tanValue = Math.tan(value1);
-
-                    if (isInverse) {
-                        cosValue = Math.acos(value1);
-                        sinValue = Math.asin(value1);
-                        tanValue = Math.atan(value1);
-                    }
-
-                    tableModel.setValueAt(cosValue, row, newColIndex++);
-                    tableModel.setValueAt(sinValue, row, newColIndex++);
-                    tableModel.setValueAt(tanValue, row, newColIndex++);
-                } catch (NumberFormatException | NullPointerException e) {
+                // Blank and categorical cells read as NaN and leave the new cells blank
+                double value1 = columnStore.getDouble(row, col1);
+                double value2 = 0;
+
+                switch (mode) {
+                    case "Direct":
+                        value2 = value1;
+                        break;
+
+                    case "Forward Differences":
+                        col2 = (i + 1) % numCols;
+                        if (col2 == classColumnIndex) col2 = (col2 + 1) % numCols;
+                        value2 = columnStore.getDouble(row, col2);
+                        value1 = value2 - value1;
+                        break;
+
+                    case "Backward Differences":
+                        col2 = (i - 1 + numCols) % numCols;
+                        if (col2 == classColumnIndex) col2 = (col2 - 1 + numCols) % numCols;
+                        value2 = columnStore.getDouble(row, col2);
+                        value1 = value1 - value2;
+                        break;
+                }
+
+                if (Double.isNaN(value1)) {
                     tableModel.setValueAt("", row, newColIndex++);
                     tableModel.setValueAt("", row, newColIndex++);
                     tableModel.setValueAt("", row, newColIndex++);
+                    continue;
                 }
+
+                double cosValue = Math.cos(value1);
+                double sinValue = Math.sin(value1);
+                double tanValue = Math.tan(value1);
+
+                if (isInverse) {
+                    cosValue = Math.acos(value1);
+                    sinValue = Math.asin(value1);
+                    tanValue = Math.atan(value1);
+                }
+
+                tableModel.setValueAt(cosValue, row, newColIndex++);
+                tableModel.setValueAt(sinValue, row, newColIndex++);
+                tableModel.setValueAt(tanValue, row, newColIndex++);
             }
         }
     }
 
     private void removeTrigonometricColumns() {
-        if (originalData != null && originalColumnNames != null) {
-            tableModel.setColumnCount(0);
-            for (String colName : originalColumnNames) {
-                tableModel.addColumn(colName);
-            }
-            tableModel.setRowCount(0);
-            for (String[] rowData : originalData) {
-                tableModel.addRow(rowData);
-            }
+        if (originalColumnCount >= 0) {
+            tableModel.setColumnCount(originalColumnCount);
         }
     }
 
@@ -3,18 +3,33 @@ package src.managers;
 import src.CsvViewer;
 import src.DecisionTree;
 import src.DecisionTree.TreeNode;
+import src.RandomForest;
+import src.data.ClassCodes;
+import src.data.ColumnStore;
+import src.data.RowMask;
 import src.plots.*;
-import src.utils.PureRegionUtils;
 
 import javax.swing.table.TableColumnModel;
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.GridLayout;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.swing.*;
 
 public class VisualizationManager {
 
+    private static final long RANDOM_FOREST_SEED = 1L;
+
     private final CsvViewer csvViewer;
+    private int treeMaxDepth = 0;
+    private int treeMinSamplesLeaf = 1;
+    private double treeMinGain = 0.0;
+    private boolean treeBinned = false;
+    private int forestTreeCount = 1;
 
     public VisualizationManager(CsvViewer csvViewer) {
         this.csvViewer = csvViewer;
@@ -25,169 +40,40 @@ public class VisualizationManager {
             csvViewer.noDataLoadedError();
             return;
         }
-    
-        List<List<Double>> numericalData = new ArrayList<>();
-        List<String> attributeNames = new ArrayList<>();
-        List<String> classLabels = new ArrayList<>();
-    
-        int classColumnIndex = csvViewer.getClassColumnIndex();
-        TableColumnModel columnModel = csvViewer.table.getColumnModel();
-    
-        // Respect the order of attributes as in the JTable (tabular view)
-        for (int col = 0; col < columnModel.getColumnCount(); col++) {
-            int modelIndex = csvViewer.table.convertColumnIndexToModel(col);
-            if (modelIndex != classColumnIndex) {
-                boolean isNumeric = true;
-                List<Double> columnData = new ArrayList<>();
-                for (int row = 0; row < csvViewer.tableModel.getRowCount(); row++) {
-                    if (!csvViewer.getHiddenRows().contains(row)) {
-                        try {
-                            columnData.add(Double.parseDouble(csvViewer.tableModel.getValueAt(row, modelIndex).toString()));
-                        } catch (NumberFormatException e) {
-                            isNumeric = false;
-                            break;
-                        }
-                    }
-                }
-                if (isNumeric) {
-                    numericalData.add(columnData);
-                    attributeNames.add(csvViewer.tableModel.getColumnName(modelIndex));
-                }
-            }
-        }
-    
-        for (int row = 0; row < csvViewer.tableModel.getRowCount(); row++) {
-            if (!csvViewer.getHiddenRows().contains(row)) {
-                classLabels.add((String) csvViewer.tableModel.getValueAt(row, classColumnIndex));
-            }
-        }
-    
-        List<Integer> selectedRows = csvViewer.getSelectedRowsIndices();
-        selectedRows.removeIf(csvViewer.getHiddenRows()::contains);
-    
-        StarCoordinatesPlot starCoordinatesPlot = new StarCoordinatesPlot(numericalData, attributeNames, csvViewer.getClassColors(), csvViewer.getClassShapes(), classLabels, selectedRows, csvViewer.getDatasetName());
+
+        PlotData plotData = collectPlotData(false);
+        StarCoordinatesPlot starCoordinatesPlot = new StarCoordinatesPlot(plotData.data, plotData.attributeNames, csvViewer.getClassColors(), csvViewer.getClassShapes(), plotData.classCodes, plotData.selectedRows, csvViewer.getDatasetName());
         starCoordinatesPlot.setVisible(true);
     }
     
+    /**
+     * Shows the parallel coordinates plot with the hyperblocks that pass the threshold drawn over it, once
+     * the hyperblocks of the current data are found.
+     */
     public void showRuleOverlayPlot() {
-        TableColumnModel columnModel = csvViewer.table.getColumnModel();
-        int columnCount = columnModel.getColumnCount();
-        String[] columnNames = new String[columnCount];
-        int[] columnOrder = new int[columnCount];
-        for (int i = 0; i < columnCount; i++) {
-            columnNames[i] = columnModel.getColumn(i).getHeaderValue().toString();
-            columnOrder[i] = csvViewer.table.convertColumnIndexToModel(i);
-        }
-
-        List<String[]> data = new ArrayList<>();
-        for (int row = 0; row < csvViewer.tableModel.getRowCount(); row++) {
-            if (!csvViewer.getHiddenRows().contains(row)) {
-                String[] rowData = new String[columnCount];
-                for (int col = 0; col < columnCount; col++) {
-                    Object value = csvViewer.tableModel.getValueAt(row, col);
-                    rowData[col] = value != null ? value.toString() : "";
-                }
-                data.add(rowData);
-            }
+        if (csvViewer.getClassColumnIndex() == -1) {
+            csvViewer.noDataLoadedError();
+            return;
         }
-
-        List<Integer> selectedRows = csvViewer.getSelectedRowsIndices();
-        selectedRows.removeIf(csvViewer.getHiddenRows()::contains);
-
-        // TODO: will we keep this feature as we are not using it currently and moving towards decision tree space visualization?
-        List<PureRegionUtils> pureRegions = PureRegionUtils.calculatePureRegions(csvViewer.tableModel, csvViewer.thresholdSlider.getValue(), csvViewer.getClassColumnIndex());
-
-        //ParallelCoordinatesPlot plot = new ParallelCoordinatesPlot(data, columnNames, csvViewer.getClassColors(), csvViewer.getClassColumnIndex(), columnOrder, selectedRows, csvViewer.getClassShapes(), csvViewer.getDatasetName());
-        //plot.setPureRegionsOverlay(pureRegions);
-        //plot.setVisible(true);
+        csvViewer.getPureRegionManager().findHyperblocks(hyperblocks -> {
+            ParallelCoordinatesPlot plot = createParallelCoordinatesPlot();
+            plot.setHyperblocks(hyperblocks);
+            plot.setTitle("Hyperblock Overlay Plot");
+            plot.setSize(800, 800);
+            plot.setVisible(true);
+        });
     }
 
     public void showShiftedPairedCoordinates() {
-        List<List<Double>> data = new ArrayList<>();
-        List<String> attributeNames = new ArrayList<>();
-        List<String> classLabels = new ArrayList<>();
-
-        TableColumnModel columnModel = csvViewer.table.getColumnModel();
-        int columnCount = columnModel.getColumnCount();
-        int[] columnOrder = new int[columnCount];
-        for (int i = 0; i < columnCount; i++) {
-            columnOrder[i] = csvViewer.table.convertColumnIndexToModel(i);
-        }
-
-        for (int col = 0; col < columnOrder.length; col++) {
-            boolean isNumeric = true;
-            List<Double> columnData = new ArrayList<>();
-            for (int row = 0; row < csvViewer.tableModel.getRowCount(); row++) {
-                if (!csvViewer.getHiddenRows().contains(row)) {
-                    try {
-                        columnData.add(Double.parseDouble(csvViewer.tableModel.getValueAt(row, columnOrder[col]).toString()));
-                    } catch (NumberFormatException e) {
-                        isNumeric = false;
-                        break;
-                    }
-                }
-            }
-            if (isNumeric) {
-                data.add(columnData);
-                attributeNames.add(csvViewer.tableModel.getColumnName(columnOrder[col]));
-            }
-        }
-
-        for (int row = 0; row < csvViewer.tableModel.getRowCount(); row++) {
-            if (!csvViewer.getHiddenRows().contains(row)) {
-                classLabels.add((String) csvViewer.tableModel.getValueAt(row, csvViewer.getClassColumnIndex()));
-            }
-        }
-
-        int numPlots = (attributeNames.size() + 1) / 2;
-        List<Integer> selectedRows = csvViewer.getSelectedRowsIndices();
-        selectedRows.removeIf(csvViewer.getHiddenRows()::contains);
-
-        ShiftedPairedCoordinatesPlot shiftedPairedCoordinates = new ShiftedPairedCoordinatesPlot(data, attributeNames, csvViewer.getClassColors(), csvViewer.getClassShapes(), classLabels, numPlots, selectedRows, csvViewer.getDatasetName(), csvViewer.getTable());
+        PlotData plotData = collectPlotData(true);
+        int numPlots = (plotData.attributeNames.size() + 1) / 2;
+        ShiftedPairedCoordinatesPlot shiftedPairedCoordinates = new ShiftedPairedCoordinatesPlot(plotData.data, plotData.attributeNames, csvViewer.getClassColors(), csvViewer.getClassShapes(), plotData.classCodes, numPlots, plotData.selectedRows, csvViewer.getDatasetName(), csvViewer.getTable());
         shiftedPairedCoordinates.setVisible(true);
     }
 
     public void showCircularCoordinatesPlot() {
-        List<List<Double>> data = new ArrayList<>();
-        List<String> attributeNames = new ArrayList<>();
-        List<String> classLabels = new ArrayList<>();
-
-        TableColumnModel columnModel = csvViewer.table.getColumnModel();
-        int columnCount = columnModel.getColumnCount();
-        int[] columnOrder = new int[columnCount];
-        for (int i = 0; i < columnCount; i++) {
-            columnOrder[i] = csvViewer.table.convertColumnIndexToModel(i);
-        }
-
-        for (int col = 0; col < columnOrder.length; col++) {
-            boolean isNumeric = true;
-            List<Double> columnData = new ArrayList<>();
-            for (int row = 0; row < csvViewer.tableModel.getRowCount(); row++) {
-                if (!csvViewer.getHiddenRows().contains(row)) {
-                    try {
-                        columnData.add(Double.parseDouble(csvViewer.tableModel.getValueAt(row, columnOrder[col]).toString()));
-                    } catch (NumberFormatException e) {
-                        isNumeric = false;
-                        break;
-                    }
-                }
-            }
-            if (isNumeric) {
-                data.add(columnData);
-                attributeNames.add(csvViewer.tableModel.getColumnName(columnOrder[col]));
-            }
-        }
-
-        for (int row = 0; row < csvViewer.tableModel.getRowCount(); row++) {
-            if (!csvViewer.getHiddenRows().contains(row)) {
-                classLabels.add((String) csvViewer.tableModel.getValueAt(row, csvViewer.getClassColumnIndex()));
-            }
-        }
-
-        List<Integer> selectedRows = csvViewer.getSelectedRowsIndices();
-        selectedRows.removeIf(csvViewer.getHiddenRows()::contains);
-
-        CircularCoordinatesPlot plot = new CircularCoordinatesPlot(data, attributeNames, csvViewer.getClassColors(), csvViewer.getClassShapes(), classLabels, selectedRows, csvViewer.getDatasetName());
+        PlotData plotData = collectPlotData(true);
+        CircularCoordinatesPlot plot = new CircularCoordinatesPlot(plotData.data, plotData.attributeNames, csvViewer.getClassColors(), csvViewer.getClassShapes(), plotData.classCodes, plotData.selectedRows, csvViewer.getDatasetName());
         plot.setVisible(true);
     }
 
@@ -197,68 +83,200 @@ public class VisualizationManager {
             return;
         }
 
-        List<List<Double>> numericalData = new ArrayList<>();
-        List<String> attributeNames = new ArrayList<>();
-        List<String> classLabels = new ArrayList<>();
+        ParallelCoordinatesPlot plot = createParallelCoordinatesPlot();
+        plot.setSize(800, 800);
+        plot.setVisible(true);
+    }
 
+    private ParallelCoordinatesPlot createParallelCoordinatesPlot() {
+        PlotData plotData = collectPlotData(false);
+        return new ParallelCoordinatesPlot(
+            plotData.data,         // List<List<Double>>
+            plotData.attributeNames, // List<String>
+            csvViewer.getClassColors(), // Map<String, Color>
+            csvViewer.getClassShapes(), // Map<String, Shape>
+            plotData.classCodes,   // ClassCodes
+            plotData.selectedRows, // RowMask
+            csvViewer.getDatasetName() // String
+        );
+    }
+
+    /**
+     * The numeric columns, class codes and selection of the rows that are not hidden, with the columns in
+     * the order of the table, as the plots take them.
+     */
+    private static final class PlotData {
+        private final List<List<Double>> data = new ArrayList<>();
+        private final List<String> attributeNames = new ArrayList<>();
+        private ClassCodes classCodes;
+        private RowMask selectedRows;
+    }
+
+    /**
+     * Collects the plot data of the visible rows. The class column is among the attributes only if
+     * includeClassColumn is set and it is numeric.
+     */
+    private PlotData collectPlotData(boolean includeClassColumn) {
+        PlotData plotData = new PlotData();
+        ColumnStore columnStore = csvViewer.tableModel.getColumnStore();
+        RowMask hiddenRows = csvViewer.getHiddenRows();
         int classColumnIndex = csvViewer.getClassColumnIndex();
         TableColumnModel columnModel = csvViewer.table.getColumnModel();
 
         // Respect the order of attributes as in the JTable (tabular view)
         for (int col = 0; col < columnModel.getColumnCount(); col++) {
             int modelIndex = csvViewer.table.convertColumnIndexToModel(col);
-            if (modelIndex != classColumnIndex) {
-                boolean isNumeric = true;
+            if ((includeClassColumn || modelIndex != classColumnIndex) && columnStore.getSchema(modelIndex).isFullyNumeric()) {
                 List<Double> columnData = new ArrayList<>();
-                for (int row = 0; row < csvViewer.tableModel.getRowCount(); row++) {
-                    if (!csvViewer.getHiddenRows().contains(row)) {
-                        try {
-                            columnData.add(Double.parseDouble(csvViewer.tableModel.getValueAt(row, modelIndex).toString()));
-                        } catch (NumberFormatException e) {
-                            isNumeric = false;
-                            break;
-                        }
+                for (int row = 0; row < columnStore.getRowCount(); row++) {
+                    if (!hiddenRows.get(row)) {
+                        columnData.add(columnStore.getDouble(row, modelIndex));
                     }
                 }
-                if (isNumeric) {
-                    numericalData.add(columnData);
-                    attributeNames.add(csvViewer.tableModel.getColumnName(modelIndex));
-                }
+                plotData.data.add(columnData);
+                plotData.attributeNames.add(columnStore.getColumnName(modelIndex));
             }
         }
 
-        for (int row = 0; row < csvViewer.tableModel.getRowCount(); row++) {
-            if (!csvViewer.getHiddenRows().contains(row)) {
-                classLabels.add((String) csvViewer.tableModel.getValueAt(row, classColumnIndex));
-            }
+        // The plots only get the visible rows, so the class codes and the selection are renumbered to match
+        plotData.classCodes = ClassCodes.of(columnStore, classColumnIndex).without(hiddenRows);
+        plotData.selectedRows = csvViewer.getSelectedRows().without(hiddenRows);
+        return plotData;
+    }
+
+    /**
+     * Asks for the stopping rules of the tree and builds it, or a random forest if more than one tree is
+     * asked for, in the background on a copy of the data, with a progress monitor that can cancel the
+     * build. The result is shown once it is done.
+     */
+    public void showDecisionTreeVisualization() {
+        int labelColumnIndex = csvViewer.getClassColumnIndex();
+        if (csvViewer.tableModel.getColumnCount() == 0 || labelColumnIndex == -1) {
+            csvViewer.noDataLoadedError();
+            return;
+        }
+        if (!showDecisionTreeSettingsDialog()) {
+            return;
         }
+        DecisionTree.Limits limits = new DecisionTree.Limits(treeMaxDepth == 0 ? Integer.MAX_VALUE : treeMaxDepth, treeMinSamplesLeaf, treeMinGain);
+        boolean binned = treeBinned;
+        int treeCount = forestTreeCount;
+
+        // The copy shares the columns until the table is edited, so taking it does not hold up the EDT
+        ColumnStore columnStore = csvViewer.tableModel.getColumnStore().copy();
+        List<String> attributeNames = columnStore.getColumnNames();
+        if (treeCount > 1) {
+            SwingWorker<RandomForest, Void> worker = new SwingWorker<>() {
+                @Override
+                protected RandomForest doInBackground() {
+                    return new RandomForest(columnStore, attributeNames, labelColumnIndex, treeCount, limits, binned,
+                            RANDOM_FOREST_SEED, ForkJoinPool.commonPool(), this::isCancelled, this::setProgress);
+                }
 
-        List<Integer> selectedRows = csvViewer.getSelectedRowsIndices();
-        selectedRows.removeIf(csvViewer.getHiddenRows()::contains);
+                @Override
+                protected void done() {
+                    if (isCancelled()) {
+                        return;
+                    }
+                    try {
+                        showRandomForest(get(), attributeNames);
+                    } catch (InterruptedException | ExecutionException e) {
+                        JOptionPane.showMessageDialog(csvViewer, "Error building random forest: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            };
+            runWithProgressMonitor(worker, "Building random forest...");
+            return;
+        }
 
-        ParallelCoordinatesPlot plot = new ParallelCoordinatesPlot(
-            numericalData,         // List<List<Double>>
-            attributeNames,        // List<String>
-            csvViewer.getClassColors(), // Map<String, Color>
-            csvViewer.getClassShapes(), // Map<String, Shape>
-            classLabels,           // List<String>
-            selectedRows,          // List<Integer>
-            csvViewer.getDatasetName() // String
-        );
-        plot.setSize(800, 800);
-        plot.setVisible(true);
+        SwingWorker<DecisionTree.TreeNode, Void> worker = new SwingWorker<>() {
+            private double accuracy;
+
+            @Override
+            protected DecisionTree.TreeNode doInBackground() {
+                DecisionTree decisionTree = new DecisionTree(columnStore, attributeNames, labelColumnIndex, limits, binned,
+                        ForkJoinPool.commonPool(), this::isCancelled, this::setProgress);
+                if (!isCancelled()) {
+                    accuracy = decisionTree.compile().predictAll(columnStore, labelColumnIndex, ForkJoinPool.commonPool()).getAccuracy();
+                }
+                return decisionTree.getRoot();
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    showDecisionTree(get(), attributeNames, accuracy);
+                } catch (InterruptedException | ExecutionException e) {
+                    JOptionPane.showMessageDialog(csvViewer, "Error building decision tree: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        runWithProgressMonitor(worker, "Building decision tree...");
     }
 
-    public void showDecisionTreeVisualization() {
+    /**
+     * Runs the worker with a progress monitor that follows its progress and cancels it when asked to.
+     */
+    private void runWithProgressMonitor(SwingWorker<?, ?> worker, String message) {
+        ProgressMonitor progressMonitor = new ProgressMonitor(csvViewer, message, null, 0, 100);
+        // The monitor is only asked about cancelling on the EDT, so a timer polls it
+        Timer cancelTimer = new Timer(200, e -> {
+            if (progressMonitor.isCanceled()) {
+                worker.cancel(false);
+            }
+        });
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                progressMonitor.setProgress((Integer) e.getNewValue());
+            } else if ("state".equals(e.getPropertyName()) && e.getNewValue() == SwingWorker.StateValue.DONE) {
+                cancelTimer.stop();
+                progressMonitor.close();
+            }
+        });
+        cancelTimer.start();
+        worker.execute();
+    }
 
-        List<String> attributeNames = new ArrayList<>();
-        for (int i = 0; i < csvViewer.getTable().getColumnCount(); i++) {
-            attributeNames.add(csvViewer.getTable().getColumnName(i));
+    /**
+     * Asks for the stopping rules and split search of the tree, keeping the choices for the next tree, and
+     * returns false if the dialog was cancelled.
+     */
+    private boolean showDecisionTreeSettingsDialog() {
+        JPanel panel = new JPanel(new GridLayout(0, 2, 5, 5));
+        JSpinner maxDepthSpinner = new JSpinner(new SpinnerNumberModel(treeMaxDepth, 0, 1000, 1));
+        JSpinner minSamplesLeafSpinner = new JSpinner(new SpinnerNumberModel(treeMinSamplesLeaf, 1, Integer.MAX_VALUE, 1));
+        JSpinner minGainSpinner = new JSpinner(new SpinnerNumberModel(treeMinGain, 0.0, 1.0, 0.001));
+        minGainSpinner.setEditor(new JSpinner.NumberEditor(minGainSpinner, "0.000"));
+        panel.add(new JLabel("Max depth (0 = no limit):"));
+        panel.add(maxDepthSpinner);
+        panel.add(new JLabel("Min cases per leaf:"));
+        panel.add(minSamplesLeafSpinner);
+        panel.add(new JLabel("Min Gini gain:"));
+        panel.add(minGainSpinner);
+        JSpinner treeCountSpinner = new JSpinner(new SpinnerNumberModel(forestTreeCount, 1, 1000, 1));
+        panel.add(new JLabel("Trees (more than 1 = random forest):"));
+        panel.add(treeCountSpinner);
+        JCheckBox binnedCheckBox = new JCheckBox("Binned split search", treeBinned);
+        binnedCheckBox.setToolTipText("Search splits over " + DecisionTree.MAX_BINS + " quantile bins per attribute, for large datasets");
+        panel.add(binnedCheckBox);
+
+        int result = JOptionPane.showConfirmDialog(csvViewer, panel, "Decision Tree Settings", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) {
+            return false;
         }
-        int labelColumnIndex = csvViewer.getClassColumnIndex();
-        DecisionTree decisionTree = new DecisionTree(csvViewer.getDataHandler().isDataNormalized() ? csvViewer.getDataHandler().getNormalizedData() : csvViewer.getDataHandler().getOriginalData(), attributeNames, labelColumnIndex);
-        TreeNode root = decisionTree.getRoot();
-        JFrame frame = new JFrame("Decision Tree Visualization");
+        treeMaxDepth = (int) maxDepthSpinner.getValue();
+        treeMinSamplesLeaf = (int) minSamplesLeafSpinner.getValue();
+        treeMinGain = (double) minGainSpinner.getValue();
+        treeBinned = binnedCheckBox.isSelected();
+        forestTreeCount = (int) treeCountSpinner.getValue();
+        return true;
+    }
+
+    private void showDecisionTree(TreeNode root, List<String> attributeNames, double accuracy) {
+        JFrame frame = new JFrame(String.format("Decision Tree Visualization (training accuracy %.2f%%)", accuracy * 100));
         DecisionTreeVisualizationPanel treePanel = new DecisionTreeVisualizationPanel(root, attributeNames, csvViewer.getClassColors());
 
         JScrollPane scrollPane = new JScrollPane(treePanel);
@@ -271,108 +289,77 @@ public class VisualizationManager {
         frame.setVisible(true);
     }
 
-    public void showConcentricCoordinatesPlot() {
-        if (csvViewer.tableModel.getColumnCount() == 0) {
-            csvViewer.noDataLoadedError();
-            return;
-        }
+    /**
+     * Shows one tree of the forest at a time, with a spinner to browse the trees and the feature
+     * importance of the whole forest beside it.
+     */
+    private void showRandomForest(RandomForest forest, List<String> attributeNames) {
+        List<DecisionTree> trees = forest.getTrees();
+        JFrame frame = new JFrame(String.format("Random Forest (%d trees, out-of-bag accuracy %.2f%%)",
+                trees.size(), forest.getOutOfBagAccuracy() * 100));
 
-        List<List<Double>> data = new ArrayList<>();
-        List<String> attributeNames = new ArrayList<>();
-        List<String> classLabels = new ArrayList<>();
-
-        TableColumnModel columnModel = csvViewer.table.getColumnModel();
-        int columnCount = columnModel.getColumnCount();
-        int[] columnOrder = new int[columnCount];
-        for (int i = 0; i < columnCount; i++) {
-            columnOrder[i] = csvViewer.table.convertColumnIndexToModel(i);
-        }
+        JScrollPane scrollPane = new JScrollPane(new DecisionTreeVisualizationPanel(trees.get(0).getRoot(), attributeNames, csvViewer.getClassColors()));
+        scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
+        scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_ALWAYS);
 
-        for (int col = 0; col < columnOrder.length; col++) {
-            boolean isNumeric = true;
-            List<Double> columnData = new ArrayList<>();
-            for (int row = 0; row < csvViewer.tableModel.getRowCount(); row++) {
-                if (!csvViewer.getHiddenRows().contains(row)) {
-                    try {
-                        columnData.add(Double.parseDouble(csvViewer.tableModel.getValueAt(row, columnOrder[col]).toString()));
-                    } catch (NumberFormatException e) {
-                        isNumeric = false;
-                        break;
-                    }
-                }
-            }
-            if (isNumeric) {
-                data.add(columnData);
-                attributeNames.add(csvViewer.tableModel.getColumnName(columnOrder[col]));
+        JSpinner treeSpinner = new JSpinner(new SpinnerNumberModel(1, 1, trees.size(), 1));
+        treeSpinner.addChangeListener(e -> {
+            DecisionTree tree = trees.get((int) treeSpinner.getValue() - 1);
+            scrollPane.setViewportView(new DecisionTreeVisualizationPanel(tree.getRoot(), attributeNames, csvViewer.getClassColors()));
+        });
+        JPanel browsePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        browsePanel.add(new JLabel("Tree:"));
+        browsePanel.add(treeSpinner);
+        browsePanel.add(new JLabel("of " + trees.size()));
+
+        double[] importance = forest.getFeatureImportance();
+        List<Integer> columns = new ArrayList<>();
+        for (int col = 0; col < importance.length; col++) {
+            if (importance[col] > 0) {
+                columns.add(col);
             }
         }
-
-        for (int row = 0; row < csvViewer.tableModel.getRowCount(); row++) {
-            if (!csvViewer.getHiddenRows().contains(row)) {
-                classLabels.add((String) csvViewer.tableModel.getValueAt(row, csvViewer.getClassColumnIndex()));
-            }
+        columns.sort((a, b) -> Double.compare(importance[b], importance[a]));
+        StringBuilder sb = new StringBuilder("Feature importance:\n");
+        for (int col : columns) {
+            sb.append(String.format("%s: %.3f\n", attributeNames.get(col), importance[col]));
         }
+        JTextArea importanceArea = new JTextArea(sb.toString());
+        importanceArea.setEditable(false);
 
-        List<Integer> selectedRows = csvViewer.getSelectedRowsIndices();
-        selectedRows.removeIf(csvViewer.getHiddenRows()::contains);
-
-        ConcentricCoordinatesPlot plot = new ConcentricCoordinatesPlot(data, attributeNames, csvViewer.getClassColors(), csvViewer.getClassShapes(), classLabels, selectedRows, selectedRows, csvViewer.getDatasetName());
-        plot.setVisible(true);
+        frame.add(browsePanel, BorderLayout.NORTH);
+        frame.add(scrollPane, BorderLayout.CENTER);
+        frame.add(new JScrollPane(importanceArea), BorderLayout.EAST);
+        frame.setSize(1000, 600);
+        frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        frame.setVisible(true);
     }
 
-    public void showLineCoordinatesPlot() {
+    public void showConcentricCoordinatesPlot() {
         if (csvViewer.tableModel.getColumnCount() == 0) {
             csvViewer.noDataLoadedError();
             return;
         }
 
-        List<List<Double>> numericalData = new ArrayList<>();
-        List<String> attributeNames = new ArrayList<>();
-        List<String> classLabels = new ArrayList<>();
-
-        int classColumnIndex = csvViewer.getClassColumnIndex();
-        TableColumnModel columnModel = csvViewer.table.getColumnModel();
-
-        // Collect numerical data and attribute names
-        for (int col = 0; col < columnModel.getColumnCount(); col++) {
-            int modelIndex = csvViewer.table.convertColumnIndexToModel(col);
-            if (modelIndex != classColumnIndex) {
-                boolean isNumeric = true;
-                List<Double> columnData = new ArrayList<>();
-                for (int row = 0; row < csvViewer.tableModel.getRowCount(); row++) {
-                    if (!csvViewer.getHiddenRows().contains(row)) {
-                        try {
-                            columnData.add(Double.parseDouble(csvViewer.tableModel.getValueAt(row, modelIndex).toString()));
-                        } catch (NumberFormatException e) {
-                            isNumeric = false;
-                            break;
-                        }
-                    }
-                }
-                if (isNumeric) {
-                    numericalData.add(columnData);
-                    attributeNames.add(csvViewer.tableModel.getColumnName(modelIndex));
-                }
-            }
-        }
+        PlotData plotData = collectPlotData(true);
+        ConcentricCoordinatesPlot plot = new ConcentricCoordinatesPlot(plotData.data, plotData.attributeNames, csvViewer.getClassColors(), csvViewer.getClassShapes(), plotData.classCodes, plotData.selectedRows, plotData.selectedRows, csvViewer.getDatasetName());
+        plot.setVisible(true);
+    }
 
-        // Collect class labels
-        for (int row = 0; row < csvViewer.tableModel.getRowCount(); row++) {
-            if (!csvViewer.getHiddenRows().contains(row)) {
-                classLabels.add((String) csvViewer.tableModel.getValueAt(row, classColumnIndex));
-            }
+    public void showLineCoordinatesPlot() {
+        if (csvViewer.tableModel.getColumnCount() == 0) {
+            csvViewer.noDataLoadedError();
+            return;
         }
 
-        List<Integer> selectedRows = csvViewer.getSelectedRowsIndices();
-        selectedRows.removeIf(csvViewer.getHiddenRows()::contains);
-
+        PlotData plotData = collectPlotData(false);
         LineCoordinatesPlot plot = new LineCoordinatesPlot(
-            numericalData,
-            attributeNames,
+            plotData.data,
+            plotData.attributeNames,
             csvViewer.getClassColors(),
             csvViewer.getClassShapes(),
-            classLabels,
-            selectedRows,
+            plotData.classCodes,
+            plotData.selectedRows,
             csvViewer.getDatasetName()
         );
         plot.setVisible(true);
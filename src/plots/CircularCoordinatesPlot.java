@@ -6,6 +6,8 @@ import java.awt.event.*;
 import java.awt.geom.*;
 import java.util.*;
 import java.util.List;
+import src.data.ClassCodes;
+import src.data.RowMask;
 import src.utils.ScreenshotUtils;
 
 public class CircularCoordinatesPlot extends JFrame {
@@ -13,12 +15,14 @@ public class CircularCoordinatesPlot extends JFrame {
     private List<String> attributeNames;
     private Map<String, Color> classColors;
     private Map<String, Shape> classShapes;
-    private List<String> classLabels;
-    private List<Integer> selectedRows;
+    private RowMask selectedRows;
     private int numAttributes;
     private String datasetName;
     private int curveHeight = 50; // Default curve height
-    private Set<String> hiddenClasses = new HashSet<>(); // Track hidden classes
+    private ClassCodes classCodes;
+    private boolean[] hiddenClasses; // Indexed by class code
+    private Color[] colorsByClass; // Indexed by class code
+    private Shape[] shapesByClass; // Indexed by class code
     private boolean showTicks = false; // Track if ticks should be shown
     private boolean showLabels = true; // Track if labels should be shown
     private boolean usePolygon = false; // Track if polygon should be used instead of circle
@@ -29,12 +33,15 @@ public class CircularCoordinatesPlot extends JFrame {
     private static final Font TITLE_FONT = new Font("SansSerif", Font.BOLD, 24);
     private static final Font AXIS_LABEL_FONT = new Font("SansSerif", Font.PLAIN, 16);
 
-    public CircularCoordinatesPlot(List<List<Double>> data, List<String> attributeNames, Map<String, Color> classColors, Map<String, Shape> classShapes, List<String> classLabels, List<Integer> selectedRows, String datasetName) {
+    public CircularCoordinatesPlot(List<List<Double>> data, List<String> attributeNames, Map<String, Color> classColors, Map<String, Shape> classShapes, ClassCodes classCodes, RowMask selectedRows, String datasetName) {
         this.data = data;
         this.attributeNames = attributeNames;
         this.classColors = classColors;
         this.classShapes = classShapes;
-        this.classLabels = classLabels;
+        this.classCodes = classCodes;
+        this.hiddenClasses = new boolean[classCodes.getClassCount()];
+        this.colorsByClass = classCodes.byCode(classColors, Color.BLACK, Color[]::new);
+        this.shapesByClass = classCodes.byCode(classShapes, new Ellipse2D.Double(-3, -3, 6, 6), Shape[]::new);
         this.selectedRows = selectedRows;
         this.numAttributes = attributeNames.size();
         this.datasetName = datasetName;
@@ -124,8 +131,8 @@ public class CircularCoordinatesPlot extends JFrame {
     private void calculateMaxSumPerClass() {
         maxSumPerClass.clear(); // Clear previous calculations
     
-        for (int row = 0; row < classLabels.size(); row++) {
-            String classLabel = classLabels.get(row);
+        for (int row = 0; row < classCodes.getRowCount(); row++) {
+            String classLabel = classCodes.getLabelOf(row);
             double sum = 0;
     
             // Calculate the sum of the row values
@@ -159,7 +166,7 @@ public class CircularCoordinatesPlot extends JFrame {
                 protected void paintComponent(Graphics g) {
                     super.paintComponent(g);
                     Graphics2D g2 = (Graphics2D) g;
-                    g2.setColor(hiddenClasses.contains(className) ? Color.LIGHT_GRAY : color);
+                    g2.setColor(isClassHidden(className) ? Color.LIGHT_GRAY : color);
                     g2.translate(32, 20);
                     g2.scale(2, 2);
                     g2.fill(shape);
@@ -173,11 +180,7 @@ public class CircularCoordinatesPlot extends JFrame {
             colorLabelPanel.addMouseListener(new MouseAdapter() {
                 @Override
                 public void mouseClicked(MouseEvent e) {
-                    if (hiddenClasses.contains(className)) {
-                        hiddenClasses.remove(className);
-                    } else {
-                        hiddenClasses.add(className);
-                    }
+                    toggleClassHidden(className);
                     repaint();
                 }
             });
@@ -305,14 +308,14 @@ public class CircularCoordinatesPlot extends JFrame {
 
             // Draw non-selected rows first
             for (int row = 0; row < data.get(0).size(); row++) {
-                if (!selectedRows.contains(row) && !hiddenClasses.contains(classLabels.get(row))) {
+                if (!selectedRows.get(row) && !hiddenClasses[classCodes.getCode(row)]) {
                     drawRow(g2, row, attributePositions, centerX, centerY, radius, angleStep, xPoints, yPoints, false);
                 }
             }
 
             // Draw selected rows last (highlighted in yellow)
-            for (int row : selectedRows) {
-                if (!hiddenClasses.contains(classLabels.get(row))) {
+            for (int row = selectedRows.nextSetBit(0); row >= 0; row = selectedRows.nextSetBit(row + 1)) {
+                if (!hiddenClasses[classCodes.getCode(row)]) {
                     // Draw highlight twice as thick by drawing three times
                     drawRow(g2, row, attributePositions, centerX, centerY, radius, angleStep, xPoints, yPoints, true);
                     drawRow(g2, row, attributePositions, centerX, centerY, radius, angleStep, xPoints, yPoints, true);
@@ -323,9 +326,9 @@ public class CircularCoordinatesPlot extends JFrame {
 
         private void drawRow(Graphics2D g2, int row, Point2D.Double[] attributePositions, int centerX, int centerY, int radius, double angleStep, int[] xPoints, int[] yPoints, boolean isSelected) {
             Point2D.Double[] points = new Point2D.Double[numAttributes];
-            String classLabel = classLabels.get(row);
-            Color color = isSelected ? Color.YELLOW : classColors.getOrDefault(classLabel, Color.BLACK);
-            Shape shape = classShapes.getOrDefault(classLabel, new Ellipse2D.Double(-3, -3, 6, 6));
+            int classCode = classCodes.getCode(row);
+            Color color = isSelected ? Color.YELLOW : colorsByClass[classCode];
+            Shape shape = shapesByClass[classCode];
         
             // Calculate points
             for (int i = 0; i < numAttributes; i++) {
@@ -426,4 +429,16 @@ public class CircularCoordinatesPlot extends JFrame {
             }
         }        
     }
+
+    private boolean isClassHidden(String className) {
+        int classCode = classCodes.codeOf(className);
+        return classCode >= 0 && hiddenClasses[classCode];
+    }
+
+    private void toggleClassHidden(String className) {
+        int classCode = classCodes.codeOf(className);
+        if (classCode >= 0) {
+            hiddenClasses[classCode] = !hiddenClasses[classCode];
+        }
+    }
 }
@@ -1,6 +1,8 @@
 package src.plots;
 
 import javax.swing.*;
+import src.data.ClassCodes;
+import src.data.RowMask;
 import src.utils.ScreenshotUtils;
 import java.awt.*;
 import java.awt.geom.Ellipse2D;
@@ -15,7 +17,6 @@ import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Set;
 
 public class ConcentricCoordinatesPlot extends JFrame {
@@ -24,9 +25,8 @@ public class ConcentricCoordinatesPlot extends JFrame {
     private List<String> attributeNames;
     private Map<String, Color> classColors;
     private Map<String, Shape> classShapes;
-    private List<String> classLabels;
-    private List<Integer> selectedRows;
-    private List<Integer> hiddenRows;
+    private RowMask selectedRows;
+    private RowMask hiddenRows;
     private double globalMaxValue;
     private ConcentricCoordinatesPanel plotPanel;
     private double piAdjustment = 0.05;
@@ -41,7 +41,10 @@ public class ConcentricCoordinatesPlot extends JFrame {
     private Map<String, Double> attributeMaxValues = new HashMap<>();
     private Map<String, Double> attributeRadii = new HashMap<>(); // Added for circle sizes
     private String draggedAxis = null;
-    private Set<String> hiddenClasses = new HashSet<>();
+    private ClassCodes classCodes;
+    private boolean[] hiddenClasses; // Indexed by class code
+    private Color[] colorsByClass; // Indexed by class code
+    private Shape[] shapesByClass; // Indexed by class code, null where the class has no shape
     private Map<String, JSlider> attributeSliders = new HashMap<>();
     private Map<String, JSlider> radiusSliders = new HashMap<>(); // Added for radius control
     private Map<String, JCheckBox> attributeToggles = new HashMap<>();
@@ -54,12 +57,15 @@ public class ConcentricCoordinatesPlot extends JFrame {
     private static final Font AXIS_LABEL_FONT = new Font("SansSerif", Font.PLAIN, 16);
     private static final int TITLE_PADDING = 20;
 
-    public ConcentricCoordinatesPlot(List<List<Double>> data, List<String> attributeNames, Map<String, Color> classColors, Map<String, Shape> classShapes, List<String> classLabels, List<Integer> selectedRows, List<Integer> hiddenRows, String datasetName) {
+    public ConcentricCoordinatesPlot(List<List<Double>> data, List<String> attributeNames, Map<String, Color> classColors, Map<String, Shape> classShapes, ClassCodes classCodes, RowMask selectedRows, RowMask hiddenRows, String datasetName) {
         this.data = data;
         this.attributeNames = attributeNames;
         this.classColors = classColors;
         this.classShapes = classShapes;
-        this.classLabels = classLabels;
+        this.classCodes = classCodes;
+        this.hiddenClasses = new boolean[classCodes.getClassCount()];
+        this.colorsByClass = classCodes.byCode(classColors, Color.BLACK, Color[]::new);
+        this.shapesByClass = classCodes.byCode(classShapes, null, Shape[]::new);
         this.selectedRows = selectedRows;
         this.hiddenRows = hiddenRows;
 
@@ -506,13 +512,8 @@ public class ConcentricCoordinatesPlot extends JFrame {
             colorLabelPanel.addMouseListener(new MouseAdapter() {
                 @Override
                 public void mouseClicked(MouseEvent e) {
-                    if (hiddenClasses.contains(className)) {
-                        hiddenClasses.remove(className);
-                        colorLabelPanel.setBackground(Color.WHITE);
-                    } else {
-                        hiddenClasses.add(className);
-                        colorLabelPanel.setBackground(Color.LIGHT_GRAY);
-                    }
+                    toggleClassHidden(className);
+                    colorLabelPanel.setBackground(isClassHidden(className) ? Color.LIGHT_GRAY : Color.WHITE);
                     plotPanel.repaint();
                 }
             });
@@ -598,8 +599,7 @@ public class ConcentricCoordinatesPlot extends JFrame {
 
             // Draw the concentric coordinates for each data point
             for (int row = 0; row < data.get(0).size(); row++) {
-                String classLabel = classLabels.get(row);
-                if (!hiddenClasses.contains(classLabel)) {
+                if (!hiddenClasses[classCodes.getCode(row)]) {
                     drawConcentricCoordinates(g2, row, centerX, centerY, maxRadius);
                 }
             }
@@ -683,8 +683,8 @@ public class ConcentricCoordinatesPlot extends JFrame {
                 }
             }
 
-            String classLabel = classLabels.get(row);
-            Color color = classColors.getOrDefault(classLabel, Color.BLACK);
+            int classCode = classCodes.getCode(row);
+            Color color = colorsByClass[classCode];
             g2.setColor(color);
 
             // Draw lines connecting the points across the circles
@@ -698,9 +698,9 @@ public class ConcentricCoordinatesPlot extends JFrame {
             }
 
             // Draw the shapes at the points
+            Shape shape = shapesByClass[classCode] != null ? shapesByClass[classCode] : new Ellipse2D.Double(-3, -3, 6, 6);
             for (int i = 0; i < numAttributes; i++) {
                 g2.translate(points[i].x, points[i].y);
-                Shape shape = classShapes.getOrDefault(classLabel, new Ellipse2D.Double(-3, -3, 6, 6));
                 g2.fill(shape);
                 g2.translate(-points[i].x, -points[i].y);
             }
@@ -710,9 +710,9 @@ public class ConcentricCoordinatesPlot extends JFrame {
             g2.setColor(Color.YELLOW);
             g2.setStroke(new BasicStroke(2.0f));
 
-            for (int row : selectedRows) {
-                String classLabel = classLabels.get(row);
-                if (hiddenClasses.contains(classLabel)) {
+            for (int row = selectedRows.nextSetBit(0); row >= 0; row = selectedRows.nextSetBit(row + 1)) {
+                int classCode = classCodes.getCode(row);
+                if (hiddenClasses[classCode]) {
                     continue;
                 }
 
@@ -766,9 +766,9 @@ public class ConcentricCoordinatesPlot extends JFrame {
                     g2.draw(new Line2D.Double(points[numAttributes - 1], points[0]));
                 }
 
+                Shape shape = shapesByClass[classCode] != null ? shapesByClass[classCode] : new Ellipse2D.Double(-4.5, -4.5, 9, 9);
                 for (int i = 0; i < numAttributes; i++) {
                     g2.translate(points[i].x, points[i].y);
-                    Shape shape = classShapes.getOrDefault(classLabels.get(row), new Ellipse2D.Double(-4.5, -4.5, 9, 9));
                     g2.fill(shape);
                     g2.translate(-points[i].x, -points[i].y);
                 }
@@ -800,4 +800,16 @@ public class ConcentricCoordinatesPlot extends JFrame {
             }
         }
     }
+
+    private boolean isClassHidden(String className) {
+        int classCode = classCodes.codeOf(className);
+        return classCode >= 0 && hiddenClasses[classCode];
+    }
+
+    private void toggleClassHidden(String className) {
+        int classCode = classCodes.codeOf(className);
+        if (classCode >= 0) {
+            hiddenClasses[classCode] = !hiddenClasses[classCode];
+        }
+    }
 }
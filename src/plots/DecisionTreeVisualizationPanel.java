@@ -1,12 +1,28 @@
 package src.plots;
 
 import src.DecisionTree;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 
+/**
+ * The DecisionTreeVisualizationPanel class draws a decision tree that can be panned and zoomed. The layout
+ * is a tidy tree: every subtree is packed as close to its left sibling as the contours of both allow, and
+ * a parent is centered over its children. It is computed once, into arrays indexed by node in depth-first
+ * order, so panning and zooming only repaint.
+ *
+ * Every node also keeps the bounding box of its subtree, so painting walks down from the root and skips
+ * any subtree whose box misses the clip. A subtree that would be narrower than COLLAPSE_PIXELS on screen
+ * is drawn as a single triangle in the color of its most common class instead of node by node.
+ */
 public class DecisionTreeVisualizationPanel extends JPanel {
 
     private final DecisionTree.TreeNode root;
@@ -15,6 +31,11 @@ public class DecisionTreeVisualizationPanel extends JPanel {
     private static final int BASE_NODE_HEIGHT = 60;  // Base vertical space between nodes
     private static final int NODE_HORIZONTAL_PADDING = 10;
     private static final int NODE_VERTICAL_PADDING = 5;
+    private static final int SIBLING_GAP = 20; // Least horizontal space between neighbouring subtrees
+    private static final int TREE_MARGIN = 50;
+    private static final int COLLAPSE_PIXELS = 24; // Subtrees narrower than this on screen become a glyph
+    private static final double MIN_TEXT_PIXELS = 4; // Text smaller than this on screen is not drawn
+    private static final Font NODE_FONT = new Font("Arial", Font.PLAIN, 12);
     private double zoomFactor = 0.5;  // Start zoomed out
     private int translateX = 0;
     private int translateY = 0;
@@ -22,6 +43,24 @@ public class DecisionTreeVisualizationPanel extends JPanel {
     private int treeHeight;
     private Point lastMousePos;
 
+    // Layout of every node, indexed in depth-first order with the root at 0
+    private DecisionTree.TreeNode[] nodes;
+    private int[] leftChild;
+    private int[] rightChild;
+    private int[] depth;
+    private double[] centerX;
+    private int[] nodeWidth;
+    private int[] nodeHeight;
+    private String[] mainText;
+    private String[] caseCountText;
+    private double[] subtreeMinX;
+    private double[] subtreeMaxX;
+    private int[] subtreeMaxDepth;
+    private String[] summaryClass; // Most common class of the cases in the subtree
+    private final Map<String, Color> summaryColors = new HashMap<>(); // Lighter class colors for collapsed subtrees
+    private int levelHeight;
+    private int fontHeight;
+
     public DecisionTreeVisualizationPanel(DecisionTree.TreeNode root, List<String> attributeNames, Map<String, Color> classColors) {
         this.root = root;
         this.attributeNames = attributeNames;
@@ -53,114 +92,261 @@ public class DecisionTreeVisualizationPanel extends JPanel {
                 repaint();
             }
         });
-        SwingUtilities.invokeLater(this::adjustPanelSize);  // Adjust size after component is fully initialized
+        if (root != null) {
+            layoutTree(getFontMetrics(NODE_FONT));
+        }
+        adjustPanelSize();
     }
 
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
         Graphics2D g2d = (Graphics2D) g.create();
-        
+
         // Center the tree
         int centerX = getWidth() / 2 - (int)(treeWidth * zoomFactor / 2) + translateX;
         int centerY = getHeight() / 2 - (int)(treeHeight * zoomFactor / 2) + translateY;
         g2d.translate(centerX, centerY);
-        
+
         g2d.scale(zoomFactor, zoomFactor);
         if (root != null) {
-            drawTree(g2d, root, treeWidth / 2, 50);
+            Rectangle clip = g2d.getClipBounds();
+            drawTree(g2d, clip != null ? clip : new Rectangle(0, 0, treeWidth, treeHeight));
         }
         g2d.dispose();
     }
 
-    private void drawTree(Graphics2D g, DecisionTree.TreeNode node, int x, int y) {
-        if (node != null) {
-            g.setFont(new Font("Arial", Font.PLAIN, 12));
-            String mainText = node.isLeaf ? node.prediction : node.questionText;
-            String caseCountText = node.caseCount > 0 ? "(" + node.caseCount + " cases)" : "";
-
-            Rectangle nodeBounds = calculateNodeBounds(g, mainText, caseCountText);
-            int nodeWidth = nodeBounds.width;
-            int nodeHeight = nodeBounds.height;
-
-            // Draw node background
-            if (node.isLeaf && classColors.containsKey(node.prediction)) {
-                g.setColor(classColors.get(node.prediction));
-            } else {
-                g.setColor(Color.WHITE);
-            }
-            g.fillRect(x - nodeWidth / 2, y, nodeWidth, nodeHeight);
-            g.setColor(Color.BLACK);
-            g.drawRect(x - nodeWidth / 2, y, nodeWidth, nodeHeight);
+    /**
+     * Draws the nodes and edges that meet the clip, walking down from the root and skipping every subtree
+     * whose bounding box lies outside it.
+     */
+    private void drawTree(Graphics2D g, Rectangle clip) {
+        g.setFont(NODE_FONT);
+        FontMetrics fm = g.getFontMetrics();
+        boolean drawText = fontHeight * zoomFactor >= MIN_TEXT_PIXELS;
 
-            // Draw main text
-            g.drawString(mainText, x - g.getFontMetrics().stringWidth(mainText) / 2, y + NODE_VERTICAL_PADDING + g.getFontMetrics().getAscent());
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(0);
+        while (!pending.isEmpty()) {
+            int id = pending.pop();
+            int top = levelTop(depth[id]);
+            int bottom = levelTop(subtreeMaxDepth[id]) + levelHeight - BASE_NODE_HEIGHT;
+            if (subtreeMaxX[id] < clip.x || subtreeMinX[id] > clip.x + clip.width
+                    || bottom < clip.y || top > clip.y + clip.height) {
+                continue;
+            }
+            if (!nodes[id].isLeaf && (subtreeMaxX[id] - subtreeMinX[id]) * zoomFactor < COLLAPSE_PIXELS) {
+                drawSummary(g, id, top, bottom);
+                continue;
+            }
 
-            // Draw case count on a new line, if it exists
-            if (!caseCountText.isEmpty()) {
-                g.drawString(caseCountText, x - g.getFontMetrics().stringWidth(caseCountText) / 2, y + nodeHeight - NODE_VERTICAL_PADDING);
+            drawNode(g, fm, id, top, drawText);
+            if (!nodes[id].isLeaf) {
+                int edgeTop = top + nodeHeight[id];
+                for (int child : new int[]{leftChild[id], rightChild[id]}) {
+                    g.setColor(Color.BLACK);
+                    g.drawLine((int) centerX[id], edgeTop, (int) centerX[child], levelTop(depth[child]));
+                    pending.push(child);
+                }
             }
+        }
+    }
+
+    private void drawNode(Graphics2D g, FontMetrics fm, int id, int y, boolean drawText) {
+        int x = (int) centerX[id];
+        int width = nodeWidth[id];
+        int height = nodeHeight[id];
+        DecisionTree.TreeNode node = nodes[id];
+
+        // Draw node background
+        if (node.isLeaf && classColors.containsKey(node.prediction)) {
+            g.setColor(classColors.get(node.prediction));
+        } else {
+            g.setColor(Color.WHITE);
+        }
+        g.fillRect(x - width / 2, y, width, height);
+        g.setColor(Color.BLACK);
+        g.drawRect(x - width / 2, y, width, height);
+        if (!drawText) {
+            return;
+        }
 
+        // Draw main text
+        g.drawString(mainText[id], x - fm.stringWidth(mainText[id]) / 2, y + NODE_VERTICAL_PADDING + fm.getAscent());
+
+        // Draw case count on a new line, if it exists
+        if (!caseCountText[id].isEmpty()) {
+            g.drawString(caseCountText[id], x - fm.stringWidth(caseCountText[id]) / 2, y + height - NODE_VERTICAL_PADDING);
+        }
+    }
+
+    /**
+     * Draws a collapsed subtree as a triangle from its root down to the width and depth of the subtree.
+     */
+    private void drawSummary(Graphics2D g, int id, int top, int bottom) {
+        int[] xs = {(int) centerX[id], (int) subtreeMaxX[id], (int) subtreeMinX[id]};
+        int[] ys = {top, bottom, bottom};
+        g.setColor(summaryColors.computeIfAbsent(summaryClass[id], label -> {
+            Color color = classColors.getOrDefault(label, Color.LIGHT_GRAY);
+            return new Color((color.getRed() + 255) / 2, (color.getGreen() + 255) / 2, (color.getBlue() + 255) / 2);
+        }));
+        g.fillPolygon(xs, ys, 3);
+        g.setColor(Color.BLACK);
+        g.drawPolygon(xs, ys, 3);
+    }
+
+    private int levelTop(int level) {
+        return TREE_MARGIN + level * levelHeight;
+    }
+
+    /**
+     * Computes the position and size of every node. Children are laid out before their parents: each
+     * subtree keeps, per level below its root, the leftmost and rightmost edge of its nodes relative to
+     * the root, and two sibling subtrees are pushed apart until their facing contours are SIBLING_GAP
+     * apart at every level they share.
+     */
+    private void layoutTree(FontMetrics fm) {
+        List<DecisionTree.TreeNode> order = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        Deque<Integer> pendingParents = new ArrayDeque<>();
+        Deque<DecisionTree.TreeNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        pendingParents.push(-1);
+        while (!pending.isEmpty()) {
+            DecisionTree.TreeNode node = pending.pop();
+            int parent = pendingParents.pop();
+            int id = order.size();
+            order.add(node);
+            parents.add(parent);
             if (!node.isLeaf) {
-                int leftWidth = calculateSubtreeWidth(node.left);
-                int rightWidth = calculateSubtreeWidth(node.right);
-                int totalWidth = leftWidth + rightWidth;
+                pending.push(node.right);
+                pendingParents.push(id);
+                pending.push(node.left);
+                pendingParents.push(id);
+            }
+        }
 
-                int leftX = x - totalWidth / 2 + leftWidth / 2;
-                int rightX = x + totalWidth / 2 - rightWidth / 2;
-                int childY = y + nodeHeight + BASE_NODE_HEIGHT;
+        int count = order.size();
+        nodes = order.toArray(new DecisionTree.TreeNode[0]);
+        leftChild = new int[count];
+        rightChild = new int[count];
+        depth = new int[count];
+        centerX = new double[count];
+        nodeWidth = new int[count];
+        nodeHeight = new int[count];
+        mainText = new String[count];
+        caseCountText = new String[count];
+        subtreeMinX = new double[count];
+        subtreeMaxX = new double[count];
+        subtreeMaxDepth = new int[count];
+        summaryClass = new String[count];
+        Arrays.fill(leftChild, -1);
+        Arrays.fill(rightChild, -1);
 
-                if (node.left != null) {
-                    g.drawLine(x, y + nodeHeight, leftX, childY);
-                    drawTree(g, node.left, leftX, childY);
-                }
-                if (node.right != null) {
-                    g.drawLine(x, y + nodeHeight, rightX, childY);
-                    drawTree(g, node.right, rightX, childY);
+        fontHeight = fm.getHeight();
+        int maxNodeHeight = 0;
+        for (int id = 0; id < count; id++) {
+            DecisionTree.TreeNode node = nodes[id];
+            int parent = parents.get(id);
+            if (parent >= 0) {
+                depth[id] = depth[parent] + 1;
+                if (leftChild[parent] == -1) {
+                    leftChild[parent] = id;
+                } else {
+                    rightChild[parent] = id;
                 }
             }
+            mainText[id] = node.isLeaf ? node.prediction : node.questionText;
+            caseCountText[id] = node.caseCount > 0 ? "(" + node.caseCount + " cases)" : "";
+            int textWidth = Math.max(fm.stringWidth(mainText[id]), fm.stringWidth(caseCountText[id]));
+            nodeWidth[id] = textWidth + 2 * NODE_HORIZONTAL_PADDING;
+            nodeHeight[id] = (caseCountText[id].isEmpty() ? 1 : 2) * fm.getHeight() + 2 * NODE_VERTICAL_PADDING;
+            maxNodeHeight = Math.max(maxNodeHeight, nodeHeight[id]);
         }
-    }
+        levelHeight = maxNodeHeight + BASE_NODE_HEIGHT;
+
+        // Children come after their parent in depth-first order, so a backwards pass sees them first
+        double[] offsets = new double[count]; // Center of each node relative to its parent's
+        double[][] leftContours = new double[count][];
+        double[][] rightContours = new double[count][];
+        List<Map<String, Integer>> classCases = new ArrayList<>(Collections.nCopies(count, null));
+        for (int id = count - 1; id >= 0; id--) {
+            double halfWidth = nodeWidth[id] / 2.0;
+            if (nodes[id].isLeaf) {
+                leftContours[id] = new double[]{-halfWidth};
+                rightContours[id] = new double[]{halfWidth};
+                Map<String, Integer> cases = new HashMap<>();
+                cases.put(nodes[id].prediction, nodes[id].caseCount);
+                classCases.set(id, cases);
+                summaryClass[id] = nodes[id].prediction;
+                continue;
+            }
+            int left = leftChild[id];
+            int right = rightChild[id];
+            double separation = 0;
+            int shared = Math.min(rightContours[left].length, leftContours[right].length);
+            for (int level = 0; level < shared; level++) {
+                separation = Math.max(separation, rightContours[left][level] - leftContours[right][level] + SIBLING_GAP);
+            }
+            offsets[left] = -separation / 2;
+            offsets[right] = separation / 2;
 
-    private Rectangle calculateNodeBounds(Graphics g, String mainText, String caseCountText) {
-        if (g == null) {
-            // Use a default size if Graphics is not available
-            return new Rectangle(100, 50);
+            int levels = 1 + Math.max(leftContours[left].length, leftContours[right].length);
+            double[] leftContour = new double[levels];
+            double[] rightContour = new double[levels];
+            leftContour[0] = -halfWidth;
+            rightContour[0] = halfWidth;
+            for (int level = 1; level < levels; level++) {
+                leftContour[level] = Double.POSITIVE_INFINITY;
+                rightContour[level] = Double.NEGATIVE_INFINITY;
+                for (int child : new int[]{left, right}) {
+                    if (level - 1 < leftContours[child].length) {
+                        leftContour[level] = Math.min(leftContour[level], leftContours[child][level - 1] + offsets[child]);
+                        rightContour[level] = Math.max(rightContour[level], rightContours[child][level - 1] + offsets[child]);
+                    }
+                }
+            }
+            leftContours[id] = leftContour;
+            rightContours[id] = rightContour;
+            leftContours[left] = rightContours[left] = null;
+            leftContours[right] = rightContours[right] = null;
+
+            Map<String, Integer> cases = classCases.get(left);
+            classCases.get(right).forEach((label, n) -> cases.merge(label, n, Integer::sum));
+            classCases.set(id, cases);
+            classCases.set(right, null);
+            summaryClass[id] = cases.entrySet().stream().max(Map.Entry.comparingByValue()).get().getKey();
         }
-        FontMetrics fm = g.getFontMetrics();
-        int mainTextWidth = fm.stringWidth(mainText);
-        int caseCountWidth = fm.stringWidth(caseCountText);
-        int textWidth = Math.max(mainTextWidth, caseCountText.isEmpty() ? 0 : caseCountWidth);
-        int width = textWidth + 2 * NODE_HORIZONTAL_PADDING;
-        int height = (caseCountText.isEmpty() ? 1 : 2) * fm.getHeight() + 2 * NODE_VERTICAL_PADDING;
-        return new Rectangle(width, height);
-    }
 
-    private int calculateSubtreeWidth(DecisionTree.TreeNode node) {
-        if (node == null) {
-            return 0;
+        // Place every node from its parent, then shift the tree to start at the margin
+        double minX = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        for (int id = 0; id < count; id++) {
+            int parent = parents.get(id);
+            centerX[id] = parent >= 0 ? centerX[parent] + offsets[id] : 0;
+            minX = Math.min(minX, centerX[id] - nodeWidth[id] / 2.0);
+            maxX = Math.max(maxX, centerX[id] + nodeWidth[id] / 2.0);
         }
-        if (node.isLeaf) {
-            Rectangle bounds = calculateNodeBounds(null, node.prediction, "(" + node.caseCount + " cases)");
-            return bounds.width; // Add spacing between leaves
+        for (int id = 0; id < count; id++) {
+            centerX[id] += TREE_MARGIN - minX;
         }
-        int leftWidth = calculateSubtreeWidth(node.left);
-        int rightWidth = calculateSubtreeWidth(node.right);
-        return leftWidth + rightWidth;
-    }
-
-    private int getTreeDepth(DecisionTree.TreeNode node) {
-        if (node == null || node.isLeaf) {
-            return 0;
+        for (int id = count - 1; id >= 0; id--) {
+            subtreeMinX[id] = centerX[id] - nodeWidth[id] / 2.0;
+            subtreeMaxX[id] = centerX[id] + nodeWidth[id] / 2.0;
+            subtreeMaxDepth[id] = depth[id];
+            if (!nodes[id].isLeaf) {
+                for (int child : new int[]{leftChild[id], rightChild[id]}) {
+                    subtreeMinX[id] = Math.min(subtreeMinX[id], subtreeMinX[child]);
+                    subtreeMaxX[id] = Math.max(subtreeMaxX[id], subtreeMaxX[child]);
+                    subtreeMaxDepth[id] = Math.max(subtreeMaxDepth[id], subtreeMaxDepth[child]);
+                }
+            }
         }
-        return 1 + Math.max(getTreeDepth(node.left), getTreeDepth(node.right));
+        treeWidth = (int) Math.ceil(maxX - minX) + 2 * TREE_MARGIN;
+        treeHeight = levelTop(subtreeMaxDepth[0] + 1);
     }
 
     private void adjustPanelSize() {
-        int treeDepth = getTreeDepth(root);
-        treeWidth = calculateSubtreeWidth(root);
-        treeHeight = (treeDepth + 1) * (BASE_NODE_HEIGHT + 50);
-
         int panelWidth = Math.max(800, treeWidth + 100);
         int panelHeight = Math.max(600, treeHeight + 100);
 
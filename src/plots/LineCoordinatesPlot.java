@@ -1,6 +1,8 @@
 package src.plots;
 
 import javax.swing.*;
+import src.data.ClassCodes;
+import src.data.RowMask;
 import src.utils.ScreenshotUtils;
 import java.awt.*;
 import java.awt.event.*;
@@ -13,12 +15,14 @@ public class LineCoordinatesPlot extends JFrame {
     private List<String> attributeNames;
     private Map<String, Color> classColors;
     private Map<String, Shape> classShapes;
-    private List<String> classLabels;
-    private List<Integer> selectedRows;
+    private RowMask selectedRows;
     private String datasetName;
     private Map<String, Double> axisScales;
     private Map<String, Boolean> axisDirections;
-    private Set<String> hiddenClasses;
+    private ClassCodes classCodes;
+    private boolean[] hiddenClasses; // Indexed by class code
+    private Color[] colorsByClass; // Indexed by class code
+    private Shape[] shapesByClass; // Indexed by class code
     private boolean showConnections = true;
     private Map<String, Point> axisPositions;
     private Map<String, Integer> curveHeights; // Map to store individual curve heights for each attribute
@@ -32,17 +36,19 @@ public class LineCoordinatesPlot extends JFrame {
 
     public LineCoordinatesPlot(List<List<Double>> data, List<String> attributeNames, 
             Map<String, Color> classColors, Map<String, Shape> classShapes, 
-            List<String> classLabels, List<Integer> selectedRows, String datasetName) {
+            ClassCodes classCodes, RowMask selectedRows, String datasetName) {
         this.data = data;
         this.attributeNames = attributeNames;
         this.classColors = classColors;
         this.classShapes = classShapes;
-        this.classLabels = classLabels;
+        this.classCodes = classCodes;
+        this.hiddenClasses = new boolean[classCodes.getClassCount()];
+        this.colorsByClass = classCodes.byCode(classColors, null, Color[]::new);
+        this.shapesByClass = classCodes.byCode(classShapes, null, Shape[]::new);
         this.selectedRows = selectedRows;
         this.datasetName = datasetName;
         this.axisScales = new HashMap<>();
         this.axisDirections = new HashMap<>();
-        this.hiddenClasses = new HashSet<>();
         this.axisPositions = new HashMap<>();
         this.curveHeights = new HashMap<>(); // Initialize curveHeights map
 
@@ -168,7 +174,7 @@ public class LineCoordinatesPlot extends JFrame {
                 protected void paintComponent(Graphics g) {
                     super.paintComponent(g);
                     Graphics2D g2 = (Graphics2D) g;
-                    g2.setColor(hiddenClasses.contains(className) ? Color.LIGHT_GRAY : color);
+                    g2.setColor(isClassHidden(className) ? Color.LIGHT_GRAY : color);
                     g2.translate(20, 20);
                     g2.scale(2, 2);
                     g2.fill(shape);
@@ -182,11 +188,7 @@ public class LineCoordinatesPlot extends JFrame {
             colorLabelPanel.addMouseListener(new MouseAdapter() {
                 @Override
                 public void mouseClicked(MouseEvent e) {
-                    if (hiddenClasses.contains(className)) {
-                        hiddenClasses.remove(className);
-                    } else {
-                        hiddenClasses.add(className);
-                    }
+                    toggleClassHidden(className);
                     repaint();
                 }
             });
@@ -260,11 +262,12 @@ public class LineCoordinatesPlot extends JFrame {
 
             // Draw data points and connections
             for (int row = 0; row < data.get(0).size(); row++) {
-                if (hiddenClasses.contains(classLabels.get(row))) {
+                int classCode = classCodes.getCode(row);
+                if (hiddenClasses[classCode]) {
                     continue;
                 }
 
-                Color classColor = classColors.get(classLabels.get(row));
+                Color classColor = colorsByClass[classCode];
                 g2.setColor(classColor);
 
                 List<Point2D.Double> points = new ArrayList<>();
@@ -310,7 +313,7 @@ public class LineCoordinatesPlot extends JFrame {
                 }
                 
                 // Draw points with scaling
-                Shape shape = classShapes.get(classLabels.get(row));
+                Shape shape = shapesByClass[classCode];
                 for (Point2D.Double point : points) {
                     AffineTransform transform = new AffineTransform();
                     transform.translate(point.x, point.y);
@@ -323,8 +326,9 @@ public class LineCoordinatesPlot extends JFrame {
             }
 
             // Highlight selected cases in yellow thicker drawn last above everything
-            for (int row : selectedRows) {
-                if (hiddenClasses.contains(classLabels.get(row))) {
+            for (int row = selectedRows.nextSetBit(0); row >= 0; row = selectedRows.nextSetBit(row + 1)) {
+                int classCode = classCodes.getCode(row);
+                if (hiddenClasses[classCode]) {
                     continue;
                 }
 
@@ -375,7 +379,7 @@ public class LineCoordinatesPlot extends JFrame {
                 }
                 
                 // Draw points with scaling
-                Shape shape = classShapes.get(classLabels.get(row));
+                Shape shape = shapesByClass[classCode];
                 for (Point2D.Double point : points) {
                     AffineTransform transform = new AffineTransform();
                     transform.translate(point.x, point.y);
@@ -388,4 +392,16 @@ public class LineCoordinatesPlot extends JFrame {
             }
         }
     }
-}
\ No newline at end of file
+
+    private boolean isClassHidden(String className) {
+        int classCode = classCodes.codeOf(className);
+        return classCode >= 0 && hiddenClasses[classCode];
+    }
+
+    private void toggleClassHidden(String className) {
+        int classCode = classCodes.codeOf(className);
+        if (classCode >= 0) {
+            hiddenClasses[classCode] = !hiddenClasses[classCode];
+        }
+    }
+}
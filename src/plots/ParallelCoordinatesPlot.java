@@ -1,6 +1,9 @@
 package src.plots;
 
 import javax.swing.*;
+import src.data.ClassCodes;
+import src.data.RowMask;
+import src.utils.Hyperblock;
 import src.utils.ScreenshotUtils;
 import java.awt.*;
 import java.awt.event.*;
@@ -14,9 +17,11 @@ public class ParallelCoordinatesPlot extends JFrame {
     private final List<String> attributeNames;
     private final Map<String, Color> classColors;
     private final Map<String, Shape> classShapes;
-    private final List<String> classLabels;
-    private final List<Integer> selectedRows;
-    private final Map<String, Boolean> hiddenClasses;
+    private final RowMask selectedRows;
+    private final ClassCodes classCodes;
+    private final boolean[] hiddenClasses; // Indexed by class code
+    private final Color[] colorsByClass; // Indexed by class code
+    private final Shape[] shapesByClass; // Indexed by class code
     private final Map<String, Boolean> axisDirections;
     private final Map<String, Point2D.Double> axisPositions;
     private final Map<String, Double> axisScales;
@@ -24,6 +29,7 @@ public class ParallelCoordinatesPlot extends JFrame {
     private final double globalMaxValue;
     private final double globalMinValue;
     private boolean showAttributeLabels = true;
+    private List<Hyperblock> hyperblocks = Collections.emptyList();
 
     // Font settings
     private static final Font TITLE_FONT = new Font("SansSerif", Font.BOLD, 24);
@@ -32,14 +38,16 @@ public class ParallelCoordinatesPlot extends JFrame {
 
     public ParallelCoordinatesPlot(List<List<Double>> data, List<String> attributeNames,
                                    Map<String, Color> classColors, Map<String, Shape> classShapes,
-                                   List<String> classLabels, List<Integer> selectedRows, String datasetName) {
+                                   ClassCodes classCodes, RowMask selectedRows, String datasetName) {
         this.data = data;
         this.attributeNames = new ArrayList<>(attributeNames);
         this.classColors = classColors;
         this.classShapes = classShapes;
-        this.classLabels = classLabels;
+        this.classCodes = classCodes;
+        this.hiddenClasses = new boolean[classCodes.getClassCount()];
+        this.colorsByClass = classCodes.byCode(classColors, Color.BLACK, Color[]::new);
+        this.shapesByClass = classCodes.byCode(classShapes, null, Shape[]::new);
         this.selectedRows = selectedRows;
-        this.hiddenClasses = new HashMap<>();
         this.axisDirections = new HashMap<>();
         this.axisPositions = new HashMap<>();
         this.axisScales = new HashMap<>();
@@ -96,6 +104,14 @@ public class ParallelCoordinatesPlot extends JFrame {
         setContentPane(mainPanel);
     }
 
+    /**
+     * Draws the given hyperblocks behind the data, each as a band between its bounds on every axis.
+     */
+    public void setHyperblocks(List<Hyperblock> hyperblocks) {
+        this.hyperblocks = hyperblocks;
+        repaint();
+    }
+
     private JScrollPane createControlPanel() {
         // Create a panel to hold the controls for each attribute
         JPanel controlPanel = new JPanel();
@@ -182,7 +198,7 @@ public class ParallelCoordinatesPlot extends JFrame {
                 protected void paintComponent(Graphics g) {
                     super.paintComponent(g);
                     Graphics2D g2 = (Graphics2D) g;
-                    g2.setColor(hiddenClasses.getOrDefault(className, false) ? Color.LIGHT_GRAY : color);
+                    g2.setColor(isClassHidden(className) ? Color.LIGHT_GRAY : color);
                     g2.translate(32, 20);
                     g2.scale(2, 2);
                     g2.fill(shape);
@@ -192,16 +208,12 @@ public class ParallelCoordinatesPlot extends JFrame {
 
             JLabel label = new JLabel(className);
             label.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 10));
-            label.setForeground(hiddenClasses.getOrDefault(className, false) ? Color.LIGHT_GRAY : Color.BLACK);
+            label.setForeground(isClassHidden(className) ? Color.LIGHT_GRAY : Color.BLACK);
 
             colorLabelPanel.addMouseListener(new MouseAdapter() {
                 @Override
                 public void mouseClicked(MouseEvent e) {
-                    if (hiddenClasses.getOrDefault(className, false)) {
-                        hiddenClasses.remove(className);
-                    } else {
-                        hiddenClasses.put(className, true);
-                    }
+                    toggleClassHidden(className);
                     repaint();
                 }
             });
@@ -277,9 +289,61 @@ public class ParallelCoordinatesPlot extends JFrame {
             // Draw the plot on c0c0c0 background
             g2.setColor(new Color(0xC0C0C0));
             g2.fillRect(0, 50, getWidth(), getHeight() - 50); // Adjusted to start from below the title
+            drawHyperblocks(g2);
             drawAxes(g2);
             drawData(g2);
         }
+
+        private void drawHyperblocks(Graphics2D g2) {
+            for (Hyperblock hyperblock : hyperblocks) {
+                if (isClassHidden(hyperblock.getCurrentClass())) continue;
+
+                // Trace the high bounds from left to right, then the low bounds back
+                Path2D.Double band = new Path2D.Double();
+                List<Point2D.Double> lows = new ArrayList<>();
+                for (String attributeName : visualOrder) {
+                    int blockAttribute = hyperblock.getAttributeNames().indexOf(attributeName);
+                    if (blockAttribute == -1) continue;
+
+                    double high = axisY(attributeName, hyperblock.getHigh(blockAttribute));
+                    double low = axisY(attributeName, hyperblock.getLow(blockAttribute));
+                    double x = axisPositions.get(attributeName).x;
+                    if (band.getCurrentPoint() == null) {
+                        band.moveTo(x, high);
+                    } else {
+                        band.lineTo(x, high);
+                    }
+                    lows.add(new Point2D.Double(x, low));
+                }
+                if (lows.isEmpty()) continue;
+                for (int i = lows.size() - 1; i >= 0; i--) {
+                    band.lineTo(lows.get(i).x, lows.get(i).y);
+                }
+                band.closePath();
+
+                Color color = classColors.getOrDefault(hyperblock.getCurrentClass(), Color.BLACK);
+                g2.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), 50));
+                g2.fill(band);
+                g2.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), 160));
+                g2.setStroke(new BasicStroke(1.0f));
+                g2.draw(band);
+            }
+        }
+
+        /**
+         * Returns where a value lies on an axis, as drawData places it, kept within the axis.
+         */
+        private double axisY(String attributeName, double value) {
+            double normalizedValue = (value - globalMinValue) / (globalMaxValue - globalMinValue);
+            normalizedValue = Math.max(0, Math.min(1, normalizedValue));
+            if (axisDirections.getOrDefault(attributeName, false)) {
+                normalizedValue = 1 - normalizedValue;
+            }
+            Point2D.Double pos = axisPositions.get(attributeName);
+            double scale = axisScales.getOrDefault(attributeName, 1.0);
+            int scaledHeight = (int) (AXIS_HEIGHT * scale);
+            return pos.y + scaledHeight - normalizedValue * scaledHeight;
+        }
         
         private void drawAxes(Graphics2D g2) {
             g2.setColor(Color.BLACK);
@@ -303,7 +367,7 @@ public class ParallelCoordinatesPlot extends JFrame {
         private void drawData(Graphics2D g2) {
             // Draw non-selected data first
             for (int row = 0; row < data.get(0).size(); row++) {
-                if (!selectedRows.contains(row)) {
+                if (!selectedRows.get(row)) {
                     List<Point2D.Double> points = new ArrayList<>();
     
                     for (String attributeName : visualOrder) { // Use visualOrder for drawing polylines
@@ -322,10 +386,10 @@ public class ParallelCoordinatesPlot extends JFrame {
                         points.add(new Point2D.Double(pos.x, y));
                     }
     
-                    String classLabel = classLabels.get(row);
-                    if (hiddenClasses.containsKey(classLabel)) continue;
+                    int classCode = classCodes.getCode(row);
+                    if (hiddenClasses[classCode]) continue;
     
-                    g2.setColor(classColors.getOrDefault(classLabel, Color.BLACK));
+                    g2.setColor(colorsByClass[classCode]);
                     g2.setStroke(new BasicStroke(1.0f)); // Default line thickness
                     for (int i = 0; i < points.size() - 1; i++) {
                         g2.draw(new Line2D.Double(points.get(i), points.get(i + 1)));
@@ -333,7 +397,7 @@ public class ParallelCoordinatesPlot extends JFrame {
     
                     // Draw class symbols as vertices
                     for (Point2D.Double point : points) {
-                        Shape shape = classShapes.get(classLabel);
+                        Shape shape = shapesByClass[classCode];
                         g2.translate(point.x, point.y);
                         g2.fill(shape);
                         g2.translate(-point.x, -point.y);
@@ -342,7 +406,7 @@ public class ParallelCoordinatesPlot extends JFrame {
             }
     
             // Draw selected data last to draw on top
-            for (int row : selectedRows) {
+            for (int row = selectedRows.nextSetBit(0); row >= 0; row = selectedRows.nextSetBit(row + 1)) {
                 List<Point2D.Double> points = new ArrayList<>();
     
                 for (String attributeName : visualOrder) { // Use visualOrder for drawing polylines
@@ -362,8 +426,8 @@ public class ParallelCoordinatesPlot extends JFrame {
                     points.add(new Point2D.Double(pos.x, y));
                 }
     
-                String classLabel = classLabels.get(row);
-                if (hiddenClasses.containsKey(classLabel)) continue;
+                int classCode = classCodes.getCode(row);
+                if (hiddenClasses[classCode]) continue;
     
                 g2.setColor(Color.YELLOW); // Highlight selected cases
                 g2.setStroke(new BasicStroke(2.0f)); // Thicker line for selected cases
@@ -373,7 +437,7 @@ public class ParallelCoordinatesPlot extends JFrame {
     
                 // Draw class symbols as vertices
                 for (Point2D.Double point : points) {
-                    Shape shape = classShapes.get(classLabel);
+                    Shape shape = shapesByClass[classCode];
                     g2.translate(point.x, point.y);
                     g2.fill(shape);
                     g2.translate(-point.x, -point.y);
@@ -381,4 +445,16 @@ public class ParallelCoordinatesPlot extends JFrame {
             }
         }
     }
-} 
+
+    private boolean isClassHidden(String className) {
+        int classCode = classCodes.codeOf(className);
+        return classCode >= 0 && hiddenClasses[classCode];
+    }
+
+    private void toggleClassHidden(String className) {
+        int classCode = classCodes.codeOf(className);
+        if (classCode >= 0) {
+            hiddenClasses[classCode] = !hiddenClasses[classCode];
+        }
+    }
+}
@@ -13,6 +13,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Set;
 import java.util.HashSet;
+import src.data.ClassCodes;
+import src.data.RowMask;
 import src.utils.ScreenshotUtils;
 
 public class ShiftedPairedCoordinatesPlot extends JFrame {
@@ -21,9 +23,8 @@ public class ShiftedPairedCoordinatesPlot extends JFrame {
     private List<String> attributeNames;
     private Map<String, Color> classColors;
     private Map<String, Shape> classShapes;
-    private List<String> classLabels;
     private int numPlots;
-    private List<Integer> selectedRows;
+    private RowMask selectedRows;
     private JTable table;
     private Map<Integer, Point> plotOffsets; // Stores x,y offsets for each plot
     private Integer draggedPlot;
@@ -33,17 +34,23 @@ public class ShiftedPairedCoordinatesPlot extends JFrame {
     private Map<String, Double> axisScales;
     private Map<String, Boolean> axisDirections;
     private double zoomLevel = 1.0;
-    private Set<String> hiddenClasses; // Track which classes are hidden
+    private ClassCodes classCodes;
+    private boolean[] hiddenClasses; // Indexed by class code
+    private Color[] colorsByClass; // Indexed by class code
+    private Shape[] shapesByClass; // Indexed by class code
     private boolean showSlopes = false; // Toggle for slope visualization
     private Map<Integer, Double> slopeValues; // Store calculated slopes for each line segment
     private JScrollPane mainScrollPane; // Store reference to main scroll pane
 
-    public ShiftedPairedCoordinatesPlot(List<List<Double>> data, List<String> attributeNames, Map<String, Color> classColors, Map<String, Shape> classShapes, List<String> classLabels, int numPlots, List<Integer> selectedRows, String datasetName, JTable table) {
+    public ShiftedPairedCoordinatesPlot(List<List<Double>> data, List<String> attributeNames, Map<String, Color> classColors, Map<String, Shape> classShapes, ClassCodes classCodes, int numPlots, RowMask selectedRows, String datasetName, JTable table) {
         this.data = data;
         this.attributeNames = attributeNames;
         this.classColors = classColors;
         this.classShapes = classShapes;
-        this.classLabels = classLabels;
+        this.classCodes = classCodes;
+        this.hiddenClasses = new boolean[classCodes.getClassCount()];
+        this.colorsByClass = classCodes.byCode(classColors, Color.BLACK, Color[]::new);
+        this.shapesByClass = classCodes.byCode(classShapes, new Ellipse2D.Double(-3, -3, 6, 6), Shape[]::new);
         this.numPlots = numPlots;
         this.selectedRows = selectedRows;
         this.table = table;
@@ -51,7 +58,6 @@ public class ShiftedPairedCoordinatesPlot extends JFrame {
         this.draggedPlot = null;
         this.axisScales = new HashMap<>();
         this.axisDirections = new HashMap<>();
-        this.hiddenClasses = new HashSet<>();
         this.slopeValues = new HashMap<>();
 
         // Initialize plot offsets and axis properties
@@ -292,7 +298,7 @@ public class ShiftedPairedCoordinatesPlot extends JFrame {
         Map<String, List<Double>> yByClass = new HashMap<>();
         
         for (int i = 0; i < x.size(); i++) {
-            String classLabel = classLabels.get(i);
+            String classLabel = classCodes.getLabelOf(i);
             xByClass.computeIfAbsent(classLabel, k -> new ArrayList<>()).add(x.get(i));
             yByClass.computeIfAbsent(classLabel, k -> new ArrayList<>()).add(y.get(i));
         }
@@ -369,7 +375,7 @@ public class ShiftedPairedCoordinatesPlot extends JFrame {
                 protected void paintComponent(Graphics g) {
                     super.paintComponent(g);
                     Graphics2D g2 = (Graphics2D) g;
-                    g2.setColor(hiddenClasses.contains(className) ? Color.LIGHT_GRAY : color);
+                    g2.setColor(isClassHidden(className) ? Color.LIGHT_GRAY : color);
                     g2.translate(32, 20);
                     g2.scale(2, 2);
                     g2.fill(shape);
@@ -379,17 +385,13 @@ public class ShiftedPairedCoordinatesPlot extends JFrame {
 
             JLabel label = new JLabel(className);
             label.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 10));
-            label.setForeground(hiddenClasses.contains(className) ? Color.LIGHT_GRAY : Color.BLACK);
+            label.setForeground(isClassHidden(className) ? Color.LIGHT_GRAY : Color.BLACK);
 
             colorLabelPanel.addMouseListener(new MouseAdapter() {
                 @Override
                 public void mouseClicked(MouseEvent e) {
-                    if (hiddenClasses.contains(className)) {
-                        hiddenClasses.remove(className);
-                    } else {
-                        hiddenClasses.add(className);
-                    }
-                    label.setForeground(hiddenClasses.contains(className) ? Color.LIGHT_GRAY : Color.BLACK);
+                    toggleClassHidden(className);
+                    label.setForeground(isClassHidden(className) ? Color.LIGHT_GRAY : Color.BLACK);
                     shapeLabel.repaint();
                     plotPanel.repaint();
                 }
@@ -455,8 +457,7 @@ public class ShiftedPairedCoordinatesPlot extends JFrame {
             // Draw non-highlighted rows first
             for (int i = 0; i < table.getRowCount(); i++) {
                 int row = table.convertRowIndexToModel(i);
-                String classLabel = classLabels.get(row);
-                if (!selectedRows.contains(row) && !hiddenClasses.contains(classLabel)) {
+                if (!selectedRows.get(row) && !hiddenClasses[classCodes.getCode(row)]) {
                     drawRow(g2, row, titleHeight + TITLE_PADDING + 10, plotWidth, plotHeight);
                     drawScatterPlot(g2, row, titleHeight + TITLE_PADDING + 10, plotWidth, plotHeight);
                 }
@@ -465,8 +466,7 @@ public class ShiftedPairedCoordinatesPlot extends JFrame {
             // Draw highlighted rows last
             for (int i = 0; i < table.getRowCount(); i++) {
                 int row = table.convertRowIndexToModel(i);
-                String classLabel = classLabels.get(row);
-                if (selectedRows.contains(row) && !hiddenClasses.contains(classLabel)) {
+                if (selectedRows.get(row) && !hiddenClasses[classCodes.getCode(row)]) {
                     drawHighlightedRow(g2, row, titleHeight + TITLE_PADDING + 10, plotWidth, plotHeight);
                     drawScatterPlot(g2, row, titleHeight + TITLE_PADDING + 10, plotWidth, plotHeight);
                 }
@@ -503,8 +503,7 @@ public class ShiftedPairedCoordinatesPlot extends JFrame {
 
         private void drawRowHelper(Graphics2D g2, int row, int plotY, int plotWidth, int plotHeight, boolean isHighlighted) {
             int numAttributes = attributeNames.size();
-            String classLabel = classLabels.get(row);
-            Color color = isHighlighted ? Color.YELLOW : classColors.getOrDefault(classLabel, Color.BLACK);
+            Color color = isHighlighted ? Color.YELLOW : colorsByClass[classCodes.getCode(row)];
             Stroke originalStroke = g2.getStroke();
             g2.setStroke(isHighlighted ? new BasicStroke(2) : originalStroke);
         
@@ -610,9 +609,9 @@ public class ShiftedPairedCoordinatesPlot extends JFrame {
                 int px = plotX + (int) (plotSize * normX * scale1);
                 int py = plotY + plotSize - (int) (plotSize * normY * scale2) + offset.y;
 
-                String classLabel = classLabels.get(row);
-                Color color = selectedRows.contains(row) ? Color.YELLOW : classColors.getOrDefault(classLabel, Color.BLACK);
-                Shape shape = classShapes.getOrDefault(classLabel, new Ellipse2D.Double(-3, -3, 6, 6));
+                int classCode = classCodes.getCode(row);
+                Color color = selectedRows.get(row) ? Color.YELLOW : colorsByClass[classCode];
+                Shape shape = shapesByClass[classCode];
 
                 g2.setColor(color);
                 g2.translate(px, py);
@@ -629,4 +628,16 @@ public class ShiftedPairedCoordinatesPlot extends JFrame {
             return data.stream().max(Double::compare).orElse(Double.NaN);
         }
     }
+
+    private boolean isClassHidden(String className) {
+        int classCode = classCodes.codeOf(className);
+        return classCode >= 0 && hiddenClasses[classCode];
+    }
+
+    private void toggleClassHidden(String className) {
+        int classCode = classCodes.codeOf(className);
+        if (classCode >= 0) {
+            hiddenClasses[classCode] = !hiddenClasses[classCode];
+        }
+    }
 }
@@ -9,7 +9,8 @@ import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
+import src.data.ClassCodes;
+import src.data.RowMask;
 import src.utils.ScreenshotUtils;
 
 public class StarCoordinatesPlot extends JFrame {
@@ -18,25 +19,27 @@ public class StarCoordinatesPlot extends JFrame {
     private List<String> attributeNames;
     private Map<String, Color> classColors;
     private Map<String, Shape> classShapes;
-    private List<String> classLabels;
-    private List<Integer> selectedRows;
+    private RowMask selectedRows;
     private String datasetName;
-    private Map<String, Boolean> hiddenClasses; // Map to keep track of hidden classes
+    private ClassCodes classCodes;
+    private boolean[] hiddenClasses; // Indexed by class code
+    private Color[] colorsByClass; // Indexed by class code
     private boolean showAttributeLabels = true; // Flag to toggle attribute labels
 
     // Font settings
     private static final Font TITLE_FONT = new Font("SansSerif", Font.BOLD, 24);
     private static final Font AXIS_LABEL_FONT = new Font("SansSerif", Font.PLAIN, 16);
 
-    public StarCoordinatesPlot(List<List<Double>> data, List<String> attributeNames, Map<String, Color> classColors, Map<String, Shape> classShapes, List<String> classLabels, List<Integer> selectedRows, String datasetName) {
+    public StarCoordinatesPlot(List<List<Double>> data, List<String> attributeNames, Map<String, Color> classColors, Map<String, Shape> classShapes, ClassCodes classCodes, RowMask selectedRows, String datasetName) {
         this.data = data;
         this.attributeNames = attributeNames;
         this.classColors = classColors;
         this.classShapes = classShapes;
-        this.classLabels = classLabels;
+        this.classCodes = classCodes;
+        this.hiddenClasses = new boolean[classCodes.getClassCount()];
+        this.colorsByClass = classCodes.byCode(classColors, null, Color[]::new);
         this.selectedRows = selectedRows;
         this.datasetName = datasetName;
-        this.hiddenClasses = new HashMap<>(); // Initialize hiddenClasses map
 
         setTitle("Star Coordinates Plot");
         setSize(800, 800);
@@ -97,7 +100,7 @@ public class StarCoordinatesPlot extends JFrame {
                 protected void paintComponent(Graphics g) {
                     super.paintComponent(g);
                     Graphics2D g2 = (Graphics2D) g;
-                    g2.setColor(hiddenClasses.containsKey(className) ? Color.LIGHT_GRAY : color);
+                    g2.setColor(isClassHidden(className) ? Color.LIGHT_GRAY : color);
                     g2.translate(20, 20);
                     g2.scale(3, 3);
                     g2.fill(shape);
@@ -114,11 +117,7 @@ public class StarCoordinatesPlot extends JFrame {
             colorLabelPanel.addMouseListener(new MouseAdapter() {
                 @Override
                 public void mouseClicked(MouseEvent e) {
-                    if (hiddenClasses.containsKey(className)) {
-                        hiddenClasses.remove(className);
-                    } else {
-                        hiddenClasses.put(className, true);
-                    }
+                    toggleClassHidden(className);
                     repaint();
                 }
             });
@@ -192,14 +191,14 @@ public class StarCoordinatesPlot extends JFrame {
 
             // Draw the star coordinates for each data point
             for (int row = 0; row < data.get(0).size(); row++) {
-                if (!selectedRows.contains(row) && !hiddenClasses.containsKey(classLabels.get(row))) {
+                if (!selectedRows.get(row) && !hiddenClasses[classCodes.getCode(row)]) {
                     drawStar(g2, row, centerX, centerY, plotSize / 2, angleIncrement, false);
                 }
             }
 
             // Highlight selected rows
             for (int row = 0; row < data.get(0).size(); row++) {
-                if (selectedRows.contains(row) && !hiddenClasses.containsKey(classLabels.get(row))) {
+                if (selectedRows.get(row) && !hiddenClasses[classCodes.getCode(row)]) {
                     drawStar(g2, row, centerX, centerY, plotSize / 2, angleIncrement, true);
                 }
             }
@@ -228,7 +227,7 @@ public class StarCoordinatesPlot extends JFrame {
                 g2.setPaint(Color.YELLOW);
                 g2.setStroke(new BasicStroke(2));
             } else {
-                g2.setPaint(classColors.get(classLabels.get(row)));
+                g2.setPaint(colorsByClass[classCodes.getCode(row)]);
                 g2.setStroke(new BasicStroke(1));
             }
 
@@ -250,4 +249,16 @@ public class StarCoordinatesPlot extends JFrame {
             g2.drawString(text, x - width / 2, y + height / 4); // Slight adjustment for better centering
         }
     }
+
+    private boolean isClassHidden(String className) {
+        int classCode = classCodes.codeOf(className);
+        return classCode >= 0 && hiddenClasses[classCode];
+    }
+
+    private void toggleClassHidden(String className) {
+        int classCode = classCodes.codeOf(className);
+        if (classCode >= 0) {
+            hiddenClasses[classCode] = !hiddenClasses[classCode];
+        }
+    }
 }
@@ -1,33 +1,30 @@
 package src.table;
 
+import src.data.NumberParser;
+
 import java.util.Comparator;
 
 public class NumericStringComparator implements Comparator<String> {
+    private final NumberParser numberParser = new NumberParser();
+
     @Override
     public int compare(String o1, String o2) {
         // Try to parse both strings as doubles
-        Double d1 = tryParseDouble(o1);
-        Double d2 = tryParseDouble(o2);
+        boolean isNumber1 = numberParser.parse(o1) == NumberParser.NUMBER;
+        double d1 = numberParser.getValue();
+        boolean isNumber2 = numberParser.parse(o2) == NumberParser.NUMBER;
+        double d2 = numberParser.getValue();
 
         // If both are numbers, compare them numerically
-        if (d1 != null && d2 != null) {
+        if (isNumber1 && isNumber2) {
             return Double.compare(d1, d2);
         }
 
         // If only one is a number, the numeric one should come first
-        if (d1 != null) return -1;
-        if (d2 != null) return 1;
+        if (isNumber1) return -1;
+        if (isNumber2) return 1;
 
         // Fall back to lexicographical comparison if neither is a number
         return o1.compareTo(o2);
     }
-
-    // Helper method to try to parse a string as a double
-    private Double tryParseDouble(String value) {
-        try {
-            return Double.parseDouble(value.trim());
-        } catch (NumberFormatException e) {
-            return null; // Return null if parsing fails
-        }
-    }
 }
@@ -1,31 +1,153 @@
 package src.table;
-import javax.swing.table.DefaultTableModel;
-import java.util.Vector;
+import javax.swing.table.AbstractTableModel;
+
+import src.data.ColumnStore;
+
+/**
+ * The ReorderableTableModel class shows a ColumnStore in a JTable without copying it. Cells are formatted
+ * from the primitive columns only when the table asks for them, so JTable only touches the rows it paints,
+ * and edits are written straight into the store.
+ *
+ * The store's column list is the model-to-physical column map: inserting, deleting or moving a column only
+ * changes that list and never moves cell values.
+ */
+public class ReorderableTableModel extends AbstractTableModel {
+    private ColumnStore columnStore = new ColumnStore();
 
-public class ReorderableTableModel extends DefaultTableModel {
     public ReorderableTableModel() {
         super();
     }
 
     public ReorderableTableModel(Object[] columnNames, int rowCount) {
-        super(columnNames, rowCount);
+        for (Object columnName : columnNames) {
+            columnStore.addColumn(String.valueOf(columnName));
+        }
+        columnStore.setRowCount(rowCount);
     }
 
-    public void moveRow(int start, int end, int to) {
-        if (start == end) {
+    public ColumnStore getColumnStore() {
+        return columnStore;
+    }
+
+    /**
+     * Binds the table to the given column store. Every later edit made through this model is written to
+     * the store.
+     */
+    public void setColumnStore(ColumnStore columnStore) {
+        this.columnStore = columnStore;
+        fireTableStructureChanged();
+    }
+
+    /**
+     * Appends a batch of rows to the bound store and shows them with a single table event. The first batch
+     * on an empty table becomes the store itself.
+     */
+    public void appendRows(ColumnStore batch) {
+        if (getColumnCount() == 0) {
+            setColumnStore(batch);
             return;
         }
 
-        Vector<Object> rows = new Vector<>();
-        for (int i = start; i <= end; i++) {
-            rows.add(getDataVector().remove(start));
+        int firstRow = columnStore.getRowCount();
+        columnStore.appendRows(batch);
+        if (columnStore.getRowCount() > firstRow) {
+            fireTableRowsInserted(firstRow, columnStore.getRowCount() - 1);
         }
+    }
+
+    @Override
+    public int getRowCount() {
+        return columnStore.getRowCount();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnStore.getColumnCount();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnStore.getColumnName(column);
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return true;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return columnStore.getText(row, column);
+    }
+
+    @Override
+    public void setValueAt(Object aValue, int row, int column) {
+        columnStore.setValue(row, column, aValue);
+        fireTableCellUpdated(row, column);
+    }
+
+    public void addRow(Object[] rowData) {
+        insertRow(getRowCount(), rowData);
+    }
 
-        for (Object row : rows) {
-            getDataVector().add(to++, (Vector<?>) row);
+    public void insertRow(int row, Object[] rowData) {
+        columnStore.insertRow(row, rowData);
+        fireTableRowsInserted(row, row);
+    }
+
+    public void removeRow(int row) {
+        columnStore.removeRow(row);
+        fireTableRowsDeleted(row, row);
+    }
+
+    /**
+     * Removes several rows at once, compacting each column in a single pass.
+     */
+    public void removeRows(int[] rows) {
+        if (rows.length == 0) {
+            return;
+        }
+        columnStore.removeRows(rows);
+        fireTableDataChanged();
+    }
+
+    public void setRowCount(int rowCount) {
+        int oldRowCount = getRowCount();
+        if (rowCount == oldRowCount) {
+            return;
         }
+        columnStore.setRowCount(rowCount);
+        if (rowCount < oldRowCount) {
+            fireTableRowsDeleted(rowCount, oldRowCount - 1);
+        } else {
+            fireTableRowsInserted(oldRowCount, rowCount - 1);
+        }
+    }
+
+    public void addColumn(Object columnName) {
+        columnStore.addColumn(String.valueOf(columnName));
+        fireTableStructureChanged();
+    }
+
+    public void removeColumn(int column) {
+        columnStore.removeColumn(column);
+        fireTableStructureChanged();
+    }
+
+    public void setColumnCount(int columnCount) {
+        columnStore.setColumnCount(columnCount);
+        fireTableStructureChanged();
+    }
+
+    public void moveRow(int start, int end, int to) {
+        if (start == end) {
+            return;
+        }
+
+        int length = end - start + 1;
+        columnStore.moveRows(start, end, to);
 
         fireTableRowsDeleted(start, end);
-        fireTableRowsInserted(to - rows.size(), to - 1);
+        fireTableRowsInserted(to, to + length - 1);
     }
 }
@@ -1,7 +1,6 @@
 package src.table;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 
 import java.awt.datatransfer.Transferable;
 import java.awt.datatransfer.UnsupportedFlavorException;
@@ -50,7 +49,7 @@ public class TableRowTransferHandler extends TransferHandler {
 
         try {
             Object[][] data = (Object[][]) transferable.getTransferData(TableRowsTransferable.DATA_FLAVOR);
-            DefaultTableModel model = (DefaultTableModel) table.getModel();
+            ReorderableTableModel model = (ReorderableTableModel) table.getModel();
 
             // Insert rows at the new location
             for (Object[] rowData : data) {
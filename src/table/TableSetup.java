@@ -1,11 +1,10 @@
 package src.table;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 
 public class TableSetup {
-    public static JTable createTable(DefaultTableModel tableModel) {
+    public static JTable createTable(ReorderableTableModel tableModel) {
         JTable table = new JTable(tableModel);
         table.setDragEnabled(true);
         table.setDropMode(DropMode.INSERT_ROWS);
@@ -15,7 +14,7 @@ public class TableSetup {
         table.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         table.getTableHeader().setReorderingAllowed(true);
 
-        TableRowSorter<DefaultTableModel> sorter = new TableRowSorter<>(tableModel);
+        TableRowSorter<ReorderableTableModel> sorter = new TableRowSorter<>(tableModel);
         table.setRowSorter(sorter);
 
         return table;
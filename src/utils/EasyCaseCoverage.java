@@ -0,0 +1,73 @@
+package src.utils;
+
+import java.util.BitSet;
+
+/**
+ * The EasyCaseCoverage class holds, for every row, the highest threshold at which a pure region or hyperblock
+ * still covers it, so the rows hidden as easy cases and the number of cases left at any threshold are
+ * lookups instead of a new search. PureRegionCoverage and HyperblockCoverage fill it from their results.
+ *
+ * A region or block passes a threshold when its share of its class or of the dataset reaches it.
+ */
+public abstract class EasyCaseCoverage {
+
+    public static final int MAX_THRESHOLD = 100;
+
+    private final byte[] rowLevels; // Highest threshold that still covers the row, or -1 if none does
+    private final int[] remainingCases; // Rows not covered, indexed by threshold
+
+    protected EasyCaseCoverage(byte[] rowLevels) {
+        this.rowLevels = rowLevels;
+        int[] coveredAtLevel = new int[MAX_THRESHOLD + 1];
+        for (byte level : rowLevels) {
+            if (level >= 0) {
+                coveredAtLevel[level]++;
+            }
+        }
+        remainingCases = new int[MAX_THRESHOLD + 1];
+        int covered = 0;
+        for (int threshold = MAX_THRESHOLD; threshold >= 0; threshold--) {
+            covered += coveredAtLevel[threshold];
+            remainingCases[threshold] = rowLevels.length - covered;
+        }
+    }
+
+    /**
+     * Returns the text listing what passes the threshold, for the stats area.
+     */
+    public abstract String describe(int thresholdPercentage);
+
+    /**
+     * Returns the number of cases nothing covers at the given threshold.
+     */
+    public int getRemainingCases(int thresholdPercentage) {
+        return remainingCases[clamp(thresholdPercentage)];
+    }
+
+    /**
+     * Returns the rows covered at the given threshold.
+     */
+    public BitSet getCoveredRows(int thresholdPercentage) {
+        int threshold = clamp(thresholdPercentage);
+        BitSet coveredRows = new BitSet(rowLevels.length);
+        for (int row = 0; row < rowLevels.length; row++) {
+            if (rowLevels[row] >= threshold) {
+                coveredRows.set(row);
+            }
+        }
+        return coveredRows;
+    }
+
+    /**
+     * Returns the highest whole threshold that keeps something with the given shares: it is kept at
+     * threshold t unless both percentages are below t.
+     */
+    static byte levelOf(double percentageOfClass, double percentageOfDataset) {
+        double percentage = Math.max(percentageOfClass, percentageOfDataset);
+        return (byte) Math.min(Math.floor(percentage), MAX_THRESHOLD);
+    }
+
+    static int clamp(int thresholdPercentage) {
+        return Math.max(0, Math.min(thresholdPercentage, MAX_THRESHOLD));
+    }
+}
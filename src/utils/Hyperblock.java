@@ -0,0 +1,103 @@
+package src.utils;
+
+import java.util.List;
+
+/**
+ * The Hyperblock class is an axis-aligned box over the numeric attributes of a dataset that holds cases
+ * of one class only. Both bounds of every attribute are inclusive and are values of that attribute, and
+ * the block knows the rows it covers, so hiding them or counting them does not search the data again.
+ */
+public final class Hyperblock {
+
+    private final List<String> attributeNames;
+    private final double[] lows;
+    private final double[] highs;
+    private final boolean[] bounded;
+    private final String currentClass;
+    private final int[] rows;
+    private final double percentageOfClass;
+    private final double percentageOfDataset;
+
+    Hyperblock(List<String> attributeNames, double[] lows, double[] highs, boolean[] bounded, String currentClass,
+               int[] rows, double percentageOfClass, double percentageOfDataset) {
+        this.attributeNames = attributeNames;
+        this.lows = lows;
+        this.highs = highs;
+        this.bounded = bounded;
+        this.currentClass = currentClass;
+        this.rows = rows;
+        this.percentageOfClass = percentageOfClass;
+        this.percentageOfDataset = percentageOfDataset;
+    }
+
+    public List<String> getAttributeNames() {
+        return attributeNames;
+    }
+
+    public int getAttributeCount() {
+        return lows.length;
+    }
+
+    public double getLow(int attribute) {
+        return lows[attribute];
+    }
+
+    public double getHigh(int attribute) {
+        return highs[attribute];
+    }
+
+    /**
+     * Returns whether the block leaves out some values of the attribute, i.e. whether the attribute is
+     * part of the rule the block stands for.
+     */
+    public boolean isBounded(int attribute) {
+        return bounded[attribute];
+    }
+
+    public String getCurrentClass() {
+        return currentClass;
+    }
+
+    public int getCount() {
+        return rows.length;
+    }
+
+    /**
+     * Returns the rows the block covers, in ascending order.
+     */
+    public int[] getRows() {
+        return rows.clone();
+    }
+
+    public double getPercentageOfClass() {
+        return percentageOfClass;
+    }
+
+    public double getPercentageOfDataset() {
+        return percentageOfDataset;
+    }
+
+    /**
+     * Returns the bounds of the attributes the block constrains, e.g. "1.00 <= a <= 2.50, b <= 3.00".
+     */
+    public String describeBounds() {
+        StringBuilder sb = new StringBuilder();
+        for (int attribute = 0; attribute < lows.length; attribute++) {
+            if (!bounded[attribute]) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(String.format("%.2f <= %s <= %.2f", lows[attribute], attributeNames.get(attribute), highs[attribute]));
+        }
+        return sb.length() == 0 ? "all cases" : sb.toString();
+    }
+
+    /**
+     * Returns the rows without copying them, for the coverage of a block list.
+     */
+    int[] rows() {
+        return rows;
+    }
+}
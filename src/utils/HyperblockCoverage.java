@@ -0,0 +1,73 @@
+package src.utils;
+
+import src.data.ColumnStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The HyperblockCoverage class keeps the hyperblocks of a dataset before the threshold is applied, together
+ * with the highest threshold at which each row is still covered by one of them, the multi-attribute
+ * counterpart of PureRegionCoverage.
+ */
+public final class HyperblockCoverage extends EasyCaseCoverage {
+
+    private final List<Hyperblock> hyperblocks;
+
+    private HyperblockCoverage(List<Hyperblock> hyperblocks, byte[] rowLevels) {
+        super(rowLevels);
+        this.hyperblocks = hyperblocks;
+    }
+
+    /**
+     * Finds the hyperblocks of the store and the coverage of every row, or returns null once cancelled
+     * returns true. The store must not change while this runs.
+     */
+    public static HyperblockCoverage compute(ColumnStore columnStore, int classColumnIndex, ForkJoinPool pool, BooleanSupplier cancelled) {
+        List<Hyperblock> hyperblocks = HyperblockEngine.findHyperblocks(columnStore, classColumnIndex, pool, cancelled);
+        if (cancelled.getAsBoolean()) {
+            return null;
+        }
+
+        byte[] rowLevels = new byte[columnStore.getRowCount()];
+        Arrays.fill(rowLevels, (byte) -1);
+        for (Hyperblock hyperblock : hyperblocks) {
+            byte level = levelOf(hyperblock.getPercentageOfClass(), hyperblock.getPercentageOfDataset());
+            for (int row : hyperblock.rows()) {
+                if (level > rowLevels[row]) {
+                    rowLevels[row] = level;
+                }
+            }
+        }
+        return new HyperblockCoverage(hyperblocks, rowLevels);
+    }
+
+    /**
+     * Returns the hyperblocks that pass the threshold, largest first.
+     */
+    public List<Hyperblock> getHyperblocks(int thresholdPercentage) {
+        int threshold = clamp(thresholdPercentage);
+        List<Hyperblock> passing = new ArrayList<>();
+        for (Hyperblock hyperblock : hyperblocks) {
+            if (levelOf(hyperblock.getPercentageOfClass(), hyperblock.getPercentageOfDataset()) >= threshold) {
+                passing.add(hyperblock);
+            }
+        }
+        return passing;
+    }
+
+    @Override
+    public String describe(int thresholdPercentage) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Multi-Attribute Hyperblocks:\n");
+        for (Hyperblock hyperblock : getHyperblocks(thresholdPercentage)) {
+            sb.append(String.format("Hyperblock: %s, Class: %s, Count: %d (%.2f%% of class, %.2f%% of dataset)\n",
+                    hyperblock.describeBounds(), hyperblock.getCurrentClass(), hyperblock.getCount(),
+                    hyperblock.getPercentageOfClass(), hyperblock.getPercentageOfDataset()));
+        }
+        return sb.toString();
+    }
+}
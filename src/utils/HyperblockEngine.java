@@ -0,0 +1,489 @@
+package src.utils;
+
+import src.data.ClassCodes;
+import src.data.ColumnStore;
+import src.data.SortedColumnIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The HyperblockEngine class finds hyperblocks: boxes over all numeric attributes that hold cases of one
+ * class only. Every case that no block of its class covers yet is a seed, and its box grows one attribute
+ * bound at a time for as long as no case of another class falls inside. Steps that succeed double and
+ * steps that fail halve, and the bounds take turns, so a box grows about evenly along every attribute
+ * in a logarithmic number of checks. Afterwards boxes whose cases larger boxes already cover are dropped,
+ * and boxes of a class are merged whenever the box around both is still pure.
+ *
+ * Each check looks at the cases in the new slab of the growing attribute, or, when it has fewer, at the
+ * cases within the bounds of the narrowest other attribute, found as one run of that attribute's sorted
+ * index. Values are compared by their position in the sorted indexes, and every case is also stored in
+ * the sorted order of each attribute, so a check reads one stretch of memory. Cases with a blank
+ * attribute are left out. The classes, and slices of the seeds of each class, are searched in parallel
+ * on the given pool and merged in a fixed order, so the result does not depend on the scheduling.
+ */
+public final class HyperblockEngine {
+
+    private static final int SEEDS_PER_TASK = 256;
+    private static final int MAX_SLICES_PER_WAVE = 16;
+    private static final long MAX_SORTED_CELLS = 1L << 25; // Above this the cases are only stored in row order
+    private static final long MAX_ROW_CELLS = 1L << 28; // 1 GB of ranks next to the store
+
+    private final List<String> attributeNames;
+    private final int attributeCount;
+    private final int width; // Cells per case: the rank of each attribute, then the class
+    private final SortedColumnIndex[] sortedIndexes;
+    private final int[] rowCells; // Cases in row order
+    private final int[][] sortedCells; // Cases in the sorted order of each attribute, or null if too large
+    private final ClassCodes classCodes;
+    private final int[] classCounts;
+    private final int totalRows;
+
+    /**
+     * A box being grown or merged, as the positions from starts to ends of each attribute's sorted index.
+     * Both ends fall between runs of equal values.
+     */
+    private static final class Box {
+        private final int classCode;
+        private final int[] starts;
+        private final int[] ends;
+
+        private Box(int classCode, int[] starts, int[] ends) {
+            this.classCode = classCode;
+            this.starts = starts;
+            this.ends = ends;
+        }
+
+        private Box envelope(Box other) {
+            int[] envelopeStarts = new int[starts.length];
+            int[] envelopeEnds = new int[ends.length];
+            for (int attribute = 0; attribute < starts.length; attribute++) {
+                envelopeStarts[attribute] = Math.min(starts[attribute], other.starts[attribute]);
+                envelopeEnds[attribute] = Math.max(ends[attribute], other.ends[attribute]);
+            }
+            return new Box(classCode, envelopeStarts, envelopeEnds);
+        }
+    }
+
+    private HyperblockEngine(ColumnStore columnStore, int classColumnIndex) {
+        List<Integer> columns = new ArrayList<>();
+        for (int col = 0; col < columnStore.getColumnCount(); col++) {
+            if (col != classColumnIndex && columnStore.isNumeric(col)) {
+                columns.add(col);
+            }
+        }
+        totalRows = columnStore.getRowCount();
+        attributeCount = columns.size();
+        width = attributeCount + 1;
+        classCodes = ClassCodes.of(columnStore, classColumnIndex);
+        classCounts = classCodes.countAll();
+
+        // A case's rank in an attribute is the first position of its value, so that equal values share it
+        long cellCount = (long) totalRows * width;
+        if (cellCount > MAX_ROW_CELLS) {
+            throw new IllegalStateException("Too much data for hyperblocks: " + totalRows + " cases of "
+                    + attributeCount + " attributes; at most " + MAX_ROW_CELLS + " values are supported");
+        }
+        List<String> names = new ArrayList<>();
+        sortedIndexes = new SortedColumnIndex[attributeCount];
+        rowCells = new int[(int) cellCount];
+        for (int row = 0; row < totalRows; row++) {
+            rowCells[row * width + attributeCount] = classCodes.getCode(row);
+        }
+        for (int attribute = 0; attribute < attributeCount; attribute++) {
+            int col = columns.get(attribute);
+            names.add(columnStore.getColumnName(col));
+            SortedColumnIndex sorted = columnStore.getSortedIndex(col);
+            sortedIndexes[attribute] = sorted;
+            for (int row = 0; row < totalRows; row++) {
+                if (columnStore.isMissing(row, col)) {
+                    rowCells[row * width + attribute] = -1;
+                    rowCells[row * width + attributeCount] = -1;
+                }
+            }
+            int rank = 0;
+            for (int position = 0; position < sorted.size(); position++) {
+                if (position > 0 && Double.compare(sorted.getValue(position), sorted.getValue(position - 1)) != 0) {
+                    rank = position;
+                }
+                rowCells[sorted.getRow(position) * width + attribute] = rank;
+            }
+        }
+        attributeNames = Collections.unmodifiableList(names);
+
+        if ((long) totalRows * width * attributeCount <= MAX_SORTED_CELLS) {
+            sortedCells = new int[attributeCount][];
+            for (int attribute = 0; attribute < attributeCount; attribute++) {
+                SortedColumnIndex sorted = sortedIndexes[attribute];
+                int[] cells = new int[sorted.size() * width];
+                for (int position = 0; position < sorted.size(); position++) {
+                    System.arraycopy(rowCells, sorted.getRow(position) * width, cells, position * width, width);
+                }
+                sortedCells[attribute] = cells;
+            }
+        } else {
+            sortedCells = null;
+        }
+    }
+
+    /**
+     * Finds the hyperblocks of the store, largest first. Once cancelled returns true the remaining work is
+     * skipped and an empty list is returned. The store must not change while this runs.
+     *
+     * @throws IllegalStateException if the store has too many cases and attributes to rank them in memory
+     */
+    public static List<Hyperblock> findHyperblocks(ColumnStore columnStore, int classColumnIndex, ForkJoinPool pool, BooleanSupplier cancelled) {
+        if (classColumnIndex == -1) {
+            return Collections.emptyList();
+        }
+        HyperblockEngine engine = new HyperblockEngine(columnStore, classColumnIndex);
+        if (engine.attributeCount == 0) {
+            return Collections.emptyList();
+        }
+
+        List<ForkJoinTask<List<Box>>> classTasks = new ArrayList<>();
+        for (int classCode = 0; classCode < engine.classCodes.getClassCount(); classCode++) {
+            int taskClass = classCode;
+            classTasks.add(pool.submit(() -> engine.findBoxes(taskClass, cancelled)));
+        }
+
+        List<Hyperblock> hyperblocks = new ArrayList<>();
+        for (ForkJoinTask<List<Box>> task : classTasks) {
+            for (Box box : task.join()) {
+                hyperblocks.add(engine.toHyperblock(box));
+            }
+        }
+        if (cancelled.getAsBoolean()) {
+            return Collections.emptyList();
+        }
+        hyperblocks.sort(Comparator.comparingInt(Hyperblock::getCount).reversed());
+        return hyperblocks;
+    }
+
+    /**
+     * Finds the boxes of one class. The seeds are taken in waves of slices that grow in parallel; a slice
+     * skips the seeds that the boxes of earlier waves or of its own earlier seeds cover, so the large boxes
+     * are grown once by the first waves instead of once per slice. The waves are fixed by the seed count
+     * alone, which keeps the result independent of the scheduling.
+     */
+    private List<Box> findBoxes(int classCode, BooleanSupplier cancelled) {
+        int[] seeds = seedsOf(classCode);
+        List<Box> boxes = new ArrayList<>();
+        int slices = 1;
+        for (int from = 0; from < seeds.length && !cancelled.getAsBoolean(); slices = Math.min(slices * 2, MAX_SLICES_PER_WAVE)) {
+            List<Box> known = new ArrayList<>(boxes);
+            List<ForkJoinTask<List<Box>>> waveTasks = new ArrayList<>();
+            for (int slice = 0; slice < slices && from < seeds.length; slice++) {
+                int sliceFrom = from;
+                int sliceTo = Math.min(seeds.length, from + SEEDS_PER_TASK);
+                waveTasks.add(ForkJoinTask.adapt(() -> growSeeds(seeds, sliceFrom, sliceTo, known, cancelled)));
+                from = sliceTo;
+            }
+            ForkJoinTask.invokeAll(waveTasks);
+            for (ForkJoinTask<List<Box>> task : waveTasks) {
+                boxes.addAll(task.join());
+            }
+        }
+        return cancelled.getAsBoolean() ? Collections.emptyList() : mergeBoxes(boxes, cancelled);
+    }
+
+    private int[] seedsOf(int classCode) {
+        int[] seeds = new int[classCounts[classCode]];
+        int count = 0;
+        for (int row = 0; row < totalRows; row++) {
+            if (rowCells[row * width + attributeCount] == classCode) {
+                seeds[count++] = row;
+            }
+        }
+        return Arrays.copyOf(seeds, count);
+    }
+
+    /**
+     * Grows a box from every seed in the slice that neither the known boxes nor the boxes grown so far cover.
+     * Seeds that share their point with a case of another class grow no box.
+     */
+    private List<Box> growSeeds(int[] seeds, int from, int to, List<Box> known, BooleanSupplier cancelled) {
+        List<Box> boxes = new ArrayList<>();
+        for (int i = from; i < to && !cancelled.getAsBoolean(); i++) {
+            int seed = seeds[i];
+            if (!isCovered(seed, known) && !isCovered(seed, boxes)) {
+                Box box = grow(seed);
+                if (box != null) {
+                    boxes.add(box);
+                }
+            }
+        }
+        return boxes;
+    }
+
+    private boolean isCovered(int row, List<Box> boxes) {
+        for (Box box : boxes) {
+            if (isInside(rowCells, row * width, box, -1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Grows the box of a single case until no bound can move without taking in a case of another class.
+     * A bound that cannot move by one value stays blocked, since the box only grows. Returns null if a case
+     * of another class has the same values as the seed, since then no pure box holds it.
+     */
+    private Box grow(int seed) {
+        int[] starts = new int[attributeCount];
+        int[] ends = new int[attributeCount];
+        for (int attribute = 0; attribute < attributeCount; attribute++) {
+            SortedColumnIndex sorted = sortedIndexes[attribute];
+            starts[attribute] = rowCells[seed * width + attribute];
+            ends[attribute] = sorted.upperBound(sorted.getValue(starts[attribute]));
+        }
+        Box box = new Box(rowCells[seed * width + attributeCount], starts, ends);
+        if (hasConflict(box)) {
+            return null;
+        }
+
+        int[] steps = new int[2 * attributeCount]; // Even entries move a high bound, odd ones a low bound
+        Arrays.fill(steps, 1);
+        int open = steps.length;
+        while (open > 0) {
+            for (int bound = 0; bound < steps.length; bound++) {
+                if (steps[bound] == 0) {
+                    continue;
+                }
+                if (tryGrow(box, bound / 2, bound % 2 == 0, steps[bound])) {
+                    steps[bound] = Math.min(steps[bound] * 2, 1 << 30);
+                } else {
+                    steps[bound] /= 2;
+                    if (steps[bound] == 0) {
+                        open--;
+                    }
+                }
+            }
+        }
+        return box;
+    }
+
+    /**
+     * Moves one bound of the box out by up to the given number of cases in the attribute's sorted order,
+     * or returns false if that would take in a case of another class.
+     */
+    private boolean tryGrow(Box box, int attribute, boolean up, int step) {
+        SortedColumnIndex sorted = sortedIndexes[attribute];
+        int from;
+        int to;
+        if (up) {
+            from = box.ends[attribute];
+            if (from == sorted.size()) {
+                return false;
+            }
+            to = sorted.upperBound(sorted.getValue(Math.min(sorted.size(), from + step) - 1));
+        } else {
+            to = box.starts[attribute];
+            if (to == 0) {
+                return false;
+            }
+            from = sorted.lowerBound(sorted.getValue(Math.max(0, to - step)));
+        }
+
+        int driver = narrowestAttribute(box, attribute);
+        if (driver == -1 || to - from <= box.ends[driver] - box.starts[driver]) {
+            if (hasConflict(box, attribute, from, to, attribute)) {
+                return false;
+            }
+        } else {
+            // The slab is wider than the box along the driver, so walk the driver and keep to the slab
+            int[] cells = cellsOf(driver);
+            for (int position = box.starts[driver]; position < box.ends[driver]; position++) {
+                int base = baseOf(driver, position);
+                int rank = cells[base + attribute];
+                if (rank >= from && rank < to && isConflict(cells, base, box, attribute)) {
+                    return false;
+                }
+            }
+        }
+
+        if (up) {
+            box.ends[attribute] = to;
+        } else {
+            box.starts[attribute] = from;
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether a case of another class lies at the given positions of the driver's sorted index and
+     * within the bounds of the box apart from the skipped attribute.
+     */
+    private boolean hasConflict(Box box, int driver, int from, int to, int skippedAttribute) {
+        int[] cells = cellsOf(driver);
+        for (int position = from; position < to; position++) {
+            if (isConflict(cells, baseOf(driver, position), box, skippedAttribute)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the box holds a case of another class.
+     */
+    private boolean hasConflict(Box box) {
+        int driver = narrowestAttribute(box, -1);
+        return hasConflict(box, driver, box.starts[driver], box.ends[driver], driver);
+    }
+
+    private boolean isConflict(int[] cells, int base, Box box, int skippedAttribute) {
+        int rowClass = cells[base + attributeCount];
+        return rowClass != box.classCode && rowClass != -1 && isInside(cells, base, box, skippedAttribute);
+    }
+
+    /**
+     * Returns whether the case whose cells start at base lies within the bounds of the box, apart from
+     * the skipped attribute. Cases with a blank attribute lie in no box.
+     */
+    private boolean isInside(int[] cells, int base, Box box, int skippedAttribute) {
+        for (int attribute = 0; attribute < attributeCount; attribute++) {
+            if (attribute == skippedAttribute) {
+                continue;
+            }
+            int rank = cells[base + attribute];
+            if (rank < box.starts[attribute] || rank >= box.ends[attribute]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int[] cellsOf(int attribute) {
+        return sortedCells != null ? sortedCells[attribute] : rowCells;
+    }
+
+    /**
+     * Returns where the cells of the case at a position of the attribute's sorted index start in cellsOf.
+     */
+    private int baseOf(int attribute, int position) {
+        return sortedCells != null ? position * width : sortedIndexes[attribute].getRow(position) * width;
+    }
+
+    /**
+     * Returns the attribute, other than the skipped one, whose bounds hold the fewest cases, or -1 if
+     * there is no other attribute.
+     */
+    private int narrowestAttribute(Box box, int skippedAttribute) {
+        int narrowest = -1;
+        int narrowestSize = Integer.MAX_VALUE;
+        for (int attribute = 0; attribute < attributeCount; attribute++) {
+            if (attribute == skippedAttribute) {
+                continue;
+            }
+            int size = box.ends[attribute] - box.starts[attribute];
+            if (size < narrowestSize) {
+                narrowest = attribute;
+                narrowestSize = size;
+            }
+        }
+        return narrowest;
+    }
+
+    /**
+     * Drops the boxes of one class whose cases larger boxes already cover, then merges pairs whose envelope
+     * is pure until no pair is left to merge. The largest boxes come first.
+     */
+    private List<Box> mergeBoxes(List<Box> boxes, BooleanSupplier cancelled) {
+        List<Box> kept = dropRedundant(boxes);
+        boolean merged = !cancelled.getAsBoolean();
+        while (merged) {
+            merged = false;
+            for (int i = 0; i < kept.size() && !cancelled.getAsBoolean(); i++) {
+                for (int j = i + 1; j < kept.size(); j++) {
+                    Box envelope = kept.get(i).envelope(kept.get(j));
+                    if (!hasConflict(envelope)) {
+                        kept.set(i, envelope);
+                        kept.remove(j);
+                        merged = true;
+                        j = i;
+                    }
+                }
+            }
+            if (merged) {
+                kept = dropRedundant(kept);
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Returns the boxes ordered by the number of cases they hold, from the most, leaving out every box
+     * whose cases the boxes before it all cover. Of equal boxes the first is kept.
+     */
+    private List<Box> dropRedundant(List<Box> boxes) {
+        int[][] rows = new int[boxes.size()][];
+        Integer[] order = new Integer[boxes.size()];
+        for (int i = 0; i < order.length; i++) {
+            rows[i] = coveredRows(boxes.get(i));
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(rows[b].length, rows[a].length));
+
+        List<Box> kept = new ArrayList<>();
+        BitSet covered = new BitSet(totalRows);
+        for (int i : order) {
+            boolean adds = false;
+            for (int row : rows[i]) {
+                if (!covered.get(row)) {
+                    covered.set(row);
+                    adds = true;
+                }
+            }
+            if (adds) {
+                kept.add(boxes.get(i));
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Returns the rows of the box's class inside the box in ascending order.
+     */
+    private int[] coveredRows(Box box) {
+        int driver = narrowestAttribute(box, -1);
+        SortedColumnIndex sorted = sortedIndexes[driver];
+        int[] cells = cellsOf(driver);
+        int[] rows = new int[box.ends[driver] - box.starts[driver]];
+        int count = 0;
+        for (int position = box.starts[driver]; position < box.ends[driver]; position++) {
+            int base = baseOf(driver, position);
+            if (cells[base + attributeCount] == box.classCode && isInside(cells, base, box, driver)) {
+                rows[count++] = sorted.getRow(position);
+            }
+        }
+        rows = Arrays.copyOf(rows, count);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    private Hyperblock toHyperblock(Box box) {
+        double[] lows = new double[attributeCount];
+        double[] highs = new double[attributeCount];
+        boolean[] bounded = new boolean[attributeCount];
+        for (int attribute = 0; attribute < attributeCount; attribute++) {
+            SortedColumnIndex sorted = sortedIndexes[attribute];
+            lows[attribute] = sorted.getValue(box.starts[attribute]);
+            highs[attribute] = sorted.getValue(box.ends[attribute] - 1);
+            bounded[attribute] = box.starts[attribute] > 0 || box.ends[attribute] < sorted.size();
+        }
+        int[] rows = coveredRows(box);
+        double percentageOfClass = (rows.length / (double) classCounts[box.classCode]) * 100;
+        double percentageOfDataset = (rows.length / (double) totalRows) * 100;
+        return new Hyperblock(attributeNames, lows, highs, bounded, classCodes.getLabel(box.classCode),
+                rows, percentageOfClass, percentageOfDataset);
+    }
+}
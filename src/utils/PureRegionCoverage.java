@@ -0,0 +1,106 @@
+package src.utils;
+
+import src.data.ClassCodes;
+import src.data.ColumnStore;
+import src.data.SortedColumnIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The PureRegionCoverage class keeps the pure regions of a dataset before the threshold is applied,
+ * together with the highest threshold at which each row is still covered by one of them. Moving the
+ * threshold then only filters the kept regions, and the number of cases left at any threshold is a
+ * lookup in a precomputed curve.
+ *
+ * A region passes the threshold when its share of its class or of the dataset reaches it, and a row is
+ * covered when its value lies in [start, end) of a passing region of its class, as in PureRegionManager.
+ */
+public final class PureRegionCoverage extends EasyCaseCoverage {
+
+    private final List<PureRegionUtils> regions;
+    private final PureRegionIndex index;
+
+    private PureRegionCoverage(List<PureRegionUtils> regions, PureRegionIndex index, byte[] rowLevels) {
+        super(rowLevels);
+        this.regions = regions;
+        this.index = index;
+    }
+
+    /**
+     * Finds the pure regions of the store and the coverage of every row, or returns null once cancelled
+     * returns true. The store must not change while this runs.
+     */
+    public static PureRegionCoverage compute(ColumnStore columnStore, int classColumnIndex, ForkJoinPool pool, BooleanSupplier cancelled) {
+        List<PureRegionUtils> regions = PureRegionUtils.findPureRegions(columnStore, classColumnIndex, pool, cancelled);
+        if (cancelled.getAsBoolean()) {
+            return null;
+        }
+
+        byte[] rowLevels = new byte[columnStore.getRowCount()];
+        Arrays.fill(rowLevels, (byte) -1);
+        if (classColumnIndex != -1) {
+            ClassCodes classCodes = ClassCodes.of(columnStore, classColumnIndex);
+            for (PureRegionUtils region : regions) {
+                int col = columnStore.findColumn(region.getAttributeName());
+                if (col != -1) {
+                    markRows(rowLevels, columnStore.getSortedIndex(col), region, classCodes);
+                }
+            }
+        }
+        return new PureRegionCoverage(regions, new PureRegionIndex(regions), rowLevels);
+    }
+
+    /**
+     * Raises the level of the rows a region covers: its rows of the region's class with values in
+     * [start, end), found as one run of the column's sorted index.
+     */
+    private static void markRows(byte[] rowLevels, SortedColumnIndex sorted, PureRegionUtils region, ClassCodes classCodes) {
+        int classCode = classCodes.codeOf(region.getCurrentClass());
+        byte level = levelOf(region);
+        int end = sorted.lowerBound(region.getEnd());
+        for (int position = sorted.lowerBound(region.getStart()); position < end; position++) {
+            int row = sorted.getRow(position);
+            if (classCodes.getCode(row) == classCode && level > rowLevels[row]) {
+                rowLevels[row] = level;
+            }
+        }
+    }
+
+    private static byte levelOf(PureRegionUtils region) {
+        return levelOf(region.getPercentageOfClass(), region.getPercentageOfDataset());
+    }
+
+    /**
+     * Returns the regions that pass the threshold.
+     */
+    public List<PureRegionUtils> getRegions(int thresholdPercentage) {
+        return PureRegionUtils.filterPureRegions(regions, thresholdPercentage);
+    }
+
+    /**
+     * Returns the regions of the attribute that pass the threshold and cover the value, ordered by start.
+     */
+    public List<PureRegionUtils> getRegionsCovering(String attributeName, double value, int thresholdPercentage) {
+        List<PureRegionUtils> covering = new ArrayList<>(index.getRegionsCovering(attributeName, value));
+        covering.removeIf(region -> levelOf(region) < clamp(thresholdPercentage));
+        return covering;
+    }
+
+    @Override
+    public String describe(int thresholdPercentage) {
+        List<PureRegionUtils> pureRegions = getRegions(thresholdPercentage);
+        StringBuilder sb = new StringBuilder();
+        sb.append("Single-Attribute Pure Regions:\n");
+        for (int i = pureRegions.size() - 1; i >= 0; i--) {
+            PureRegionUtils region = pureRegions.get(i);
+            sb.append(String.format("Attribute: %s, Pure Region: %.2f <= %s < %.2f, Class: %s, Count: %d (%.2f%% of class, %.2f%% of dataset)\n",
+                    region.getAttributeName(), region.getStart(), region.getAttributeName(), region.getEnd(),
+                    region.getCurrentClass(), region.getRegionCount(), region.getPercentageOfClass(), region.getPercentageOfDataset()));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package src.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The PureRegionIndex class answers which pure regions cover a value of an attribute. A region covers
+ * the values in [start, end), the same rows PureRegionManager hides as easy cases.
+ *
+ * The regions of each attribute are sorted by start with a running maximum of their ends, so a query
+ * binary searches the last region starting at or before the value and walks back only while an earlier
+ * region can still reach past it. For the non-overlapping regions of PureRegionUtils.findPureRegions
+ * that is a single step.
+ */
+public final class PureRegionIndex {
+
+    private final Map<String, AttributeRegions> attributes = new HashMap<>();
+
+    private static final class AttributeRegions {
+        private final PureRegionUtils[] regions;
+        private final double[] starts;
+        private final double[] maxEnds; // Largest end of the regions up to each index
+
+        private AttributeRegions(List<PureRegionUtils> attributeRegions) {
+            attributeRegions.sort(Comparator.comparingDouble(PureRegionUtils::getStart));
+            regions = attributeRegions.toArray(new PureRegionUtils[0]);
+            starts = new double[regions.length];
+            maxEnds = new double[regions.length];
+            double maxEnd = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < regions.length; i++) {
+                starts[i] = regions[i].getStart();
+                maxEnd = Math.max(maxEnd, regions[i].getEnd());
+                maxEnds[i] = maxEnd;
+            }
+        }
+    }
+
+    public PureRegionIndex(List<PureRegionUtils> regions) {
+        Map<String, List<PureRegionUtils>> regionsByAttribute = new HashMap<>();
+        for (PureRegionUtils region : regions) {
+            regionsByAttribute.computeIfAbsent(region.getAttributeName(), k -> new ArrayList<>()).add(region);
+        }
+        for (Map.Entry<String, List<PureRegionUtils>> entry : regionsByAttribute.entrySet()) {
+            attributes.put(entry.getKey(), new AttributeRegions(entry.getValue()));
+        }
+    }
+
+    /**
+     * Returns the regions of the attribute that cover the value, ordered by start.
+     */
+    public List<PureRegionUtils> getRegionsCovering(String attributeName, double value) {
+        AttributeRegions attribute = attributes.get(attributeName);
+        if (attribute == null || Double.isNaN(value)) {
+            return Collections.emptyList();
+        }
+        List<PureRegionUtils> covering = new ArrayList<>();
+        for (int i = lastStartingBy(attribute.starts, value); i >= 0 && attribute.maxEnds[i] > value; i--) {
+            if (attribute.regions[i].getEnd() > value) {
+                covering.add(attribute.regions[i]);
+            }
+        }
+        Collections.reverse(covering);
+        return covering;
+    }
+
+    /**
+     * Returns the index of the last start at or below the value, or -1 if there is none.
+     */
+    private static int lastStartingBy(double[] starts, double value) {
+        int low = 0;
+        int high = starts.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= value) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+}
@@ -1,7 +1,13 @@
 package src.utils;
 
-import javax.swing.table.DefaultTableModel;
+import src.data.ClassCodes;
+import src.data.ColumnStore;
+import src.data.SortedColumnIndex;
+
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BooleanSupplier;
 
 public class PureRegionUtils {
     private String attributeName;
@@ -23,113 +29,202 @@ public class PureRegionUtils {
         this.percentageOfDataset = percentageOfDataset;
     }
 
-    public static List<PureRegionUtils> calculatePureRegions(DefaultTableModel tableModel, int thresholdPercentage, int classColumnIndex) {
+    /**
+     * Finds the maximal pure regions of every numeric attribute before any threshold is applied. The
+     * attributes are swept in parallel on the given pool and their regions merged in column order, so the
+     * result does not depend on the scheduling. Once cancelled returns true the remaining attributes are
+     * skipped. The store must not change while this runs. The threshold only filters this list, so it is
+     * kept in a PureRegionCoverage and filtered again through PureRegionCoverage.getRegions as the threshold
+     * changes.
+     */
+    public static List<PureRegionUtils> findPureRegions(ColumnStore columnStore, int classColumnIndex, ForkJoinPool pool, BooleanSupplier cancelled) {
         if (classColumnIndex == -1) {
             return Collections.emptyList();
         }
     
         List<PureRegionUtils> pureRegions = new ArrayList<>();
-        int numColumns = tableModel.getColumnCount();
-        int totalRows = tableModel.getRowCount();
-    
-        Map<String, Integer> classCounts = new HashMap<>();
-        for (int row = 0; row < totalRows; row++) {
-            String className = tableModel.getValueAt(row, classColumnIndex).toString();
-            classCounts.put(className, classCounts.getOrDefault(className, 0) + 1);
-        }
+        int numColumns = columnStore.getColumnCount();
+        int totalRows = columnStore.getRowCount();
     
+        ClassCodes classCodes = ClassCodes.of(columnStore, classColumnIndex);
+        int[] classCounts = classCodes.countAll();
+
+        List<ForkJoinTask<List<PureRegionUtils>>> tasks = new ArrayList<>();
         for (int col = 0; col < numColumns; col++) {
-            if (col == classColumnIndex) continue;
-    
-            String attributeName = tableModel.getColumnName(col);
-            List<Double> values = new ArrayList<>();
-            Map<Double, List<Integer>> valueToRowIndicesMap = new HashMap<>();
-    
-            for (int row = 0; row < totalRows; row++) {
-                try {
-                    double value = Double.parseDouble(tableModel.getValueAt(row, col).toString());
-                    values.add(value);
-                    valueToRowIndicesMap.computeIfAbsent(value, k -> new ArrayList<>()).add(row);
-                } catch (NumberFormatException e) {
-                    // Skip non-numerical values
+            if (col == classColumnIndex || !columnStore.isNumeric(col)) continue;
+
+            int attributeColumn = col;
+            tasks.add(pool.submit(() -> cancelled.getAsBoolean()
+                    ? Collections.<PureRegionUtils>emptyList()
+                    : findPureRuns(columnStore, attributeColumn, classCodes, classCounts, totalRows)));
+        }
+        for (ForkJoinTask<List<PureRegionUtils>> task : tasks) {
+            pureRegions.addAll(task.join());
+        }
+        return pureRegions;
+    }
+
+    /**
+     * Returns the regions of findPureRegions that pass the threshold, largest last. The given list is not changed.
+     */
+    public static List<PureRegionUtils> filterPureRegions(List<PureRegionUtils> pureRegions, int thresholdPercentage) {
+        return filterLargestSignificantRegions(new ArrayList<>(pureRegions), thresholdPercentage);
+    }
+
+    /**
+     * Sweeps the values of a column in ascending order and returns one region per maximal run of values
+     * whose rows all have the same class. Rows with tied values are taken together, so a value shared by
+     * two classes ends a run. Every pure window of values lies inside one of these runs.
+     */
+    private static List<PureRegionUtils> findPureRuns(ColumnStore columnStore, int col, ClassCodes classCodes, int[] classCounts, int totalRows) {
+        List<PureRegionUtils> pureRegions = new ArrayList<>();
+        String attributeName = columnStore.getColumnName(col);
+        SortedColumnIndex sorted = columnStore.getSortedIndex(col); // Blank values are left out
+        int runClass = -1;
+        int runCount = 0;
+        double runStart = 0;
+        double runEnd = 0;
+        int position = 0;
+        while (position < sorted.size()) {
+            double value = sorted.getValue(position);
+
+            // Take every row with this value and see whether they share a class
+            int groupClass = classCodes.getCode(sorted.getRow(position));
+            int groupCount = 0;
+            boolean isPure = true;
+            while (position < sorted.size() && Double.compare(sorted.getValue(position), value) == 0) {
+                if (classCodes.getCode(sorted.getRow(position)) != groupClass) {
+                    isPure = false;
                 }
+                groupCount++;
+                position++;
             }
-    
-            Collections.sort(values);
-    
-            for (int start = 0; start < values.size(); start++) {
-                String currentClass = null;
-                Set<Integer> rowsInWindow = new HashSet<>();
-                boolean isPure = true;
-    
-                for (int end = start + 1; end <= values.size(); end++) {
-                    List<Integer> rowIndices = valueToRowIndicesMap.get(values.get(end - 1));
-                    for (int rowIndex : rowIndices) {
-                        String className = tableModel.getValueAt(rowIndex, classColumnIndex).toString();
-                        if (currentClass == null) {
-                            currentClass = className;
-                        } else if (!currentClass.equals(className)) {
-                            isPure = false;
-                            break;
-                        }
-                        rowsInWindow.add(rowIndex);
-                    }
-    
-                    if (!isPure) {
-                        break;
-                    }
-    
-                    if (!rowsInWindow.isEmpty()) {
-                        int regionCount = rowsInWindow.size();
-                        double percentageOfClass = (regionCount / (double) classCounts.get(currentClass)) * 100;
-                        double percentageOfDataset = (regionCount / (double) totalRows) * 100;
-                        double expandedEnd = values.get(end - 1);
-    
-                        PureRegionUtils region = new PureRegionUtils(
-                                attributeName, values.get(start), expandedEnd,
-                                currentClass, regionCount, percentageOfClass, percentageOfDataset
-                        );
-                        pureRegions.add(region);
-                    }
-                }
+
+            if (!isPure || groupClass != runClass) {
+                addRegion(pureRegions, attributeName, runStart, runEnd, runClass, runCount, classCodes, classCounts, totalRows);
+                runClass = isPure ? groupClass : -1;
+                runStart = value;
+                runCount = 0;
             }
+            runEnd = value;
+            runCount += groupCount;
         }
-    
-        return filterLargestSignificantRegions(pureRegions, thresholdPercentage);
+        addRegion(pureRegions, attributeName, runStart, runEnd, runClass, runCount, classCodes, classCounts, totalRows);
+        return pureRegions;
+    }
+
+    private static void addRegion(List<PureRegionUtils> pureRegions, String attributeName, double start, double end, int classCode,
+                                  int regionCount, ClassCodes classCodes, int[] classCounts, int totalRows) {
+        if (classCode == -1) {
+            return;
+        }
+        double percentageOfClass = (regionCount / (double) classCounts[classCode]) * 100;
+        double percentageOfDataset = (regionCount / (double) totalRows) * 100;
+        pureRegions.add(new PureRegionUtils(attributeName, start, end, classCodes.getLabel(classCode),
+                regionCount, percentageOfClass, percentageOfDataset));
     }
 
     private static List<PureRegionUtils> filterLargestSignificantRegions(List<PureRegionUtils> pureRegions, int thresholdPercentage) {
         List<PureRegionUtils> filteredRegions = new ArrayList<>();
+
+        // Apply the threshold percentage first: a contained region never covers more than its container,
+        // so this drops nothing the containment check would keep and leaves it far fewer regions to compare
+        double minCoverage = thresholdPercentage;
+        pureRegions.removeIf(region -> region.percentageOfClass < minCoverage && region.percentageOfDataset < minCoverage);
     
         // Sort by region size (number of cases), then by range size
         pureRegions.sort(Comparator.comparingInt((PureRegionUtils region) -> region.regionCount).reversed()
                 .thenComparingDouble(region -> region.end - region.start).reversed());
     
+        // Region A is dropped when an earlier kept region B of the same attribute and class spans its range
+        // and has at least as many cases. The order puts no region with more cases first, so B has exactly
+        // as many, and per (attribute, class, count) the check is a prefix maximum of the kept ends over starts.
+        Map<List<Object>, ContainmentGroup> groups = new HashMap<>();
+        for (PureRegionUtils region : pureRegions) {
+            groups.computeIfAbsent(containmentKey(region), k -> new ContainmentGroup()).add(region.start);
+        }
+        for (ContainmentGroup group : groups.values()) {
+            group.index();
+        }
         for (PureRegionUtils regionA : pureRegions) {
-            boolean isContained = false;
-            for (PureRegionUtils regionB : filteredRegions) {
-                // Check if regionA is entirely contained within regionB
-                if (regionA.attributeName.equals(regionB.attributeName) &&
-                    regionA.currentClass.equals(regionB.currentClass) &&
-                    regionA.start >= regionB.start &&
-                    regionA.end <= regionB.end &&
-                    regionA.regionCount <= regionB.regionCount) {
-                    isContained = true;
-                    break;
-                }
-            }
-            if (!isContained) {
+            ContainmentGroup group = groups.get(containmentKey(regionA));
+            if (group.maxEndStartingBy(regionA.start) < regionA.end) {
+                group.addKept(regionA.start, regionA.end);
                 filteredRegions.add(regionA);
             }
         }
     
-        // Apply the threshold percentage to filter out regions
-        double minCoverage = thresholdPercentage;
-        filteredRegions.removeIf(region -> region.percentageOfClass < minCoverage && region.percentageOfDataset < minCoverage);
-    
         return filteredRegions;
     }
 
+    private static List<Object> containmentKey(PureRegionUtils region) {
+        return Arrays.asList(region.attributeName, region.currentClass, region.regionCount);
+    }
+
+    /**
+     * The kept regions of one (attribute, class, count), as a Fenwick tree of the largest end over the
+     * sorted distinct starts.
+     */
+    private static final class ContainmentGroup {
+        private double[] starts = new double[4];
+        private int size;
+        private double[] maxEnds;
+
+        private void add(double start) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+            }
+            starts[size++] = start;
+        }
+
+        private void index() {
+            Arrays.sort(starts, 0, size);
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (distinct == 0 || starts[i] != starts[distinct - 1]) {
+                    starts[distinct++] = starts[i];
+                }
+            }
+            size = distinct;
+            maxEnds = new double[size + 1];
+            Arrays.fill(maxEnds, Double.NEGATIVE_INFINITY);
+        }
+
+        /**
+         * Returns the number of distinct starts at or below the value.
+         */
+        private int countStartsUpTo(double value) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private void addKept(double start, double end) {
+            for (int i = countStartsUpTo(start); i <= size; i += i & -i) {
+                maxEnds[i] = Math.max(maxEnds[i], end);
+            }
+        }
+
+        /**
+         * Returns the largest end of the kept regions that start at or before the value.
+         */
+        private double maxEndStartingBy(double value) {
+            double maxEnd = Double.NEGATIVE_INFINITY;
+            for (int i = countStartsUpTo(value); i > 0; i -= i & -i) {
+                maxEnd = Math.max(maxEnd, maxEnds[i]);
+            }
+            return maxEnd;
+        }
+    }
+
     public String getAttributeName() {
         return attributeName;
     }
@@ -0,0 +1,60 @@
+package src.utils;
+
+import src.data.ColumnStore;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that hyperblocks hold cases of their own class only, also when cases of different classes share a
+ * point. Runs without a test framework:
+ *
+ *   javac -d out $(find src test -name "*.java") && java -ea -cp out src.utils.HyperblockEngineTest
+ */
+public class HyperblockEngineTest {
+
+    public static void main(String[] args) {
+        duplicatePointsOfDifferentClassesAreLeftOut();
+        System.out.println("HyperblockEngineTest passed");
+    }
+
+    private static void duplicatePointsOfDifferentClassesAreLeftOut() {
+        ColumnStore columnStore = new ColumnStore();
+        columnStore.addColumn("a");
+        columnStore.addColumn("b");
+        columnStore.addColumn("class");
+        Object[][] rows = {
+                {1.0, 1.0, "X"},
+                {1.0, 1.0, "Y"},
+                {2.0, 2.0, "X"},
+                {3.0, 3.0, "X"},
+                {5.0, 5.0, "Y"},
+                {6.0, 6.0, "Y"},
+        };
+        for (Object[] row : rows) {
+            columnStore.appendRow(row);
+        }
+        columnStore.setClassColumnIndex(2);
+
+        List<Hyperblock> hyperblocks = HyperblockEngine.findHyperblocks(columnStore, 2, ForkJoinPool.commonPool(), () -> false);
+        check(!hyperblocks.isEmpty(), "no hyperblocks found");
+        for (Hyperblock hyperblock : hyperblocks) {
+            for (int row : hyperblock.getRows()) {
+                check(columnStore.getText(row, 2).equals(hyperblock.getCurrentClass()),
+                        "row " + row + " is in a " + hyperblock.getCurrentClass() + " block " + Arrays.toString(hyperblock.getRows()));
+                check(!(columnStore.getDouble(row, 0) == 1.0), "the shared point (1, 1) is in a block");
+            }
+            check(hyperblock.getPercentageOfClass() <= 100, "block covers " + hyperblock.getPercentageOfClass() + "% of its class");
+        }
+
+        HyperblockCoverage coverage = HyperblockCoverage.compute(columnStore, 2, ForkJoinPool.commonPool(), () -> false);
+        check(!coverage.getCoveredRows(0).get(0) && !coverage.getCoveredRows(0).get(1), "the shared point is an easy case");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}